@@ -12,7 +12,7 @@ public class AccountTable {
     public AccountTable(JDBCDriverConnection conn) {
         this.conn = conn;
         boolean exists = conn.tableExists("accounts");
-        if (!exists) {
+        if (!exists && !conn.isReadOnly()) {
             createTable();
         }
     }
@@ -120,7 +120,8 @@ public class AccountTable {
                 "           ?, ?, ?, ?, ?" +
                 ");\n";
 
-        try (PreparedStatement pstmt = conn.getConnection().prepareStatement(sql)) {
+        try {
+            PreparedStatement pstmt = conn.prepareStatement(sql);
             pstmt.setLong   ( 1, (Long)    line.get("addAccountDate"));
             pstmt.setString ( 2, (String)  line.get("fiLoginDisplayName"));
             pstmt.setString ( 3, (String)  line.get("dueDate"));
@@ -241,19 +242,23 @@ public class AccountTable {
         }
     }
 
-    public ResultSet getAccounts() {
+    /**
+     * Stream accounts to handler one row at a time, closing the result set before returning.
+     *
+     * @param activeOnly skip accounts Mint has marked inactive
+     * @param handler    called with the result set positioned on each row
+     */
+    public void forEachAccount(boolean activeOnly, RowHandler handler) throws SQLException {
         String sql =
                 "SELECT TRIM(name) AS name, TRIM(accountName) AS accountName, TRIM(userName) AS userName, " +
                         "TRIM(yodleeName) AS yodleeName, value, lastUpdatedInDate, accountType, " +
                         "accountId, fiName, isActive " +
-                        "FROM accounts \n";
-        try {
-            Statement stmt = conn.getConnection().createStatement();
-             ResultSet rs = stmt.executeQuery(sql);
-            return rs;
-        } catch (SQLException e) {
-            System.err.println(e.getMessage());
+                        "FROM accounts \n" +
+                        (activeOnly ? "WHERE isActive=1\n" : "");
+        try (PreparedStatement pstmt = conn.getReadConnection().prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next())
+                handler.accept(rs);
         }
-        return null;
     }
 }
@@ -13,7 +13,7 @@ public class Budgets {
     public Budgets(JDBCDriverConnection conn) {
         this.conn = conn;
         boolean exists = conn.tableExists("budgets");
-        if (!exists) {
+        if (!exists && !conn.isReadOnly()) {
             createTable();
         }
     }
@@ -67,7 +67,8 @@ public class Budgets {
                 "          ?, ?, ?, ?, ?," +
                 "          ?, ?, ?, ?, ?);\n";
 
-        try (PreparedStatement pstmt = conn.getConnection().prepareStatement(sql)) {
+        try {
+            PreparedStatement pstmt = conn.prepareStatement(sql);
             pstmt.setLong(1, getOptionalLong(line, "st"));
             pstmt.setLong(2, getOptionalLong(line, "ramt"));
             setOptionalBoolean(pstmt, 3, "isIncome", line);
@@ -148,7 +149,7 @@ public class Budgets {
                         " \n" +
                         "FROM budgets \n";
         try {
-            Statement stmt = conn.getConnection().createStatement();
+            Statement stmt = conn.getReadConnection().createStatement();
              ResultSet rs = stmt.executeQuery(sql);
             return rs;
         } catch (SQLException e) {
@@ -1,6 +1,7 @@
 package name.wexler.retirement.datastore;
 
 import name.wexler.retirement.jdbcDrivers.generic.JDBCDriverConnection;
+import name.wexler.retirement.jdbcDrivers.generic.OpenProfile;
 
 public class DataStore {
     JDBCDriverConnection conn = null;
@@ -11,12 +12,22 @@ public class DataStore {
     PositionHistory positionHistory;
 
     public DataStore() {
-        conn = JDBCDriverConnection.driverFactory("sqlite", "retirement");
+        this(OpenProfile.DEFAULT);
+    }
+
+    /**
+     * @param profile READ_ONLY for page loads, BULK_LOAD for imports.  Only writers create missing tables
+     *                and migrate the schema; a read-only store uses the database as it finds it.
+     */
+    public DataStore(OpenProfile profile) {
+        conn = JDBCDriverConnection.driverFactory("sqlite", "retirement", profile);
         tickerHistory = new TickerHistory(conn);
         txnHistory = new TxnHistory(conn);
         budgets = new Budgets(conn);
         accountTable = new AccountTable(conn);
         positionHistory = new PositionHistory(conn);
+        if (!conn.isReadOnly())
+            new SchemaMigrations(conn).migrate();
     }
 
     public TickerHistory getTickerHistory() {
@@ -30,4 +41,20 @@ public class DataStore {
     public AccountTable getAccountTable() { return accountTable; }
 
     public PositionHistory getPositionHistory() { return positionHistory; }
+
+    /**
+     * @return a number that changes whenever something else, such as a crawler run, commits to the database
+     */
+    public long getDataVersion() { return conn.getDataVersion(); }
+
+    /**
+     * Close the cached prepared statements, the calling thread's now and other threads' when they next query.
+     * Call when a batch of work, such as a rebuild, is done with them.
+     */
+    public void releaseStatements() { conn.releaseStatements(); }
+
+    /**
+     * Close the connections to the database.  The tables can't be used afterwards.
+     */
+    public void close() { conn.close(); }
 }
@@ -57,7 +57,7 @@ public class PositionHistory {
     public PositionHistory(JDBCDriverConnection conn) {
         this.conn = conn;
         boolean exists = conn.tableExists("positionHistory");
-        if (!exists) {
+        if (!exists && !conn.isReadOnly()) {
             createTable();
         }
     }
@@ -96,7 +96,8 @@ public class PositionHistory {
                 + "(account_id, name, date, units, pos_type, unit_price, mkt_value) \n"
                 + "VALUES (?, ?, ?, ?, ?, ?, ?);\n";
 
-        try (PreparedStatement pstmt = conn.getConnection().prepareStatement(sql)) {
+        try {
+            PreparedStatement pstmt = conn.prepareStatement(sql);
             pstmt.setString(1, accountId);
             pstmt.setString(2, ticker);
             pstmt.setLong(3, date);
@@ -119,7 +120,8 @@ public class PositionHistory {
         String sql = "SELECT name, date, units, pos_type, unit_price, mkt_value\n"
                 + "FROM positionHistory\n"
                 + "WHERE account_id=?";
-        try (PreparedStatement pstmt = conn.getConnection().prepareStatement(sql)) {
+        try {
+            PreparedStatement pstmt = conn.prepareReadStatement(sql);
             pstmt.setString(1, accountId);
             try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
@@ -0,0 +1,130 @@
+package name.wexler.retirement.datastore;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Closing prices for one ticker, stored as parallel primitive arrays sorted by date.  Lookups
+ * are binary searches and don't allocate; missing prices come back as NaN.
+ */
+public class PriceSeries {
+    private final int[] epochDays;
+    private final double[] closes;
+
+    /**
+     * Accumulates prices in ascending date order.  A date repeated back to back replaces the
+     * earlier price, so duplicate rows in tickerHistory collapse to one entry.
+     */
+    public static class Builder {
+        private int[] epochDays;
+        private double[] closes;
+        private int size = 0;
+
+        public Builder(int initialCapacity) {
+            epochDays = new int[Math.max(initialCapacity, 1)];
+            closes = new double[Math.max(initialCapacity, 1)];
+        }
+
+        public Builder add(LocalDate date, double close) {
+            int epochDay = Math.toIntExact(date.toEpochDay());
+            if (size > 0 && epochDays[size - 1] >= epochDay) {
+                if (epochDays[size - 1] > epochDay)
+                    throw new IllegalArgumentException("Prices must be added in date order: " + date);
+                closes[size - 1] = close;
+                return this;
+            }
+            if (size == epochDays.length) {
+                epochDays = Arrays.copyOf(epochDays, size * 2);
+                closes = Arrays.copyOf(closes, size * 2);
+            }
+            epochDays[size] = epochDay;
+            closes[size] = close;
+            ++size;
+            return this;
+        }
+
+        public PriceSeries build() {
+            return new PriceSeries(Arrays.copyOf(epochDays, size), Arrays.copyOf(closes, size));
+        }
+    }
+
+    private PriceSeries(int[] epochDays, double[] closes) {
+        this.epochDays = epochDays;
+        this.closes = closes;
+    }
+
+    public int size() {
+        return epochDays.length;
+    }
+
+    public boolean isEmpty() {
+        return epochDays.length == 0;
+    }
+
+    public LocalDate getDate(int index) {
+        return LocalDate.ofEpochDay(epochDays[index]);
+    }
+
+    public double getClose(int index) {
+        return closes[index];
+    }
+
+    /**
+     * @return index of the price on date, or -1 if there isn't one
+     */
+    public int indexOf(LocalDate date) {
+        int index = Arrays.binarySearch(epochDays, Math.toIntExact(date.toEpochDay()));
+        return index >= 0 ? index : -1;
+    }
+
+    /**
+     * @return index of the last price on or before date, or -1 if date precedes the series
+     */
+    public int floorIndex(LocalDate date) {
+        int index = Arrays.binarySearch(epochDays, Math.toIntExact(date.toEpochDay()));
+        return index >= 0 ? index : -index - 2;
+    }
+
+    /**
+     * @return index of the first price on or after date, or -1 if date follows the series
+     */
+    public int ceilingIndex(LocalDate date) {
+        int index = Arrays.binarySearch(epochDays, Math.toIntExact(date.toEpochDay()));
+        if (index >= 0)
+            return index;
+        int insertion = -index - 1;
+        return insertion < epochDays.length ? insertion : -1;
+    }
+
+    /**
+     * @return the close on date, or NaN if there was no trading that day
+     */
+    public double getPrice(LocalDate date) {
+        int index = indexOf(date);
+        return index >= 0 ? closes[index] : Double.NaN;
+    }
+
+    /**
+     * @return the most recent close on or before date, or NaN if date precedes the series
+     */
+    public double getFloorPrice(LocalDate date) {
+        int index = floorIndex(date);
+        return index >= 0 ? closes[index] : Double.NaN;
+    }
+
+    /**
+     * @return the first close on or after date, or NaN if date follows the series
+     */
+    public double getCeilingPrice(LocalDate date) {
+        int index = ceilingIndex(date);
+        return index >= 0 ? closes[index] : Double.NaN;
+    }
+
+    public LocalDate getLatestDate() {
+        return isEmpty() ? null : getDate(epochDays.length - 1);
+    }
+
+    public double getLatestPrice() {
+        return isEmpty() ? Double.NaN : closes[closes.length - 1];
+    }
+}
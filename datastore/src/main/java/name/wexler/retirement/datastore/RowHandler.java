@@ -0,0 +1,16 @@
+package name.wexler.retirement.datastore;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Called once per row by the forEach cursor methods on the table classes.  The ResultSet is
+ * positioned on the current row and is only valid for the duration of the call; the table class
+ * closes it when the iteration finishes or the handler throws.  The cursor has a statement of its own rather
+ * than one from the connection's statement cache, so the handler can run other queries, including the same
+ * one, without closing it.
+ */
+@FunctionalInterface
+public interface RowHandler {
+    void accept(ResultSet row) throws SQLException;
+}
@@ -0,0 +1,193 @@
+package name.wexler.retirement.datastore;
+
+import name.wexler.retirement.jdbcDrivers.generic.JDBCDriverConnection;
+import org.jetbrains.annotations.NotNull;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Brings an existing database up to the current schema.  Each migration runs once, in its own
+ * transaction, and is recorded in the schemaVersion table so it is skipped on later opens.
+ */
+public class SchemaMigrations {
+    interface Migration {
+        void apply(Connection connection) throws SQLException;
+    }
+
+    private static class VersionedMigration {
+        final int version;
+        final String description;
+        final Migration migration;
+
+        VersionedMigration(int version, String description, Migration migration) {
+            this.version = version;
+            this.description = description;
+            this.migration = migration;
+        }
+    }
+
+    private static final List<VersionedMigration> migrations = new ArrayList<>();
+
+    static {
+        // Older versions of the DDL were missing commas, which SQLite accepts by folding the
+        // following column into the previous column's type name.
+        migrate(1, "Add columns lost to malformed DDL", connection -> {
+            addColumnIfMissing(connection, "tickerHistory", "close", "REAL");
+            addColumnIfMissing(connection, "txnHistory", "txnId", "TEXT");
+            addColumnIfMissing(connection, "txnHistory", "maturity_date", "INTEGER");
+        });
+        migrate(2, "Add lookup indexes", connection -> {
+            createIndexIfTableExists(connection, "tickerHistory", "tickerHistory_name_date",
+                    "name, date, close");
+            createIndexIfTableExists(connection, "positionHistory", "positionHistory_account_id",
+                    "account_id");
+            createIndexIfTableExists(connection, "txnHistory", "txnHistory_txnId_source",
+                    "txnId, source");
+            createIndexIfTableExists(connection, "categoryMapping", "categoryMapping_raw_category",
+                    "LOWER(raw_category)");
+        });
+        // Databases already at 2 need this too, so it can't go in with the other indexes
+        migrate(3, "Add budget category index", connection ->
+                createIndexIfTableExists(connection, "budgets", "budgets_cat", "cat"));
+    }
+
+    private static void migrate(int version, String description, Migration migration) {
+        migrations.add(new VersionedMigration(version, description, migration));
+    }
+
+    private final JDBCDriverConnection conn;
+
+    public SchemaMigrations(JDBCDriverConnection conn) {
+        this.conn = conn;
+    }
+
+    public static int latestVersion() {
+        return migrations.get(migrations.size() - 1).version;
+    }
+
+    /**
+     * @return the highest migration applied to this database, 0 if none have been
+     */
+    public int currentVersion() {
+        if (!conn.tableExists("schemaVersion"))
+            return 0;
+        String sql = "SELECT MAX(version) FROM schemaVersion";
+        try (Statement stmt = conn.getConnection().createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            if (rs.next())
+                return rs.getInt(1);
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+        }
+        return 0;
+    }
+
+    /**
+     * Apply every migration newer than the database's current version.  Stops at the first
+     * failure, leaving that migration and the ones after it to be retried on the next open.
+     */
+    public void migrate() {
+        int current = currentVersion();
+        if (current >= latestVersion())
+            return;
+        Connection connection = conn.getConnection();
+        try {
+            createVersionTable(connection);
+        } catch (SQLException e) {
+            System.out.println("Can't create schemaVersion table: " + e.getMessage());
+            return;
+        }
+        for (VersionedMigration m : migrations) {
+            if (m.version <= current)
+                continue;
+            if (!apply(connection, m))
+                return;
+        }
+    }
+
+    private boolean apply(Connection connection, VersionedMigration m) {
+        boolean autoCommit = true;
+        try {
+            autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            m.migration.apply(connection);
+            try (PreparedStatement pstmt = connection.prepareStatement(
+                    "INSERT INTO schemaVersion (version, description, applied) VALUES (?, ?, ?)")) {
+                pstmt.setInt(1, m.version);
+                pstmt.setString(2, m.description);
+                pstmt.setLong(3, System.currentTimeMillis());
+                pstmt.executeUpdate();
+            }
+            connection.commit();
+            System.out.println("Applied schema migration " + m.version + ": " + m.description);
+            return true;
+        } catch (SQLException e) {
+            System.out.println("Schema migration " + m.version + " failed: " + e.getMessage());
+            try {
+                connection.rollback();
+            } catch (SQLException rollbackException) {
+                System.out.println(rollbackException.getMessage());
+            }
+            return false;
+        } finally {
+            try {
+                connection.setAutoCommit(autoCommit);
+            } catch (SQLException e) {
+                System.out.println(e.getMessage());
+            }
+        }
+    }
+
+    private static void createVersionTable(Connection connection) throws SQLException {
+        String sql = "CREATE TABLE IF NOT EXISTS schemaVersion (\n"
+                + " version INTEGER PRIMARY KEY,\n"
+                + " description TEXT NOT NULL,\n"
+                + " applied INTEGER NOT NULL\n"
+                + ");\n";
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+
+    private static boolean tableExists(Connection connection, String table) throws SQLException {
+        try (PreparedStatement pstmt = connection.prepareStatement(
+                "SELECT 1 FROM sqlite_master WHERE type='table' AND name=?")) {
+            pstmt.setString(1, table);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    private static @NotNull Set<String> columns(Connection connection, String table) throws SQLException {
+        Set<String> result = new HashSet<>();
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA table_info(" + table + ")")) {
+            while (rs.next())
+                result.add(rs.getString("name").toLowerCase());
+        }
+        return result;
+    }
+
+    private static void addColumnIfMissing(Connection connection, String table, String column, String type)
+            throws SQLException {
+        if (!tableExists(connection, table) || columns(connection, table).contains(column.toLowerCase()))
+            return;
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("ALTER TABLE " + table + " ADD COLUMN " + column + " " + type);
+        }
+    }
+
+    private static void createIndexIfTableExists(Connection connection, String table, String index, String columns)
+            throws SQLException {
+        if (!tableExists(connection, table))
+            return;
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE INDEX IF NOT EXISTS " + index + " ON " + table + " (" + columns + ")");
+        }
+    }
+}
@@ -9,7 +9,6 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
-import java.math.BigDecimal;
 import java.sql.*;
 import java.time.LocalDate;
 import java.util.HashMap;
@@ -23,7 +22,7 @@ public class TickerHistory {
     public TickerHistory(JDBCDriverConnection conn) {
         this.conn = conn;
         boolean exists = conn.tableExists("tickerHistory");
-        if (!exists) {
+        if (!exists && !conn.isReadOnly()) {
             createTable();
             populateTable();
         }
@@ -35,7 +34,7 @@ public class TickerHistory {
                 + " id integer PRIMARY KEY,\n"
                 + " name text NOT NULL,\n"
                 + " date DATE,\n"
-                + " open REAL\n"
+                + " open REAL,\n"
                 + " close REAL,\n"
                 + " low REAL,\n"
                 + " high REAL,\n"
@@ -87,7 +86,8 @@ public class TickerHistory {
                 + "(name, date, open, close, low, high, adjClose, volume) \n"
                 + "VALUES (?, ?, ?, ?, ?, ?, ?, ?);\n";
 
-        try (PreparedStatement pstmt = conn.getConnection().prepareStatement(sql)) {
+        try {
+            PreparedStatement pstmt = conn.prepareStatement(sql);
             pstmt.setString(1, ticker);
             pstmt.setString(2, line.get("Date"));
             pstmt.setDouble(3, Double.parseDouble(line.get("Open")));
@@ -110,7 +110,7 @@ public class TickerHistory {
         String sql = "SELECT name, MAX(date), count(*)\n"
          + "FROM tickerHistory\n"
          + " GROUP BY name;\n";
-        try (Statement stmt = conn.getConnection().createStatement();
+        try (Statement stmt = conn.getReadConnection().createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
             while (rs.next()) {
                 String ticker = rs.getString(1);
@@ -124,21 +124,45 @@ public class TickerHistory {
         return result;
     }
 
-    public Map<LocalDate, BigDecimal> getHistoricalPrices(String ticker) {
-        Map<LocalDate, BigDecimal> historicalPrices = new HashMap<>(initialHistory);
+    /**
+     * @return the last date stored for ticker, or null if there's no history for it yet
+     */
+    public LocalDate getLastDate(String ticker) {
+        String sql = "SELECT MAX(date)\n"
+                + "FROM tickerHistory\n"
+                + "WHERE name=?;\n";
+        try {
+            PreparedStatement pstmt = conn.prepareReadStatement(sql);
+            pstmt.setString(1, ticker);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next() && rs.getString(1) != null)
+                    return LocalDate.parse(rs.getString(1));
+            }
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+        }
+        return null;
+    }
+
+    public PriceSeries getPriceSeries(String ticker) {
+        PriceSeries.Builder builder = new PriceSeries.Builder(initialHistory);
 
         String sql = "SELECT date, close\n"
                 + "FROM tickerHistory\n"
                 + "WHERE name=?\n"
-                + "AND   date>'2008-01-01';\n";
-        try (PreparedStatement pstmt = conn.getConnection().prepareStatement(sql)) {
+                + "AND   date>'2008-01-01'\n"
+                + "ORDER BY date;\n";
+        try {
+            PreparedStatement pstmt = conn.prepareReadStatement(sql);
             pstmt.setString(1, ticker);
             try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
                     String dateStr = rs.getString(1);
                     LocalDate date = LocalDate.parse(dateStr);
-                    BigDecimal close = rs.getBigDecimal(2);
-                    historicalPrices.put(date, close);
+                    double close = rs.getDouble(2);
+                    if (rs.wasNull())
+                        continue;
+                    builder.add(date, close);
                 }
             } catch (SQLException e) {
                 System.out.println(e.getMessage());
@@ -146,7 +170,7 @@ public class TickerHistory {
         } catch (SQLException e) {
             System.out.println(e.getMessage());
         }
-        return historicalPrices;
+        return builder.build();
     }
 
     private String _getTickerDirectory() {
@@ -13,8 +13,8 @@ import java.sql.*;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneId;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
+import java.util.function.Consumer;
 
 public class TxnHistory {
     JDBCDriverConnection conn = null;
@@ -26,7 +26,7 @@ public class TxnHistory {
     public TxnHistory(JDBCDriverConnection conn) {
         this.conn = conn;
         boolean exists = conn.tableExists("txnHistory");
-        if (!exists) {
+        if (!exists && !conn.isReadOnly()) {
             createTable();
         }
     }
@@ -61,8 +61,8 @@ public class TxnHistory {
                 + " isPercent INTEGER,\n"
                 + " isSell INTEGER,\n"
                 + " isSpending INTEGER,\n"
-                + " isTransfer INTEGER\n"
-                + " txnId TEXT\n"
+                + " isTransfer INTEGER,\n"
+                + " txnId TEXT,\n"
                 + " maturity_date INTEGER\n"
                 + ");\n";
         try (Statement stmt = conn.getConnection().createStatement()) {
@@ -72,64 +72,21 @@ public class TxnHistory {
         }
     }
 
-    public void insertRow(Map<String, Object> line) {
-        final String none = "none";
+    private static final String insertSql = "INSERT OR REPLACE INTO txnHistory \n"
+            + "(date, description, original_description, amount, txn_type, category, account_name, labels, notes, " +
+            "   symbol, shares, fi," +
+            "   isBuy, isCheck, isChild, isDebit, isDuplicate, isEdited, isFirstDate, isLinkedToRule, isMatched, isPending, isPercent, isSell, isSpending, isTransfer," +
+            "   source, txnId, maturity_date) \n"
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?," +
+            "          ?, ?, ?," +
+            "          ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?," +
+            "          ?, ?, ?);\n";
+    public static final int defaultBatchSize = 500;
 
-        String sql = "INSERT OR REPLACE INTO txnHistory \n"
-                + "(date, description, original_description, amount, txn_type, category, account_name, labels, notes, " +
-                "   symbol, shares, fi," +
-                "   isBuy, isCheck, isChild, isDebit, isDuplicate, isEdited, isFirstDate, isLinkedToRule, isMatched, isPending, isPercent, isSell, isSpending, isTransfer," +
-                "   source, txnId, maturity_date) \n"
-                + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?," +
-                "          ?, ?, ?," +
-                "          ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?," +
-                "          ?, ?, ?);\n";
-
-        try (PreparedStatement pstmt = conn.getConnection().prepareStatement(sql)) {
-            pstmt.setLong(1, getOptionalLong(line, "odate"));
-            pstmt.setString(2, (String) line.get("merchant"));
-            pstmt.setString(3, (String) line.get("omerchant"));
-            if (line.get("amount") instanceof Double)
-                pstmt.setDouble( 4, (Double) line.get("amount"));
-            else
-                pstmt.setNull(4, Types.DOUBLE);
-            pstmt.setString(5, (String) line.get("txnType"));
-            pstmt.setString(6, (String) line.get("category"));
-            String accountName = (String) line.getOrDefault("account", none);
-            if (accountName == null)
-                accountName = none;
-            pstmt.setString(7, accountName);
-            pstmt.setString(8, line.get("labels").toString());
-            pstmt.setString(9, (String) line.get("notes"));
-            pstmt.setString(10, (String) line.get("symbol"));
-            if (line.get("shares") instanceof Double)
-                pstmt.setDouble(11, (Double) line.get("shares"));
-            else
-                pstmt.setNull(11, Types.DOUBLE);
-            pstmt.setString(12, (String) line.get("fi"));
-            if (line.get("isBuy") instanceof Boolean)
-                pstmt.setBoolean( 13, (Boolean) line.get("isBuy"));
-            else
-                pstmt.setNull(13, Types.BOOLEAN);
-            pstmt.setBoolean( 14, (Boolean) line.get("isCheck"));
-            pstmt.setBoolean( 15, (Boolean) line.get("isChild"));
-            pstmt.setBoolean( 16, (Boolean) line.get("isDebit"));
-            pstmt.setBoolean( 17, (Boolean) line.get("isDuplicate"));
-            pstmt.setBoolean( 18, (Boolean) line.get("isEdited"));
-            pstmt.setBoolean( 19, (Boolean) line.get("isFirstDate"));
-            pstmt.setBoolean( 20, (Boolean) line.get("isLinkedToRule"));
-            pstmt.setBoolean( 21, (Boolean) line.get("isMatched"));
-            pstmt.setBoolean( 22, (Boolean) line.get("isPending"));
-            pstmt.setBoolean( 23, (Boolean) line.get("isPercent"));
-            if (line.get("isSell") instanceof Boolean)
-                pstmt.setBoolean( 24, (Boolean) line.get("isSell"));
-            else
-                pstmt.setNull(24, Types.BOOLEAN);
-            pstmt.setBoolean( 25, (Boolean) line.get("isSpending"));
-            pstmt.setBoolean( 26, (Boolean) line.get("isTransfer"));
-            pstmt.setString( 27, (String) line.get(source));
-            pstmt.setString(28, (String) line.get(TxnHistory.txnId));
-            pstmt.setLong(29, getOptionalLong(line, "maturityDate"));
+    public void insertRow(Map<String, Object> line) {
+        try {
+            PreparedStatement pstmt = conn.prepareStatement(insertSql);
+            bindRow(pstmt, line);
             pstmt.executeUpdate();
         } catch (SQLException e) {
             System.out.println(e.getMessage() + ": " + line.toString());
@@ -138,6 +95,133 @@ public class TxnHistory {
         }
     }
 
+    public void insertRows(Iterable<Map<String, Object>> lines) {
+        insertRows(lines, defaultBatchSize);
+    }
+
+    /**
+     * Insert many transactions using one cached prepared statement, committing every batchSize rows
+     * in one transaction instead of autocommitting each row.  If a batch fails it is rolled back
+     * and replayed row by row so one bad transaction doesn't lose the rest of the chunk.
+     *
+     * @param lines     transactions, keyed the same way as for insertRow
+     * @param batchSize number of rows per transaction
+     */
+    public void insertRows(Iterable<Map<String, Object>> lines, int batchSize) {
+        if (batchSize < 1)
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        Connection connection = conn.getConnection();
+        boolean autoCommit = true;
+        PreparedStatement pstmt = null;
+        try {
+            autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            pstmt = conn.prepareStatement(insertSql);
+            List<Map<String, Object>> chunk = new ArrayList<>(batchSize);
+            for (Map<String, Object> line : lines) {
+                try {
+                    bindRow(pstmt, line);
+                    pstmt.addBatch();
+                    chunk.add(line);
+                } catch (SQLException | NumberFormatException e) {
+                    System.out.println(e.getMessage() + ": " + line.toString());
+                    pstmt.clearParameters();
+                }
+                if (chunk.size() >= batchSize) {
+                    flushBatch(connection, pstmt, chunk);
+                }
+            }
+            flushBatch(connection, pstmt, chunk);
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+            try {
+                if (pstmt != null)
+                    pstmt.clearBatch();
+                connection.rollback();
+            } catch (SQLException rollbackException) {
+                System.out.println(rollbackException.getMessage());
+            }
+        } finally {
+            try {
+                connection.setAutoCommit(autoCommit);
+            } catch (SQLException e) {
+                System.out.println(e.getMessage());
+            }
+        }
+    }
+
+    private void flushBatch(Connection connection, PreparedStatement pstmt, List<Map<String, Object>> chunk) throws SQLException {
+        if (chunk.isEmpty())
+            return;
+        try {
+            pstmt.executeBatch();
+            connection.commit();
+        } catch (SQLException e) {
+            System.out.println(e.getMessage() + ": retrying " + chunk.size() + " rows individually");
+            pstmt.clearBatch();
+            connection.rollback();
+            for (Map<String, Object> line : chunk) {
+                try {
+                    bindRow(pstmt, line);
+                    pstmt.executeUpdate();
+                } catch (SQLException | NumberFormatException rowException) {
+                    System.out.println(rowException.getMessage() + ": " + line.toString());
+                }
+            }
+            connection.commit();
+        }
+        chunk.clear();
+    }
+
+    private void bindRow(PreparedStatement pstmt, Map<String, Object> line) throws SQLException {
+        final String none = "none";
+
+        pstmt.setLong(1, getOptionalLong(line, "odate"));
+        pstmt.setString(2, (String) line.get("merchant"));
+        pstmt.setString(3, (String) line.get("omerchant"));
+        if (line.get("amount") instanceof Double)
+            pstmt.setDouble( 4, (Double) line.get("amount"));
+        else
+            pstmt.setNull(4, Types.DOUBLE);
+        pstmt.setString(5, (String) line.get("txnType"));
+        pstmt.setString(6, (String) line.get("category"));
+        String accountName = (String) line.getOrDefault("account", none);
+        if (accountName == null)
+            accountName = none;
+        pstmt.setString(7, accountName);
+        pstmt.setString(8, line.get("labels").toString());
+        pstmt.setString(9, (String) line.get("notes"));
+        pstmt.setString(10, (String) line.get("symbol"));
+        if (line.get("shares") instanceof Double)
+            pstmt.setDouble(11, (Double) line.get("shares"));
+        else
+            pstmt.setNull(11, Types.DOUBLE);
+        pstmt.setString(12, (String) line.get("fi"));
+        if (line.get("isBuy") instanceof Boolean)
+            pstmt.setBoolean( 13, (Boolean) line.get("isBuy"));
+        else
+            pstmt.setNull(13, Types.BOOLEAN);
+        pstmt.setBoolean( 14, (Boolean) line.get("isCheck"));
+        pstmt.setBoolean( 15, (Boolean) line.get("isChild"));
+        pstmt.setBoolean( 16, (Boolean) line.get("isDebit"));
+        pstmt.setBoolean( 17, (Boolean) line.get("isDuplicate"));
+        pstmt.setBoolean( 18, (Boolean) line.get("isEdited"));
+        pstmt.setBoolean( 19, (Boolean) line.get("isFirstDate"));
+        pstmt.setBoolean( 20, (Boolean) line.get("isLinkedToRule"));
+        pstmt.setBoolean( 21, (Boolean) line.get("isMatched"));
+        pstmt.setBoolean( 22, (Boolean) line.get("isPending"));
+        pstmt.setBoolean( 23, (Boolean) line.get("isPercent"));
+        if (line.get("isSell") instanceof Boolean)
+            pstmt.setBoolean( 24, (Boolean) line.get("isSell"));
+        else
+            pstmt.setNull(24, Types.BOOLEAN);
+        pstmt.setBoolean( 25, (Boolean) line.get("isSpending"));
+        pstmt.setBoolean( 26, (Boolean) line.get("isTransfer"));
+        pstmt.setString( 27, (String) line.get(source));
+        pstmt.setString(28, (String) line.get(TxnHistory.txnId));
+        pstmt.setLong(29, getOptionalLong(line, "maturityDate"));
+    }
+
     private Long getOptionalLong(Map<String, Object> line, String field) {
         Object o = line.get(field);
         if (o instanceof Long) {
@@ -151,7 +235,7 @@ public class TxnHistory {
 
         String sql = "SELECT MAX(date), count(*)\n"
          + "FROM txnHistory\n";
-        try (Statement stmt = conn.getConnection().createStatement();
+        try (Statement stmt = conn.getReadConnection().createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
             rs.next();
 
@@ -164,7 +248,144 @@ public class TxnHistory {
         return LocalDate.ofEpochDay(0);
     }
 
-    public @NotNull ResultSet getTransactions() {
+    public static final int defaultFetchSize = 1000;
+
+    /**
+     * A transaction as forEachTransaction reads it, joined with its category mapping and budget.
+     */
+    public static class TxnRow {
+        private final long id;
+        private final long date;
+        private final String description;
+        private final String originalDescription;
+        private final BigDecimal amount;
+        private final String txnType;
+        private final String itemType;
+        private final String category;
+        private final String parent;
+        private final String accountName;
+        private final String labels;
+        private final String notes;
+        private final String fi;
+        private final boolean debit;
+        private final String symbol;
+        private final BigDecimal shares;
+        private final String source;
+
+        TxnRow(ResultSet rs) throws SQLException {
+            id = rs.getLong("id");
+            date = rs.getLong("date");
+            description = rs.getString("description");
+            originalDescription = rs.getString("original_description");
+            amount = rs.getBigDecimal("amount");
+            txnType = rs.getString("txn_type");
+            itemType = rs.getString("itemType");
+            category = rs.getString("category");
+            parent = rs.getString("parent");
+            accountName = rs.getString("account_name");
+            labels = rs.getString("labels");
+            notes = rs.getString("notes");
+            fi = rs.getString("fi");
+            debit = rs.getBoolean("isDebit");
+            symbol = rs.getString("symbol");
+            shares = rs.getBigDecimal("shares");
+            source = rs.getString("source");
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        /**
+         * @return transaction date in epoch millis
+         */
+        public long getDate() {
+            return date;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        public String getOriginalDescription() {
+            return originalDescription;
+        }
+
+        public BigDecimal getAmount() {
+            return amount;
+        }
+
+        public String getTxnType() {
+            return txnType;
+        }
+
+        public String getItemType() {
+            return itemType;
+        }
+
+        /**
+         * @return the cooked category if there is one, otherwise the category Mint gave it
+         */
+        public String getCategory() {
+            return category;
+        }
+
+        /**
+         * @return the parent category from categoryMapping, or else from budgets, or null if neither has one
+         */
+        public String getParent() {
+            return parent;
+        }
+
+        public String getAccountName() {
+            return accountName;
+        }
+
+        /**
+         * @return labels as a JSON array, or null
+         */
+        public String getLabels() {
+            return labels;
+        }
+
+        public String getNotes() {
+            return notes;
+        }
+
+        public String getFi() {
+            return fi;
+        }
+
+        public boolean isDebit() {
+            return debit;
+        }
+
+        public String getSymbol() {
+            return symbol;
+        }
+
+        public BigDecimal getShares() {
+            return shares;
+        }
+
+        public String getSource() {
+            return source;
+        }
+    }
+
+    public void forEachTransaction(@NotNull Consumer<TxnRow> handler) throws SQLException {
+        forEachTransaction(defaultFetchSize, handler);
+    }
+
+    /**
+     * Stream non-duplicate transactions, joined with their category mapping and budget, to handler
+     * one row at a time.  The cursor has a statement of its own, not a cached one, so the handler can
+     * query this table again while it runs; the statement is closed before this returns.
+     *
+     * @param fetchSize rows the driver fetches at a time
+     * @param handler   called with each row
+     */
+    public void forEachTransaction(int fetchSize, @NotNull Consumer<TxnRow> handler) throws SQLException {
         String sql =
                 "SELECT txnHistory.id, txnHistory.date, " +
                         "description, " +
@@ -185,12 +406,26 @@ public class TxnHistory {
                         "LEFT JOIN categoryMapping ON LOWER(categoryMapping.raw_category)=LOWER(txnHistory.category)\n" +
                         "LEFT JOIN budgets ON budgets.cat=txnHistory.category\n" +
                         "WHERE isDuplicate=0\n";
-        try {
-            Statement stmt = conn.getConnection().createStatement();
-             ResultSet rs = stmt.executeQuery(sql);
-            return rs;
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
+        try (PreparedStatement pstmt = conn.getReadConnection().prepareStatement(sql)) {
+            pstmt.setFetchSize(fetchSize);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next())
+                    handler.accept(new TxnRow(rs));
+            }
+        }
+    }
+
+    /**
+     * Call handler with each row of categoryMapping, if the table has been created.
+     */
+    public void forEachCategoryMapping(@NotNull RowHandler handler) throws SQLException {
+        if (!conn.tableExists("categoryMapping"))
+            return;
+        try (PreparedStatement pstmt =
+                     conn.getReadConnection().prepareStatement("SELECT raw_category, parentCategory FROM categoryMapping");
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next())
+                handler.accept(rs);
         }
     }
 }
@@ -72,6 +72,9 @@ public class BudgetsTest {
         preparedStatement = Mockito.mock(PreparedStatement.class);
         when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
         when(conn.getConnection()).thenReturn(connection);
+        when(conn.getReadConnection()).thenReturn(connection);
+        when(conn.prepareStatement(anyString())).thenReturn(preparedStatement);
+        when(conn.prepareReadStatement(anyString())).thenReturn(preparedStatement);
         budgets = new Budgets(conn);
     }
 }
\ No newline at end of file
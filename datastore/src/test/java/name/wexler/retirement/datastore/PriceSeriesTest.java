@@ -0,0 +1,58 @@
+package name.wexler.retirement.datastore;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.Assert.*;
+
+public class PriceSeriesTest {
+    private PriceSeries priceSeries;
+    private final LocalDate friday = LocalDate.of(2020, 1, 3);
+    private final LocalDate saturday = LocalDate.of(2020, 1, 4);
+    private final LocalDate monday = LocalDate.of(2020, 1, 6);
+
+    @Test
+    public void getPrice() {
+        assertEquals(10.0, priceSeries.getPrice(friday), 0.0);
+        assertEquals(12.0, priceSeries.getPrice(monday), 0.0);
+        assertTrue(Double.isNaN(priceSeries.getPrice(saturday)));
+    }
+
+    @Test
+    public void getFloorPrice() {
+        assertEquals(10.0, priceSeries.getFloorPrice(saturday), 0.0);
+        assertEquals(12.0, priceSeries.getFloorPrice(monday.plusDays(30)), 0.0);
+        assertTrue(Double.isNaN(priceSeries.getFloorPrice(friday.minusDays(1))));
+    }
+
+    @Test
+    public void getCeilingPrice() {
+        assertEquals(12.0, priceSeries.getCeilingPrice(saturday), 0.0);
+        assertEquals(10.0, priceSeries.getCeilingPrice(friday.minusDays(30)), 0.0);
+        assertTrue(Double.isNaN(priceSeries.getCeilingPrice(monday.plusDays(1))));
+    }
+
+    @Test
+    public void getLatest() {
+        assertEquals(2, priceSeries.size());
+        assertEquals(monday, priceSeries.getLatestDate());
+        assertEquals(12.0, priceSeries.getLatestPrice(), 0.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void outOfOrder() {
+        new PriceSeries.Builder(1).add(monday, 1.0).add(friday, 2.0);
+    }
+
+    @Before
+    public void setUp() {
+        // The duplicate Friday row replaces the earlier one
+        priceSeries = new PriceSeries.Builder(1)
+                .add(friday, 9.0)
+                .add(friday, 10.0)
+                .add(monday, 12.0)
+                .build();
+    }
+}
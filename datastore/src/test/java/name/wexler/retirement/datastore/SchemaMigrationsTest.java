@@ -0,0 +1,91 @@
+package name.wexler.retirement.datastore;
+
+import name.wexler.retirement.jdbcDrivers.generic.JDBCDriverConnection;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.*;
+
+import static org.junit.Assert.*;
+
+public class SchemaMigrationsTest {
+    private Connection connection;
+    private JDBCDriverConnection conn;
+
+    private boolean exists(String type, String name) throws SQLException {
+        try (PreparedStatement pstmt = connection.prepareStatement(
+                "SELECT 1 FROM sqlite_master WHERE type=? AND name=?")) {
+            pstmt.setString(1, type);
+            pstmt.setString(2, name);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    @Test
+    public void migrate() throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            // The old, comma-less DDL swallows close into open's type name
+            stmt.execute("CREATE TABLE tickerHistory (id integer PRIMARY KEY, name text NOT NULL, date DATE, open REAL\n close REAL)");
+            stmt.execute("CREATE TABLE positionHistory (id integer PRIMARY KEY, name text NOT NULL, account_id NOT NULL)");
+            stmt.execute("CREATE TABLE budgets (id integer PRIMARY KEY, cat TEXT)");
+        }
+        SchemaMigrations schemaMigrations = new SchemaMigrations(conn);
+        assertEquals(0, schemaMigrations.currentVersion());
+
+        schemaMigrations.migrate();
+        assertEquals(SchemaMigrations.latestVersion(), schemaMigrations.currentVersion());
+        assertTrue(exists("index", "tickerHistory_name_date"));
+        assertTrue(exists("index", "positionHistory_account_id"));
+        assertFalse(exists("index", "txnHistory_txnId_source"));
+        assertTrue(exists("index", "budgets_cat"));
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("INSERT INTO tickerHistory (name, date, open, close) VALUES ('VTI', '2020-01-02', 1.0, 2.0)");
+        }
+
+        schemaMigrations.migrate();
+        assertEquals(SchemaMigrations.latestVersion(), schemaMigrations.currentVersion());
+    }
+
+    @Test
+    public void migrateFromVersion2() throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TABLE budgets (id integer PRIMARY KEY, cat TEXT)");
+            stmt.execute("CREATE TABLE schemaVersion (version INTEGER PRIMARY KEY, description TEXT NOT NULL, " +
+                    "applied INTEGER NOT NULL)");
+            stmt.execute("INSERT INTO schemaVersion VALUES (1, 'one', 0), (2, 'two', 0)");
+        }
+        SchemaMigrations schemaMigrations = new SchemaMigrations(conn);
+        assertEquals(2, schemaMigrations.currentVersion());
+
+        schemaMigrations.migrate();
+        assertEquals(3, schemaMigrations.currentVersion());
+        assertTrue(exists("index", "budgets_cat"));
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        conn = new JDBCDriverConnection() {
+            {
+                setConnection(connection);
+            }
+
+            @Override
+            public boolean tableExists(String tableName) {
+                try {
+                    return exists("table", tableName);
+                } catch (SQLException e) {
+                    return false;
+                }
+            }
+        };
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        connection.close();
+    }
+}
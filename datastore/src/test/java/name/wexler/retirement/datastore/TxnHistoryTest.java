@@ -0,0 +1,123 @@
+package name.wexler.retirement.datastore;
+
+import name.wexler.retirement.jdbcDrivers.generic.JDBCDriverConnection;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+public class TxnHistoryTest {
+    @Mock private JDBCDriverConnection conn;
+    @Mock private Connection connection;
+    @Mock private PreparedStatement preparedStatement;
+    private TxnHistory txnHistory;
+
+    private Map<String, Object> txn(long id) {
+        Map<String, Object> line = new HashMap<>();
+        line.put("odate", id);
+        line.put("merchant", "merchant " + id);
+        line.put("amount", 10.00);
+        line.put("labels", "");
+        for (String flag : new String[]{"isCheck", "isChild", "isDebit", "isDuplicate", "isEdited", "isFirstDate",
+                "isLinkedToRule", "isMatched", "isPending", "isPercent", "isSpending", "isTransfer"})
+            line.put(flag, false);
+        line.put(TxnHistory.source, "test");
+        line.put(TxnHistory.txnId, Long.toString(id));
+        return line;
+    }
+
+    @Test
+    public void insertRows() throws SQLException {
+        List<Map<String, Object>> lines = new ArrayList<>();
+        for (long i = 0; i < 5; ++i)
+            lines.add(txn(i));
+        txnHistory.insertRows(lines, 2);
+
+        verify(conn, times(1)).prepareStatement(anyString());
+        verify(preparedStatement, times(5)).addBatch();
+        verify(preparedStatement, times(3)).executeBatch();
+        verify(connection, times(3)).commit();
+        verify(connection).setAutoCommit(false);
+        verify(connection).setAutoCommit(true);
+    }
+
+    @Test
+    public void insertRowsRetriesFailedBatch() throws SQLException {
+        when(preparedStatement.executeBatch()).thenThrow(new BatchUpdateException());
+        List<Map<String, Object>> lines = new ArrayList<>();
+        for (long i = 0; i < 3; ++i)
+            lines.add(txn(i));
+        txnHistory.insertRows(lines, 10);
+
+        verify(connection).rollback();
+        verify(preparedStatement, times(3)).executeUpdate();
+        verify(connection).commit();
+    }
+
+    @Test
+    public void forEachTransaction() throws SQLException {
+        ResultSet resultSet = Mockito.mock(ResultSet.class);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, true, false);
+        when(resultSet.getLong("id")).thenReturn(1L, 2L);
+        when(resultSet.getString("account_name")).thenReturn("Checking", "Savings");
+        List<TxnHistory.TxnRow> rows = new ArrayList<>();
+        txnHistory.forEachTransaction(50, rows::add);
+
+        assertEquals(2, rows.size());
+        assertEquals(1L, rows.get(0).getId());
+        assertEquals("Savings", rows.get(1).getAccountName());
+        // The cursor gets a statement of its own, not one from the cache
+        verify(connection).prepareStatement(argThat(sql -> sql.contains("WHERE isDuplicate=0")));
+        verify(conn, never()).prepareReadStatement(anyString());
+        verify(preparedStatement).setFetchSize(50);
+        verify(resultSet).close();
+        verify(preparedStatement).close();
+    }
+
+    @Test
+    public void readOnlyDoesNotCreateTable() throws SQLException {
+        JDBCDriverConnection readOnly = Mockito.mock(JDBCDriverConnection.class);
+        when(readOnly.tableExists("txnHistory")).thenReturn(false);
+        when(readOnly.isReadOnly()).thenReturn(true);
+        new TxnHistory(readOnly);
+
+        verify(readOnly, never()).getConnection();
+    }
+
+    @Test
+    public void writerCreatesMissingTable() throws SQLException {
+        when(conn.tableExists("txnHistory")).thenReturn(false);
+        Statement statement = Mockito.mock(Statement.class);
+        when(connection.createStatement()).thenReturn(statement);
+        new TxnHistory(conn);
+
+        verify(statement).execute(argThat(sql -> sql.startsWith("CREATE TABLE txnHistory")));
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        conn = Mockito.mock(JDBCDriverConnection.class);
+        when(conn.tableExists("txnHistory")).thenReturn(true);
+        connection = Mockito.mock(Connection.class);
+        when(connection.getAutoCommit()).thenReturn(true);
+        preparedStatement = Mockito.mock(PreparedStatement.class);
+        when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+        when(conn.getConnection()).thenReturn(connection);
+        when(conn.getReadConnection()).thenReturn(connection);
+        when(conn.prepareStatement(anyString())).thenReturn(preparedStatement);
+        when(conn.prepareReadStatement(anyString())).thenReturn(preparedStatement);
+        txnHistory = new TxnHistory(conn);
+    }
+}
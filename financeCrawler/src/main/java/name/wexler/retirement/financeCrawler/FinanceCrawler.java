@@ -1,6 +1,10 @@
 package name.wexler.retirement.financeCrawler;
 
 import name.wexler.retirement.datastore.*;
+import name.wexler.retirement.jdbcDrivers.generic.OpenProfile;
+
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * Hello world!
@@ -8,20 +12,30 @@ import name.wexler.retirement.datastore.*;
  */
 public class FinanceCrawler
 {
+    /**
+     * Argument that opens the datastore with OpenProfile.BULK_LOAD, for re-importing into a database that can be
+     * restored from a backup if the machine goes down mid-import.  Regular crawls write the live ledger, so they
+     * keep the default fsync on commit.
+     */
+    public static final String reimportFlag = "--reimport";
+    /**
+     * Argument that refreshes ticker history from Yahoo Finance before the other crawls.
+     */
+    public static final String tickersFlag = "--tickers";
+
     public static void main( String[] args ) {
-        DataStore ds = new DataStore();
+        List<String> argList = Arrays.asList(args);
+        boolean reimport = argList.contains(reimportFlag);
+        DataStore ds = new DataStore(reimport ? OpenProfile.BULK_LOAD : OpenProfile.DEFAULT);
         TickerHistory tickerHistory = ds.getTickerHistory();
         TxnHistory txnHistory = ds.getTxnHistory();
         Budgets budgets = ds.getBudgets();
         AccountTable accountTable = ds.getAccountTable();
         PositionHistory positionHistory = ds.getPositionHistory();
 
-        if (false) {
-            tickerHistory.getTickers().forEach((ticker, lastDate) -> {
-                System.out.println("Crawling " + ticker + " for post " + lastDate);
-                YahooFinanceCrawler yahooFinanceCrawler = new YahooFinanceCrawler(tickerHistory, ticker, lastDate);
-                yahooFinanceCrawler.crawl();
-            });
+        if (argList.contains(tickersFlag)) {
+            TickerCrawlScheduler tickerCrawlScheduler = new TickerCrawlScheduler(tickerHistory);
+            tickerCrawlScheduler.crawl(tickerHistory.getTickers());
         }
         // CitibankCrawler citiCrawler = new CitibankCrawler()
         if (true) {
@@ -0,0 +1,58 @@
+package name.wexler.retirement.financeCrawler;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket per host.  Each host starts with a full bucket of burst tokens, which refill at
+ * requestsPerSecond.  acquire() takes a token, waiting for one to refill if the bucket is empty.
+ */
+public class HostRateLimiter {
+    private final double requestsPerSecond;
+    private final int burst;
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    static class TokenBucket {
+        private final double tokensPerNano;
+        private final double capacity;
+        private double tokens;
+        private long lastRefill;
+
+        TokenBucket(double requestsPerSecond, int burst, long now) {
+            this.tokensPerNano = requestsPerSecond / TimeUnit.SECONDS.toNanos(1);
+            this.capacity = burst;
+            this.tokens = burst;
+            this.lastRefill = now;
+        }
+
+        /**
+         * Take a token.
+         *
+         * @return nanoseconds the caller must wait before using it, 0 if one was available
+         */
+        synchronized long reserve(long now) {
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+            lastRefill = now;
+            tokens -= 1;
+            if (tokens >= 0)
+                return 0;
+            return (long) Math.ceil(-tokens / tokensPerNano);
+        }
+    }
+
+    public HostRateLimiter(double requestsPerSecond, int burst) {
+        if (requestsPerSecond <= 0 || burst < 1)
+            throw new IllegalArgumentException("requestsPerSecond and burst must be positive");
+        this.requestsPerSecond = requestsPerSecond;
+        this.burst = burst;
+    }
+
+    public void acquire(String host) throws InterruptedException {
+        long now = System.nanoTime();
+        TokenBucket bucket = buckets.computeIfAbsent(host, h -> new TokenBucket(requestsPerSecond, burst, now));
+        long waitNanos = bucket.reserve(now);
+        if (waitNanos > 0)
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+    }
+}
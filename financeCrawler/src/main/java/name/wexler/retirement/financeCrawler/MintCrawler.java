@@ -132,6 +132,7 @@ public class MintCrawler {
             };
     private void processTxnListJSON(JSONArray txnList, String cmd) {
         System.out.println("Processing download file for '" + cmd + "'");
+        List<Map<String, Object>> txns = new ArrayList<>(txnList.size());
         txnList.forEach((txn) -> {
             Map<String, Object> fieldNameVals = new HashMap<>();
             for (Object key: ((JSONObject) txn).keySet()) {
@@ -143,8 +144,9 @@ public class MintCrawler {
             }
             fieldNameVals.put(TxnHistory.txnId, fieldNameVals.get("id").toString());
             fieldNameVals.put(TxnHistory.source, mintSource);
-            txnHistory.insertRow(fieldNameVals);
+            txns.add(fieldNameVals);
         });
+        txnHistory.insertRows(txns);
     }
 
     private void processBudgetsJSON(JSONObject budgetEntries, String cmd) {
@@ -122,6 +122,7 @@ public class OFXCrawler {
     private void processTransactions(InvestmentStatementResponse response, String accountId, Date statementDate) {
         InvestmentTransactionList investmentTransactionList = response.getInvestmentTransactionList();
         List<BaseInvestmentTransaction> investmentTxns = investmentTransactionList.getInvestmentTransactions();
+        List<Map<String, Object>> lines = new ArrayList<>();
         if (investmentTxns != null)
             for (BaseInvestmentTransaction txn : investmentTxns) {
                 Map<String, Object> line = new HashMap<>();
@@ -246,7 +247,7 @@ public class OFXCrawler {
                     System.err.println("Can't process txnType: " + txnType);
                 }
                 line.put(TxnHistory.source, ofx);
-                txnHistory.insertRow(line);
+                lines.add(line);
             }
         List<InvestmentBankTransaction> investmentBankTxns = investmentTransactionList.getBankTransactions();
         if (investmentBankTxns != null)
@@ -288,8 +289,9 @@ public class OFXCrawler {
                 line.put("isTransfer", false);
                 line.put(TxnHistory.source, ofx);
                 line.put("category", "Investment");
-                txnHistory.insertRow(line);
+                lines.add(line);
             }
+        txnHistory.insertRows(lines);
     }
 
     private Long getMaturityDateFromMemo(String memo) {
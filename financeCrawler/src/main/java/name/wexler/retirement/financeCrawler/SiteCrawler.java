@@ -14,19 +14,38 @@ import java.util.stream.Collectors;
 abstract public class SiteCrawler {
     private static final String SET_COOKIE_HEADER = "set-cookie";
     private final Queue<URL> queue = new LinkedBlockingQueue<>();
-    private final ExecutorService executorService;
     private final CookieManager cookieManager;
 
 
     public SiteCrawler() {
         CookieStore cookieStore = new NonexpiringCookieStore();
         cookieManager = new java.net.CookieManager(cookieStore, CookiePolicy.ACCEPT_ORIGINAL_SERVER);
-        executorService = getExecutorService();
     }
 
     abstract public ExecutorService getExecutorService();
     abstract public void processResponse(URL url, String contents, Map<String, List<String>> headers);
 
+    /**
+     * @return limiter to throttle requests per host, or null to send requests as fast as the executor runs them
+     */
+    public HostRateLimiter getRateLimiter() {
+        return null;
+    }
+
+    /**
+     * Called when a request fails with a 404.
+     */
+    public void processNotFound(URL url) {
+        System.out.println("Not found: " + url);
+    }
+
+    /**
+     * Called when a request fails with an exception other than a 404.
+     */
+    public void processError(URL url, Exception e) {
+        System.out.println("Caught exception: " + e);
+    }
+
     public void crawlURL(URL url) {
         invokeURL(url, "GET", "");
     }
@@ -37,6 +56,9 @@ abstract public class SiteCrawler {
 
     private void invokeURL(URL url, String method, String content) {
         Callable<String> callableTask = () -> {
+            HostRateLimiter rateLimiter = getRateLimiter();
+            if (rateLimiter != null)
+                rateLimiter.acquire(url.getHost());
             System.out.println("Sending request to " + url);
             HttpURLConnection conn = (HttpURLConnection) url.openConnection();
             conn.setRequestMethod(method);
@@ -58,17 +80,26 @@ abstract public class SiteCrawler {
                 BufferedInputStream reader = new BufferedInputStream(is);
                 BufferedReader buffer = new BufferedReader(new InputStreamReader(is));
                 String contents = buffer.lines().collect(Collectors.joining("\n"));
-                processResponse(url, contents, conn.getHeaderFields());
                 Map<String, List<String>> headerFields = conn.getHeaderFields();
 
+                // Before processResponse, since it may queue requests that need these cookies and the
+                // executor may run them right away
                 cookieManager.put(url.toURI(), headerFields);
+                processResponse(url, contents, headerFields);
                 reader.close();
             } catch (FileNotFoundException fnfe) {
-                System.out.println("Caught exception: " + fnfe);
+                processNotFound(url);
             }
 
             return method + url;
         };
-        executorService.submit(callableTask);
+        getExecutorService().submit(() -> {
+            try {
+                return callableTask.call();
+            } catch (Exception e) {
+                processError(url, e);
+                throw e;
+            }
+        });
     }
 }
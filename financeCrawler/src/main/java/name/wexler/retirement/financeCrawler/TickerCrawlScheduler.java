@@ -0,0 +1,127 @@
+package name.wexler.retirement.financeCrawler;
+
+import name.wexler.retirement.datastore.TickerHistory;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.function.Function;
+
+/**
+ * Refreshes ticker history from Yahoo Finance using a pool of workers.  Requests are throttled
+ * per host, each ticker only fetches the days after the last one stored for it, and tickers
+ * that fail are retried with exponential backoff.
+ */
+public class TickerCrawlScheduler {
+    public static final int defaultWorkers = 4;
+    public static final double defaultRequestsPerSecond = 1.0;
+    public static final int defaultBurst = 4;
+    public static final int defaultMaxAttempts = 3;
+    private static final long defaultInitialBackoffMillis = 5000;
+    private static final long crawlTimeoutSeconds = 120;
+
+    /**
+     * One attempt at downloading one ticker's history.
+     */
+    interface TickerCrawler {
+        /**
+         * @return completes with true once the download has been stored, false or exceptionally if it wasn't
+         */
+        CompletableFuture<Boolean> crawl();
+    }
+
+    interface CrawlerFactory {
+        TickerCrawler create(String ticker, LocalDate lastDate, ExecutorService executorService);
+    }
+
+    private final int workers;
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final Function<String, LocalDate> lastStoredDate;
+    private final CrawlerFactory crawlerFactory;
+
+    public TickerCrawlScheduler(TickerHistory tickerHistory) {
+        this(tickerHistory, defaultWorkers, new HostRateLimiter(defaultRequestsPerSecond, defaultBurst), defaultMaxAttempts);
+    }
+
+    public TickerCrawlScheduler(TickerHistory tickerHistory, int workers, HostRateLimiter rateLimiter, int maxAttempts) {
+        this(workers, maxAttempts, defaultInitialBackoffMillis, tickerHistory::getLastDate,
+                (ticker, lastDate, executorService) ->
+                        new YahooFinanceCrawler(tickerHistory, ticker, lastDate, executorService, rateLimiter));
+    }
+
+    /**
+     * @param lastStoredDate last date stored for a ticker, or null if there's nothing stored for it
+     * @param crawlerFactory makes the crawler for each attempt
+     */
+    TickerCrawlScheduler(int workers, int maxAttempts, long initialBackoffMillis,
+                         Function<String, LocalDate> lastStoredDate, CrawlerFactory crawlerFactory) {
+        this.workers = workers;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.lastStoredDate = lastStoredDate;
+        this.crawlerFactory = crawlerFactory;
+    }
+
+    /**
+     * Crawl every ticker that isn't already current and wait for them all to finish.
+     *
+     * @param checkpoints last stored date for each ticker
+     * @return tickers that still failed after the last retry
+     */
+    public List<String> crawl(Map<String, LocalDate> checkpoints) {
+        ExecutorService executorService = Executors.newFixedThreadPool(workers);
+        List<String> failed = new CopyOnWriteArrayList<>();
+        List<CompletableFuture<Void>> crawls = new ArrayList<>();
+        LocalDate today = LocalDate.now();
+        try {
+            checkpoints.forEach((ticker, lastDate) -> {
+                if (!lastDate.isBefore(today))
+                    return;
+                System.out.println("Crawling " + ticker + " for post " + lastDate);
+                crawls.add(crawlTicker(executorService, ticker, lastDate, 1)
+                        .thenAccept(ok -> {
+                            if (!ok)
+                                failed.add(ticker);
+                        }));
+            });
+            CompletableFuture.allOf(crawls.toArray(new CompletableFuture[0])).join();
+        } finally {
+            executorService.shutdown();
+        }
+        if (!failed.isEmpty())
+            System.out.println("Couldn't crawl " + failed);
+        return failed;
+    }
+
+    private CompletableFuture<Boolean> crawlTicker(ExecutorService executorService, String ticker, LocalDate lastDate,
+                                                   int attempt) {
+        TickerCrawler crawler = crawlerFactory.create(ticker, lastDate, executorService);
+        return crawler.crawl()
+                .orTimeout(crawlTimeoutSeconds, TimeUnit.SECONDS)
+                .handle((ok, e) -> e == null && ok)
+                .thenCompose(ok -> {
+                    if (ok)
+                        return CompletableFuture.completedFuture(true);
+                    if (attempt >= maxAttempts)
+                        return CompletableFuture.completedFuture(false);
+                    long backoff = initialBackoffMillis << (attempt - 1);
+                    System.out.println("Retrying " + ticker + " in " + backoff + "ms");
+                    Executor delayed = CompletableFuture.delayedExecutor(backoff, TimeUnit.MILLISECONDS, executorService);
+                    return CompletableFuture.supplyAsync(() -> checkpoint(ticker, lastDate), delayed)
+                            .thenCompose(checkpoint -> crawlTicker(executorService, ticker, checkpoint, attempt + 1));
+                });
+    }
+
+    /**
+     * A failed attempt may have stored part of its download, so resume after whatever made it in.
+     */
+    private LocalDate checkpoint(String ticker, LocalDate lastDate) {
+        LocalDate stored = lastStoredDate.apply(ticker);
+        if (stored == null || stored.isBefore(lastDate))
+            return lastDate;
+        return stored;
+    }
+}
@@ -7,35 +7,44 @@ import java.net.URL;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-public class YahooFinanceCrawler extends SiteCrawler {
+public class YahooFinanceCrawler extends SiteCrawler implements TickerCrawlScheduler.TickerCrawler {
     private static final String yahooFinanceBaseURL = "https://finance.yahoo.com/";
     private static final String yahooQueryBaseURL = "https://query1.finance.yahoo.com/v7/finance/download/";
-    private static final int minSleepMilliseconds = 2000;
-    private static final int sleepMillisecondsBound = 3000;
     private long periodStart;
     private final long periodEnd = (System.currentTimeMillis() / 1000L);
-    private Random random = new Random();
     private final String ticker;
-    private static final ExecutorService executorService = Executors.newSingleThreadExecutor();
+    private final ExecutorService executorService;
+    private final HostRateLimiter rateLimiter;
+    private final CompletableFuture<Boolean> result = new CompletableFuture<>();
     private boolean writeHeader = false;
     private TickerHistory tickerHistory;
 
-    YahooFinanceCrawler(TickerHistory tickerHistory, String ticker, LocalDate lastDate) {
+    YahooFinanceCrawler(TickerHistory tickerHistory, String ticker, LocalDate lastDate,
+                        ExecutorService executorService, HostRateLimiter rateLimiter) {
         super();
         this.tickerHistory = tickerHistory;
         this.ticker = ticker;
+        this.executorService = executorService;
+        this.rateLimiter = rateLimiter;
         this.periodStart = lastDate.plusDays(1).atStartOfDay(ZoneId.systemDefault()).toEpochSecond();
     }
 
 
-    public void crawl() {
+    /**
+     * Start crawling.
+     *
+     * @return completes with true once the download has been stored, false if Yahoo didn't give us
+     * a crumb to download with or doesn't know the ticker, or exceptionally if a request failed
+     */
+    @Override
+    public CompletableFuture<Boolean> crawl() {
         crawlURL(tickerToURL(ticker));
+        return result;
     }
 
     @Override
@@ -43,17 +52,30 @@ public class YahooFinanceCrawler extends SiteCrawler {
         return executorService;
     }
 
+    @Override
+    public HostRateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    @Override
+    public void processError(URL url, Exception e) {
+        super.processError(url, e);
+        result.completeExceptionally(e);
+    }
+
+    @Override
+    public void processNotFound(URL url) {
+        super.processNotFound(url);
+        result.complete(false);
+    }
+
     @Override
     public void processResponse(URL url, String content, Map<String, List<String>> headers) {
         if (url.toString().contains("/history?p=")) {
             processHistoryPage(url, content, headers);
         } else if (url.toString().contains("/v7/finance/download/")) {
             processDownloadFile(url, content, headers);
-        }
-        try {
-            TimeUnit.MILLISECONDS.sleep(minSleepMilliseconds + random.nextInt(sleepMillisecondsBound));
-        } catch (InterruptedException ie) {
-            // do nothing
+            result.complete(true);
         }
     }
 
@@ -105,6 +127,8 @@ public class YahooFinanceCrawler extends SiteCrawler {
             // https://query1.finance.yahoo.com/v7/finance/download/TWST?period1=1544321863&period2=1547000263&interval=1d&events=history&crumb=p1nTbKrcUvc
             URL downloadURL = getDownloadURL(ticker, periodStart, periodEnd, interval, event, crumb);
             crawlURL(downloadURL);
+        } else {
+            result.complete(false);
         }
     }
 
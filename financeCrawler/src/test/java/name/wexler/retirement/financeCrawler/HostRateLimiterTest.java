@@ -0,0 +1,36 @@
+package name.wexler.retirement.financeCrawler;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class HostRateLimiterTest {
+
+    @Test
+    public void reserve() {
+        long start = 0;
+        HostRateLimiter.TokenBucket bucket = new HostRateLimiter.TokenBucket(2.0, 2, start);
+        assertEquals(0, bucket.reserve(start));
+        assertEquals(0, bucket.reserve(start));
+        // Bucket is empty; the next token refills in half a second at 2 requests/second
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(500), bucket.reserve(start));
+        // A second later the debt is paid off and one more token has refilled
+        assertEquals(0, bucket.reserve(start + TimeUnit.SECONDS.toNanos(1)));
+    }
+
+    @Test
+    public void acquirePerHost() throws InterruptedException {
+        HostRateLimiter limiter = new HostRateLimiter(1.0, 1);
+        long start = System.nanoTime();
+        limiter.acquire("finance.yahoo.com");
+        limiter.acquire("query1.finance.yahoo.com");
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(500));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidRate() {
+        new HostRateLimiter(0, 1);
+    }
+}
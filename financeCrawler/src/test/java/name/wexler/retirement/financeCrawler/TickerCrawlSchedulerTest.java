@@ -0,0 +1,117 @@
+package name.wexler.retirement.financeCrawler;
+
+import org.junit.Test;
+
+import java.net.URL;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.Assert.*;
+
+public class TickerCrawlSchedulerTest {
+    private static final LocalDate lastMonth = LocalDate.now().minusMonths(1);
+    private static final LocalDate lastWeek = LocalDate.now().minusWeeks(1);
+
+    // What's stored for each ticker, as TickerHistory.getLastDate would find it
+    private final Map<String, LocalDate> stored = new ConcurrentHashMap<>();
+    // The last date each attempt was asked to crawl after, in order
+    private final List<LocalDate> attempts = Collections.synchronizedList(new ArrayList<>());
+
+    /**
+     * Fails its first failures attempts, storing through storeOnFailure if that's set, then succeeds.
+     */
+    private class FakeCrawler extends SiteCrawler implements TickerCrawlScheduler.TickerCrawler {
+        private final String ticker;
+        private final LocalDate lastDate;
+        private final ExecutorService executorService;
+        private final int failures;
+        private final LocalDate storeOnFailure;
+
+        FakeCrawler(String ticker, LocalDate lastDate, ExecutorService executorService, int failures,
+                    LocalDate storeOnFailure) {
+            this.ticker = ticker;
+            this.lastDate = lastDate;
+            this.executorService = executorService;
+            this.failures = failures;
+            this.storeOnFailure = storeOnFailure;
+        }
+
+        @Override
+        public CompletableFuture<Boolean> crawl() {
+            int attempt;
+            synchronized (attempts) {
+                attempts.add(lastDate);
+                attempt = attempts.size();
+            }
+            return CompletableFuture.supplyAsync(() -> {
+                if (attempt > failures)
+                    return true;
+                if (storeOnFailure != null)
+                    stored.put(ticker, storeOnFailure);
+                if (attempt % 2 == 0)
+                    throw new IllegalStateException("Connection reset");
+                return false;
+            }, executorService);
+        }
+
+        @Override
+        public ExecutorService getExecutorService() {
+            return executorService;
+        }
+
+        @Override
+        public void processResponse(URL url, String contents, Map<String, List<String>> headers) {
+        }
+    }
+
+    private TickerCrawlScheduler scheduler(int maxAttempts, int failures, LocalDate storeOnFailure) {
+        return new TickerCrawlScheduler(2, maxAttempts, 1, stored::get,
+                (ticker, lastDate, executorService) ->
+                        new FakeCrawler(ticker, lastDate, executorService, failures, storeOnFailure));
+    }
+
+    @Test
+    public void retriesUntilCrawlSucceeds() {
+        List<String> failed = scheduler(3, 2, null).crawl(Map.of("VTI", lastMonth));
+
+        assertEquals(Collections.emptyList(), failed);
+        assertEquals(Arrays.asList(lastMonth, lastMonth, lastMonth), attempts);
+    }
+
+    @Test
+    public void givesUpAfterMaxAttempts() {
+        List<String> failed = scheduler(3, 5, null).crawl(Map.of("VTI", lastMonth));
+
+        assertEquals(Collections.singletonList("VTI"), failed);
+        assertEquals(3, attempts.size());
+    }
+
+    @Test
+    public void resumesFromCheckpoint() {
+        // The failed attempt stored everything up to last week before it went wrong
+        List<String> failed = scheduler(3, 1, lastWeek).crawl(Map.of("VTI", lastMonth));
+
+        assertEquals(Collections.emptyList(), failed);
+        assertEquals(Arrays.asList(lastMonth, lastWeek), attempts);
+    }
+
+    @Test
+    public void ignoresCheckpointBeforeLastDate() {
+        stored.put("VTI", lastMonth.minusMonths(1));
+        List<String> failed = scheduler(3, 1, null).crawl(Map.of("VTI", lastMonth));
+
+        assertEquals(Collections.emptyList(), failed);
+        assertEquals(Arrays.asList(lastMonth, lastMonth), attempts);
+    }
+
+    @Test
+    public void skipsCurrentTickers() {
+        List<String> failed = scheduler(3, 0, null).crawl(Map.of("VTI", LocalDate.now()));
+
+        assertEquals(Collections.emptyList(), failed);
+        assertTrue(attempts.isEmpty());
+    }
+}
@@ -1,20 +1,41 @@
 package name.wexler.retirement.jdbcDrivers.generic;
 
+import name.wexler.retirement.jdbcDrivers.sqlite.PooledSQLiteJDBCDriverConnection;
 import name.wexler.retirement.jdbcDrivers.sqlite.SQLiteJDBCDriverConnection;
+import name.wexler.retirement.jdbcDrivers.sqlite.SQLiteOpenProfile;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 public abstract class JDBCDriverConnection {
+    public static final int statementCacheSize = 64;
+    // A thread's cached statements are closed if it hasn't prepared one for this long
+    public static final long statementIdleMillis = 5 * 60 * 1000;
     Connection conn;
+    private final ThreadLocal<StatementCache> writeStatements =
+            ThreadLocal.withInitial(() -> new StatementCache(statementCacheSize, statementIdleMillis));
+    private final ThreadLocal<StatementCache> readStatements =
+            ThreadLocal.withInitial(() -> new StatementCache(statementCacheSize, statementIdleMillis));
+    // Bumped by releaseStatements; every thread's cache closes its statements when it next sees a new value
+    private final AtomicLong statementGeneration = new AtomicLong();
 
     protected JDBCDriverConnection() {
 
     }
 
     public static JDBCDriverConnection driverFactory(String type, String database) {
+        return driverFactory(type, database, OpenProfile.DEFAULT);
+    }
+
+    public static JDBCDriverConnection driverFactory(String type, String database, OpenProfile profile) {
         if (type.equals("sqlite")) {
-            return new SQLiteJDBCDriverConnection(database);
+            return new PooledSQLiteJDBCDriverConnection(database, SQLiteOpenProfile.forProfile(profile));
+        }
+        if (type.equals("sqlite-single")) {
+            return new SQLiteJDBCDriverConnection(database, SQLiteOpenProfile.forProfile(profile));
         }
         throw new NoClassDefFoundError("Can't find driver for " + type);
     }
@@ -23,9 +44,74 @@ public abstract class JDBCDriverConnection {
         return conn;
     }
 
+    /**
+     * Connection to use for queries that don't modify the database.  Drivers that can serve
+     * concurrent readers override this; by default reads share the writer connection.
+     */
+    public Connection getReadConnection() {
+        return getConnection();
+    }
+
+    /**
+     * Prepared statement on the writer connection, reused across calls with the same SQL.
+     * The statement belongs to the cache: callers close their ResultSets but not the statement.
+     */
+    public PreparedStatement prepareStatement(String sql) throws SQLException {
+        return writeStatements.get().prepare(getConnection(), sql, statementGeneration.get());
+    }
+
+    /**
+     * Like prepareStatement, but on this thread's read connection.
+     */
+    public PreparedStatement prepareReadStatement(String sql) throws SQLException {
+        return readStatements.get().prepare(getReadConnection(), sql, statementGeneration.get());
+    }
+
+    /**
+     * Close the calling thread's cached statements now, and every other thread's the next time it prepares
+     * one.  Statements already handed out, and their ResultSets, can't be used afterwards.
+     */
+    public void releaseStatements() {
+        statementGeneration.incrementAndGet();
+        writeStatements.get().closeAll();
+        writeStatements.remove();
+        readStatements.get().closeAll();
+        readStatements.remove();
+    }
+
+    /**
+     * Close the calling thread's cached statements and the database connections, which closes every other
+     * thread's statements too.  The connection can't be used afterwards.
+     */
+    public void close() {
+        releaseStatements();
+        if (conn == null)
+            return;
+        try {
+            conn.close();
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
     protected void  setConnection(Connection conn) {
         this.conn = conn;
     }
 
     public abstract boolean tableExists(String tableName);
+
+    /**
+     * @return true if the connection rejects writes, so callers know not to create tables or migrate
+     */
+    public boolean isReadOnly() {
+        return false;
+    }
+
+    /**
+     * @return a number that changes whenever another connection, in this process or another, commits a change;
+     * drivers that can't tell always return 0
+     */
+    public long getDataVersion() {
+        return 0;
+    }
 }
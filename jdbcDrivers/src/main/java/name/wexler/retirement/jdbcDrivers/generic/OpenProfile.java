@@ -0,0 +1,15 @@
+package name.wexler.retirement.jdbcDrivers.generic;
+
+/**
+ * How a database is going to be used, so the driver can tune how it opens its connections.
+ *
+ * @author Mike Wexler
+ */
+public enum OpenProfile {
+    /** Mixed reads and occasional writes. */
+    DEFAULT,
+    /** Page loads and other query-only use; writes are rejected. */
+    READ_ONLY,
+    /** Large imports where write throughput matters more than durability of the last few commits. */
+    BULK_LOAD
+}
@@ -0,0 +1,77 @@
+package name.wexler.retirement.jdbcDrivers.generic;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Least recently used prepared statements, keyed by SQL text.  Statements pushed out of the
+ * cache are closed.  The whole cache is closed when it's asked for a statement of a newer generation
+ * than the one it holds, or after it has gone unused for idleMillis, so statements on threads that
+ * rarely query don't stay open indefinitely.  Not thread safe; JDBCDriverConnection keeps one per thread.
+ *
+ * @author Mike Wexler
+ */
+class StatementCache extends LinkedHashMap<String, PreparedStatement> {
+    private final int capacity;
+    private final long idleMillis;
+    private long generation = 0;
+    private long lastUsed = System.currentTimeMillis();
+
+    StatementCache(int capacity, long idleMillis) {
+        super(16, 0.75f, true);
+        this.capacity = capacity;
+        this.idleMillis = idleMillis;
+    }
+
+    /**
+     * @param generation the connection's current statement generation; statements from earlier ones are closed
+     * @return a cached statement for sql on connection, preparing it if there isn't a usable one
+     */
+    PreparedStatement prepare(Connection connection, String sql, long generation) throws SQLException {
+        long now = System.currentTimeMillis();
+        if (generation != this.generation || now - lastUsed > idleMillis) {
+            closeAll();
+            this.generation = generation;
+        }
+        lastUsed = now;
+        PreparedStatement pstmt = get(sql);
+        if (pstmt != null) {
+            if (!pstmt.isClosed() && pstmt.getConnection() == connection) {
+                pstmt.clearParameters();
+                return pstmt;
+            }
+            remove(sql);
+            close(pstmt);
+        }
+        pstmt = connection.prepareStatement(sql);
+        put(sql, pstmt);
+        return pstmt;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+        if (size() <= capacity)
+            return false;
+        close(eldest.getValue());
+        return true;
+    }
+
+    /**
+     * Close and forget every statement.
+     */
+    void closeAll() {
+        values().forEach(StatementCache::close);
+        clear();
+    }
+
+    private static void close(PreparedStatement pstmt) {
+        try {
+            pstmt.close();
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package name.wexler.retirement.jdbcDrivers.sqlite;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * SQLite connection with one writer and a bounded pool of read-only connections.
+ *
+ * With the WAL journal mode the default profiles use, readers see a consistent snapshot and
+ * neither block nor are blocked by the writer.  Readers aren't checked out and back in, since callers
+ * hand back ResultSets and cached statements that have to outlive the call; instead each thread is bound
+ * to one reader the first time it asks for one and keeps it.  There is a reader per processor by default,
+ * so as many threads as can actually run at once each get their own.  Once more threads than that have
+ * read, threads share readers round robin: the SQLite driver serializes calls on a single connection, so
+ * sharing is safe, but threads sharing a reader take turns on it.  Size readerCount to the threads that
+ * read concurrently if that matters.
+ *
+ * If a reader can't be opened, reads fall back to the writer from then on, and the failure is logged once.
+ *
+ * @author Mike Wexler
+ */
+public class PooledSQLiteJDBCDriverConnection extends SQLiteJDBCDriverConnection {
+    public static final int defaultReaders = Math.max(4, Runtime.getRuntime().availableProcessors());
+
+    private final String url;
+    private final AtomicReferenceArray<Connection> readers;
+    private final AtomicInteger nextReader = new AtomicInteger();
+    private final ThreadLocal<Integer> readerIndex =
+            ThreadLocal.withInitial(() -> Math.floorMod(nextReader.getAndIncrement(), readerCount()));
+    // Set once opening a reader failed or the connection was closed; reads use the writer from then on
+    private volatile boolean readersUnavailable = false;
+
+    public PooledSQLiteJDBCDriverConnection(String database) {
+        this(database, SQLiteOpenProfile.DEFAULT, defaultReaders);
+    }
+
+    public PooledSQLiteJDBCDriverConnection(String database, SQLiteOpenProfile profile) {
+        this(database, profile, defaultReaders);
+    }
+
+    public PooledSQLiteJDBCDriverConnection(String database, SQLiteOpenProfile profile, int readerCount) {
+        super(database, profile);
+        if (readerCount < 1)
+            throw new IllegalArgumentException("readerCount must be positive: " + readerCount);
+        url = _getDatabaseURL(database);
+        readers = new AtomicReferenceArray<>(readerCount);
+    }
+
+    private int readerCount() {
+        return readers.length();
+    }
+
+    @Override
+    public Connection getReadConnection() {
+        if (readersUnavailable)
+            return getConnection();
+        int index = readerIndex.get();
+        Connection reader = readers.get(index);
+        if (reader != null)
+            return reader;
+        synchronized (readers) {
+            if (readersUnavailable)
+                return getConnection();
+            reader = readers.get(index);
+            if (reader == null) {
+                try {
+                    reader = DriverManager.getConnection(url, getProfile().toReaderConfig().toProperties());
+                    readers.set(index, reader);
+                } catch (SQLException e) {
+                    System.err.println("Can't open a reader on " + url + ", reads will share the writer: " +
+                            e.getMessage());
+                    readersUnavailable = true;
+                    return getConnection();
+                }
+            }
+        }
+        return reader;
+    }
+
+    /**
+     * Close the readers, then the writer.
+     */
+    @Override
+    public void close() {
+        synchronized (readers) {
+            readersUnavailable = true;
+            for (int i = 0; i < readers.length(); ++i) {
+                Connection reader = readers.getAndSet(i, null);
+                if (reader == null)
+                    continue;
+                try {
+                    reader.close();
+                } catch (SQLException e) {
+                    System.out.println(e.getMessage());
+                }
+            }
+        }
+        super.close();
+    }
+}
@@ -12,11 +12,18 @@ import org.sqlite.JDBC;
  * @author Mike Wexler
  */
 public class SQLiteJDBCDriverConnection extends JDBCDriverConnection {
+    private final SQLiteOpenProfile profile;
+
     public SQLiteJDBCDriverConnection(String database) {
+        this(database, SQLiteOpenProfile.DEFAULT);
+    }
+
+    public SQLiteJDBCDriverConnection(String database, SQLiteOpenProfile profile) {
         String url = _getDatabaseURL(database);
+        this.profile = profile;
 
         try {
-            Connection conn = DriverManager.getConnection(url);
+            Connection conn = DriverManager.getConnection(url, profile.toConfig().toProperties());
             this.setConnection(conn);
             System.out.println("Connection to SQLite has been established.");
 
@@ -27,6 +34,14 @@ public class SQLiteJDBCDriverConnection extends JDBCDriverConnection {
 
 
 
+    public SQLiteOpenProfile getProfile() {
+        return profile;
+    }
+
+    @Override public boolean isReadOnly() {
+        return profile.isReadOnly();
+    }
+
     @Override public boolean tableExists(String tableName) {
         try {
             DatabaseMetaData md = getConnection().getMetaData();
@@ -39,8 +54,18 @@ public class SQLiteJDBCDriverConnection extends JDBCDriverConnection {
         return false;
     }
 
+    @Override public long getDataVersion() {
+        try (Statement statement = getConnection().createStatement();
+             ResultSet rs = statement.executeQuery("PRAGMA data_version")) {
+            return rs.next() ? rs.getLong(1) : 0;
+        } catch (SQLException se) {
+            System.out.println(se.getMessage());
+        }
+        return 0;
+    }
+
 
-    private String _getDatabaseURL(String database) {
+    protected String _getDatabaseURL(String database) {
         String userHome = System.getProperty("user.home");
         String resourceDir = userHome + "/.retirement/history";
         String url = "jdbc:sqlite:" + resourceDir + "/"  + database + ".db";
@@ -0,0 +1,125 @@
+package name.wexler.retirement.jdbcDrivers.sqlite;
+
+import name.wexler.retirement.jdbcDrivers.generic.OpenProfile;
+import org.sqlite.SQLiteConfig;
+
+/**
+ * Pragmas applied when opening a SQLite connection.
+ *
+ * @author Mike Wexler
+ */
+public class SQLiteOpenProfile {
+    private static final long megabyte = 1024L * 1024L;
+
+    /** WAL, synchronous=NORMAL, 64MB cache, 256MB of memory-mapped reads. */
+    public static final SQLiteOpenProfile DEFAULT = new SQLiteOpenProfile(
+            false,
+            SQLiteConfig.JournalMode.WAL,
+            SQLiteConfig.SynchronousMode.NORMAL,
+            256 * megabyte,
+            -64 * 1024,
+            SQLiteConfig.TempStore.MEMORY,
+            5000);
+
+    /**
+     * Query only.  Leaves the journal mode alone since changing it needs a write, and maps more
+     * of the file so cold reads come straight from the page cache.
+     */
+    public static final SQLiteOpenProfile READ_ONLY = new SQLiteOpenProfile(
+            true,
+            null,
+            SQLiteConfig.SynchronousMode.NORMAL,
+            1024 * megabyte,
+            -64 * 1024,
+            SQLiteConfig.TempStore.MEMORY,
+            5000);
+
+    /**
+     * Imports.  Skips the fsync on each commit and uses a larger cache.  If the application crashes
+     * the database is intact, but an OS crash or power loss can lose recent commits or corrupt the
+     * database, so only use it for imports that can be rerun from a backup.
+     */
+    public static final SQLiteOpenProfile BULK_LOAD = new SQLiteOpenProfile(
+            false,
+            SQLiteConfig.JournalMode.WAL,
+            SQLiteConfig.SynchronousMode.OFF,
+            256 * megabyte,
+            -256 * 1024,
+            SQLiteConfig.TempStore.MEMORY,
+            30000);
+
+    private final boolean readOnly;
+    private final SQLiteConfig.JournalMode journalMode;
+    private final SQLiteConfig.SynchronousMode synchronous;
+    private final long mmapSize;
+    private final int cacheSize;
+    private final SQLiteConfig.TempStore tempStore;
+    private final int busyTimeout;
+
+    /**
+     * @param readOnly    open the connection read-only
+     * @param journalMode journal mode, or null to keep the database's current mode
+     * @param synchronous how often to fsync
+     * @param mmapSize    bytes of the database file to memory map, 0 to disable
+     * @param cacheSize   page cache size; positive is pages, negative is KiB
+     * @param tempStore   where to keep temporary tables and indices
+     * @param busyTimeout milliseconds to wait for a lock before failing with SQLITE_BUSY
+     */
+    public SQLiteOpenProfile(boolean readOnly,
+                             SQLiteConfig.JournalMode journalMode,
+                             SQLiteConfig.SynchronousMode synchronous,
+                             long mmapSize,
+                             int cacheSize,
+                             SQLiteConfig.TempStore tempStore,
+                             int busyTimeout) {
+        this.readOnly = readOnly;
+        this.journalMode = journalMode;
+        this.synchronous = synchronous;
+        this.mmapSize = mmapSize;
+        this.cacheSize = cacheSize;
+        this.tempStore = tempStore;
+        this.busyTimeout = busyTimeout;
+    }
+
+    public static SQLiteOpenProfile forProfile(OpenProfile profile) {
+        switch (profile) {
+            case READ_ONLY:
+                return READ_ONLY;
+            case BULK_LOAD:
+                return BULK_LOAD;
+            default:
+                return DEFAULT;
+        }
+    }
+
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    /**
+     * @return configuration for the connection this profile describes
+     */
+    public SQLiteConfig toConfig() {
+        SQLiteConfig config = toReaderConfig();
+        config.setReadOnly(readOnly);
+        if (journalMode != null)
+            config.setJournalMode(journalMode);
+        return config;
+    }
+
+    /**
+     * @return the same tuning for a read-only companion connection, which never touches the journal mode
+     */
+    public SQLiteConfig toReaderConfig() {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setReadOnly(true);
+        if (synchronous != null)
+            config.setSynchronous(synchronous);
+        config.setPragma(SQLiteConfig.Pragma.MMAP_SIZE, Long.toString(mmapSize));
+        config.setCacheSize(cacheSize);
+        if (tempStore != null)
+            config.setTempStore(tempStore);
+        config.setBusyTimeout(busyTimeout);
+        return config;
+    }
+}
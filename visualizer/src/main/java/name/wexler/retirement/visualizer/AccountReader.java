@@ -2,6 +2,7 @@ package name.wexler.retirement.visualizer;
 
 import name.wexler.retirement.datastore.DataStore;
 import name.wexler.retirement.datastore.PositionHistory;
+import name.wexler.retirement.datastore.TxnHistory;
 import name.wexler.retirement.visualizer.Asset.AssetAccount;
 import name.wexler.retirement.visualizer.CashFlowInstance.*;
 import name.wexler.retirement.visualizer.CashFlowEstimator.CreditCardAccount;
@@ -32,12 +33,19 @@ public class AccountReader {
     public AccountReader() {
     }
 
+    /**
+     * Read the whole transaction history.  The pages show every year of it, and balances are walked back from
+     * today through all of it, so there's no window to narrow the query to.
+     */
     public List<CashFlowInstance> readCashFlowInstances(Context context) throws IOException {
-        List<CashFlowInstance> cashFlowInstances = null;
+        List<CashFlowInstance> cashFlowInstances = new ArrayList<>();
         DataStore ds = Retirement.getDataStore();
-        try (ResultSet rs = ds.getTxnHistory().getTransactions()) {
-            cashFlowInstances = readCashFlowInstancesFromResultSet(context, rs);
-            return cashFlowInstances;
+        try {
+            ds.getTxnHistory().forEachTransaction(row -> {
+                CashFlowInstance instance = getInstanceFromTxnRow(context, row);
+                if (instance != null)
+                    cashFlowInstances.add(instance);
+            });
         } catch (SQLException sqle) {
             System.err.println(sqle);
         }
@@ -60,14 +68,11 @@ public class AccountReader {
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
         Map<String, BigDecimal> currentBalances = new HashMap<>();
         DataStore ds = Retirement.getDataStore();
-        try (ResultSet rs = ds.getAccountTable().getAccounts()) {
-            while (rs.next()) {
-                boolean isActive = rs.getBoolean("isActive");
-                if (!isActive)
-                    continue;
+        try {
+            ds.getAccountTable().forEachAccount(true, rs -> {
                 String accountType = rs.getString("accountType");
                 if (accountType.equals("real estate") || accountType.equals("vehicle"))
-                    continue;
+                    return;
                 String accountName = rs.getString("userName");
                 if (accountName == null)
                     accountName = rs.getString("yodleeName");
@@ -88,7 +93,7 @@ public class AccountReader {
                 }
                 else if (value != null)
                     account.setRunningTotal(balanceDate, value);
-            }
+            });
         } catch (SQLException sqle) {
             throw new RuntimeException(sqle);
         }
@@ -132,23 +137,6 @@ public class AccountReader {
     }
 
 
-    private List<CashFlowInstance> readCashFlowInstancesFromResultSet (
-            @NotNull Context context,
-            @NotNull  ResultSet rs) {
-        List<CashFlowInstance> cashFlowInstances = new ArrayList<>();
-
-        try {
-            while (rs.next()) {
-                CashFlowInstance instance = getInstanceFromResultSet(context, rs);
-                if (instance != null)
-                    cashFlowInstances.add(instance);
-            }
-        } catch (SQLException sqle) {
-            System.err.println(sqle);
-        }
-        return cashFlowInstances;
-    }
-
     Map<String, String> txnTypeMap = Map.ofEntries(
             entry("0", "Debit"),
             entry("1", "Credit"),
@@ -156,38 +144,32 @@ public class AccountReader {
     );
 
     protected
-    CashFlowInstance getInstanceFromResultSet(
+    CashFlowInstance getInstanceFromTxnRow(
             Context context,
-            ResultSet rs)  {
+            TxnHistory.TxnRow row)  {
         Spending spending = context.getById(Expense.class, "spending");
         try {
-            Account account = getAccountFromAccountName(context, rs.getString("account_name"));
+            Account account = getAccountFromAccountName(context, row.getAccountName());
             if (account == null)
                 return null;
-            String txnSource = rs.getString("source");
+            String txnSource = row.getSource();
             if (!txnSource.equalsIgnoreCase(account.getTxnSource()))
                 return null;    // Skip transactions from the non-authoritative source.
 
-            String description = rs.getString("description");
+            String description = row.getDescription();
             CashFlowSource cashFlowSource = context.getById(Account.class, description);
             if (cashFlowSource == null)
                 cashFlowSource = spending;
             Job job = getJobFromDescription(context, description);
 
             CashFlowInstance instance =
-                    CashFlowCategorizationHeuristics.getInstance(context, account, spending, rs, cashFlowSource, description, job);
+                    CashFlowCategorizationHeuristics.getInstance(context, account, spending, row, cashFlowSource, description, job);
 
             return instance;
         } catch (SQLException sqle) {
             throw new RuntimeException(sqle);
         } catch (CashFlowCategorizationHeuristics.AccountNotFoundException anfe) {
-            String id = "none";
-            try {
-                id = rs.getString("id");
-            } catch (SQLException sqle) {
-                // do nothing
-            }
-            throw new RuntimeException(id, anfe);
+            throw new RuntimeException(Long.toString(row.getId()), anfe);
         }
     }
 
@@ -31,7 +31,6 @@ import name.wexler.retirement.datastore.PositionHistory;
 import name.wexler.retirement.visualizer.*;
 import name.wexler.retirement.visualizer.CashFlowInstance.Account;
 import name.wexler.retirement.visualizer.CashFlowFrequency.CashBalance;
-import name.wexler.retirement.visualizer.CashFlowFrequency.Balance;
 import name.wexler.retirement.visualizer.CashFlowInstance.CashFlowInstance;
 import name.wexler.retirement.visualizer.CashFlowInstance.SecurityTransaction;
 import name.wexler.retirement.visualizer.Entity.Company;
@@ -51,12 +50,14 @@ import java.util.regex.Pattern;
  * Created by mwexler on 7/9/16.
  */
 public class AssetAccount extends Asset implements Account {
-    private static final List<AssetAccount> accounts = new ArrayList<>();
 
     private final String accountName;
     private final Company company;
     private final String txnSource;
-    private Balance cashBalance = new CashBalance(LocalDate.ofEpochDay(0), BigDecimal.ZERO);
+    // Running totals for the balance walk, in Money micros
+    private LocalDate cashBalanceDate = LocalDate.ofEpochDay(0);
+    private long cashBalance = Money.ZERO;
+    private long runningShareValue = Money.ZERO;
 
     // History of balances for Cash and Securities
     private final Map<LocalDate, Map<String, ShareBalance>> shareBalancesByDateAndSymbol = new HashMap<>();
@@ -107,7 +108,6 @@ public class AssetAccount extends Asset implements Account {
         }
         context.put(AssetAccount.class, accountId, this);
         this.accountId = accountId;
-        accounts.add(this);
     }
 
     @Override
@@ -129,13 +129,10 @@ public class AssetAccount extends Asset implements Account {
 
     public String getAccountId() { return accountId; }
 
-    private BigDecimal calculateAssetValue(Map<String, ShareBalance> shareBalancesBySymbol) {
-        BigDecimal assetValue = shareBalancesBySymbol
-                .values()
-                .stream()
-                .map(ShareBalance::getValue)
-                .reduce(BigDecimal.ZERO,
-                        (a, b) -> a.add(b));
+    private long calculateAssetValue(Map<String, ShareBalance> shareBalancesBySymbol) {
+        long assetValue = Money.ZERO;
+        for (ShareBalance shareBalance : shareBalancesBySymbol.values())
+            assetValue += Money.of(shareBalance.getValue());
         return assetValue;
     }
 
@@ -167,33 +164,37 @@ public class AssetAccount extends Asset implements Account {
             shareBalancesByDateAndSymbol.get(shareBalance.getBalanceDate()).put(symbol, shareBalance);
         }
         runningShareBalancesBySymbol.putAll(currentShareBalancesBySymbol);
+        runningShareValue = calculateAssetValue(runningShareBalancesBySymbol);
     }
 
     public void setStartingBalance() {
         startingShareBalancesBySymbol.putAll(currentShareBalancesBySymbol);
-        this.prependBalance(this.cashBalance);
+        this.prependBalance(new CashBalance(cashBalanceDate, Money.toBigDecimal(cashBalance)));
+    }
+
+    @Override
+    public void resetRunningTotal() {
+        cashBalance = Money.ZERO;
+        cashBalanceDate = LocalDate.ofEpochDay(0);
+        runningShareBalancesBySymbol.clear();
+        runningShareBalancesBySymbol.putAll(currentShareBalancesBySymbol);
+        runningShareValue = calculateAssetValue(runningShareBalancesBySymbol);
     }
 
     public void setRunningTotal(LocalDate balanceDate, BigDecimal runningTotal, Map<String, PositionHistory.Position> positions) {
         this.setPositions(positions);
-        BigDecimal shareValue = currentShareBalancesBySymbol
-                .values()
-                .stream()
-                .map(ShareBalance::getValue)
-                .reduce(BigDecimal.ZERO,
-                        (a, b) -> a.add(b));
-        this.cashBalance = new CashBalance(balanceDate, runningTotal.subtract(shareValue));
+        this.cashBalanceDate = balanceDate;
+        this.cashBalance = Money.of(runningTotal) - calculateAssetValue(currentShareBalancesBySymbol);
     }
 
     @Override
     @JsonIgnore
     public void updateRunningTotal(CashFlowInstance cashFlowInstance, boolean negate) {
-        cashFlowInstance.setCashBalance(cashBalance.getValue());
-        cashFlowInstance.setAssetBalance(calculateAssetValue(runningShareBalancesBySymbol));
-        BigDecimal cashFlowAmount = cashFlowInstance.getAmount();
-        if (negate)
-            cashFlowAmount = cashFlowAmount.negate();
-        cashBalance = new CashBalance(cashFlowInstance.getCashFlowDate(), cashBalance.getValue().add(cashFlowAmount));
+        cashFlowInstance.setCashBalanceMicros(cashBalance);
+        cashFlowInstance.setAssetBalanceMicros(runningShareValue);
+        long cashFlowAmount = cashFlowInstance.getAmountMicros();
+        cashBalance += negate ? -cashFlowAmount : cashFlowAmount;
+        cashBalanceDate = cashFlowInstance.getCashFlowDate();
         if (cashFlowInstance instanceof SecurityTransaction) {
             SecurityTransaction securityTransaction = (SecurityTransaction) cashFlowInstance;
             ShareBalance shareBalanceChange = securityTransaction.getChange();
@@ -202,6 +203,8 @@ public class AssetAccount extends Asset implements Account {
                     cashFlowInstance.getCashFlowDate(), BigDecimal.ZERO, BigDecimal.ZERO, shareBalanceChange.getSecurity()));
             ShareBalance newBalance = currentBalance.applyChange(shareBalanceChange, negate);
             runningShareBalancesBySymbol.put(symbol, newBalance);
+            // Only this symbol's value changed, so adjust the total rather than summing every position again
+            runningShareValue += Money.of(newBalance.getValue()) - Money.of(currentBalance.getValue());
         }
     }
 
@@ -270,6 +273,7 @@ public class AssetAccount extends Asset implements Account {
 
     @Override
     public void setRunningTotal(LocalDate balanceDate, BigDecimal value) {
-        this.cashBalance = new CashBalance(balanceDate, value);
+        this.cashBalanceDate = balanceDate;
+        this.cashBalance = Money.of(value);
     }
 }
@@ -33,6 +33,8 @@ public class Assumptions {
     private double longTermInvestmentReturn  = 7.0/100.0;
     private double shortTermInvestmentReturn	= 3.0/100.0;
     private double inflation                 = 4.0/100.0;
+    private double longTermInvestmentReturnStdDev = 15.0/100.0;
+    private double inflationStdDev           = 1.0/100.0;
     private final int alimonyEndAge               = 65;
     private int yearsInShortTerm            = 10;
 
@@ -66,6 +68,28 @@ public class Assumptions {
         this.inflation = inflation;
     }
 
+    /**
+     * @return year to year volatility of the long term return, used only by Monte Carlo runs
+     */
+    public double getLongTermInvestmentReturnStdDev() {
+        return longTermInvestmentReturnStdDev;
+    }
+
+    public void setLongTermInvestmentReturnStdDev(double longTermInvestmentReturnStdDev) {
+        this.longTermInvestmentReturnStdDev = longTermInvestmentReturnStdDev;
+    }
+
+    /**
+     * @return year to year volatility of inflation, used only by Monte Carlo runs
+     */
+    public double getInflationStdDev() {
+        return inflationStdDev;
+    }
+
+    public void setInflationStdDev(double inflationStdDev) {
+        this.inflationStdDev = inflationStdDev;
+    }
+
     public int getYearsInShortTerm() {
         return yearsInShortTerm;
     }
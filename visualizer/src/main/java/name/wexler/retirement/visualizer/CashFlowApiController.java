@@ -0,0 +1,102 @@
+package name.wexler.retirement.visualizer;
+
+import name.wexler.retirement.visualizer.CashFlowInstance.CashFlowInstance;
+import name.wexler.retirement.visualizer.Entity.CategoryDictionary;
+import name.wexler.retirement.visualizer.JSON.CashFlowInstanceQuery;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.ModelAttribute;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * JSON versions of the cash flow drill-downs in RetirementController, a page at a time.  Each endpoint picks its
+ * instances from the calendar's indexes, and CashFlowInstanceQuery filters, sorts, pages and streams them.
+ */
+@Controller
+public class CashFlowApiController {
+    private static final String API_PATH = "/visualizer/api/scenario/{scenarioId}";
+
+    private static void writePage(CashFlowInstanceQuery query, List<CashFlowInstance> instances,
+                                  HttpServletResponse response) throws IOException {
+        CashFlowInstanceQuery.Page page = query.apply(instances);
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        query.write(page, response.getOutputStream());
+    }
+
+    private static List<CashFlowInstance> withItemType(List<CashFlowInstance> instances, String grouping) {
+        int groupingId = CategoryDictionary.lookup(grouping);
+        return instances.stream().
+                filter(instance -> instance.getItemTypeId() == groupingId).
+                collect(Collectors.toList());
+    }
+
+    @RequestMapping(value = API_PATH + "/year/{year}", method = RequestMethod.GET)
+    public void cashFlowsByYear(@PathVariable String scenarioId,
+                                @PathVariable int year,
+                                @ModelAttribute CashFlowInstanceQuery query,
+                                HttpServletResponse response) throws IOException {
+        writePage(query, Retirement.getInstance().getCashFlowCalendar(scenarioId).getCashFlowsByYear(year), response);
+    }
+
+    @RequestMapping(value = API_PATH + "/grouping/{grouping}/year/{year}", method = RequestMethod.GET)
+    public void cashFlowsByGroupingAndYear(@PathVariable String scenarioId,
+                                           @PathVariable String grouping,
+                                           @PathVariable int year,
+                                           @ModelAttribute CashFlowInstanceQuery query,
+                                           HttpServletResponse response) throws IOException {
+        writePage(query,
+                withItemType(Retirement.getInstance().getCashFlowCalendar(scenarioId).getCashFlowsByYear(year), grouping),
+                response);
+    }
+
+    @RequestMapping(value = API_PATH + "/grouping/{grouping}/{category}", method = RequestMethod.GET)
+    public void cashFlowsByCategory(@PathVariable String scenarioId,
+                                    @PathVariable String grouping,
+                                    @PathVariable String category,
+                                    @ModelAttribute CashFlowInstanceQuery query,
+                                    HttpServletResponse response) throws IOException {
+        writePage(query,
+                withItemType(Retirement.getInstance().getCashFlowCalendar(scenarioId).getCashFlowsByCategory(category), grouping),
+                response);
+    }
+
+    @RequestMapping(value = API_PATH + "/grouping/{grouping}/{category}/year/{year}", method = RequestMethod.GET)
+    public void cashFlowsByCategoryAndYear(@PathVariable String scenarioId,
+                                           @PathVariable String grouping,
+                                           @PathVariable String category,
+                                           @PathVariable int year,
+                                           @ModelAttribute CashFlowInstanceQuery query,
+                                           HttpServletResponse response) throws IOException {
+        int groupingId = CategoryDictionary.lookup(grouping);
+        List<CashFlowInstance> instances =
+                Retirement.getInstance().getCashFlowCalendar(scenarioId).getCashFlowsByCategory(category).stream().
+                        filter(instance -> instance.getItemTypeId() == groupingId).
+                        filter(instance -> instance.getAccrualEnd().getYear() == year).
+                        collect(Collectors.toList());
+        writePage(query, instances, response);
+    }
+
+    @RequestMapping(value = API_PATH + "/asset/{assetId}", method = RequestMethod.GET)
+    public void cashFlowsByAsset(@PathVariable String scenarioId,
+                                 @PathVariable String assetId,
+                                 @ModelAttribute CashFlowInstanceQuery query,
+                                 HttpServletResponse response) throws IOException {
+        writePage(query, Retirement.getInstance().getCashFlowCalendar(scenarioId).getCashFlowsBySink(assetId), response);
+    }
+
+    @RequestMapping(value = API_PATH + "/asset/{assetId}/year/{year}", method = RequestMethod.GET)
+    public void cashFlowsByAssetAndYear(@PathVariable String scenarioId,
+                                        @PathVariable String assetId,
+                                        @PathVariable int year,
+                                        @ModelAttribute CashFlowInstanceQuery query,
+                                        HttpServletResponse response) throws IOException {
+        writePage(query, Retirement.getInstance().getCashFlowCalendar(scenarioId).getCashFlowsBySink(assetId, year), response);
+    }
+}
@@ -26,6 +26,7 @@ package name.wexler.retirement.visualizer.CashFlowEstimator;
 import com.fasterxml.jackson.annotation.*;
 import name.wexler.retirement.visualizer.Asset.Asset;
 import name.wexler.retirement.visualizer.Entity.Category;
+import name.wexler.retirement.visualizer.Entity.CategoryDictionary;
 import name.wexler.retirement.visualizer.Tables.CashFlowCalendar;
 import name.wexler.retirement.visualizer.CashFlowFrequency.CashFlowFrequency;
 import name.wexler.retirement.visualizer.CashFlowSink;
@@ -61,6 +62,8 @@ public class Alimony extends CashFlowEstimator {
     private CashFlowFrequency smithOstlerCashFlow;
     private final CashFlowSink defaultSink;
     private static final String ALIMONY = "Alimony";
+    private static final int ALIMONY_ID = CategoryDictionary.idOf(ALIMONY);
+    private static final int INCOME_ID = CategoryDictionary.idOf(CashFlowCalendar.ITEM_TYPE.INCOME.name());
 
 
     @JsonCreator
@@ -115,8 +118,9 @@ public class Alimony extends CashFlowEstimator {
         return smithOstlerCashFlow.getFutureCashFlowInstances(cashFlowCalendar, this,
                 (calendar, cashFlowId, accrualStart, accrualEnd, cashFlowDate, percent, prevCashFlowInstance) -> {
                     BigDecimal income = calendar.sumMatchingCashFlowForPeriod(accrualStart, accrualEnd,
+                            "INCOME owned by " + this.getPayers().get(0).getId(),
                             (instance) -> {
-                                boolean matches = instance.getItemType().equals("INCOME") &&
+                                boolean matches = instance.getItemTypeId() == INCOME_ID &&
                                         instance.getCashFlowSource().isOwner(this.getPayers().get(0));
                                 return matches;
                             });
@@ -152,7 +156,8 @@ public class Alimony extends CashFlowEstimator {
                 ytdAlimonies.put(accrualYear, cashFlowCalendar.sumMatchingCashFlowForPeriod(
                         LocalDate.of(accrualYear, Month.JANUARY, 1),
                         LocalDate.of(accrualYear, Month.DECEMBER, 31),
-                        (calendarInstance) -> calendarInstance.getCategory().equals(ALIMONY)
+                        "category=" + ALIMONY,
+                        (calendarInstance) -> calendarInstance.getCategoryId() == ALIMONY_ID
                 ));
             BigDecimal ytdAlimony = ytdAlimonies.get(accrualYear);
             BigDecimal remainingBalance = this.maxAlimony.subtract(ytdAlimony).min(BigDecimal.ZERO);
@@ -255,4 +260,11 @@ public class Alimony extends CashFlowEstimator {
     public CASH_ESTIMATE_PASS getPass() {
         return CASH_ESTIMATE_PASS.DERIVED_EXPENSES;   // Need to calculate all income before computing alimony, because alimony is computed from rest of income
     }
+
+    @JsonIgnore
+    @Override
+    public Set<String> getReads() {
+        // Smith/Ostler is a share of the payer's income, capped by alimony already paid that year
+        return Set.of(itemTypeKey(CashFlowCalendar.ITEM_TYPE.INCOME.name()), categoryKey(ALIMONY));
+    }
 }
@@ -136,6 +136,12 @@ public class Budget extends CashFlowEstimator {
         return CashFlowCalendar.ITEM_TYPE.INCOME.name();
     }
 
+    @JsonIgnore
+    @Override
+    public Set<String> getWrites() {
+        return Set.of(ALL);    // Each budget has its own item type and category
+    }
+
     @Override
     public boolean isOwner(Entity entity) {
         return defaultSink.isOwner(entity);
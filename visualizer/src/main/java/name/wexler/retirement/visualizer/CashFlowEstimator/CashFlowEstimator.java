@@ -37,9 +37,11 @@ import org.jetbrains.annotations.NotNull;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.time.LocalDate;
-import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Set;
 
 /**
  * Created by mwexler on 7/9/16.
@@ -63,7 +65,8 @@ import java.util.NoSuchElementException;
         @JsonSubTypes.Type(value = Budget.class, name="budgets")
 })
 public abstract class CashFlowEstimator extends Entity implements CashFlowSource {
-    private static final List<CashFlowEstimator> cashFlowEstimators = new ArrayList<>();
+    /** Matches every item type and category in {@link #getReads()} and {@link #getWrites()}. */
+    public static final String ALL = "*";
     private final List<Entity> payers;
     private final List<Entity> payees;
     private final CashFlowFrequency cashFlow;
@@ -85,11 +88,13 @@ public abstract class CashFlowEstimator extends Entity implements CashFlowSource
         if (this.cashFlow == null) {
             throw new NoSuchElementException("CashFlowFrequency " + cashFlowId + " not found");
         }
-        cashFlowEstimators.add(this);
     }
 
-    protected List<CashFlowEstimator> getCashFlowEstimators() {
-        return cashFlowEstimators;
+    /**
+     * @return the estimators read into this estimator's context so far
+     */
+    protected Collection<CashFlowEstimator> getCashFlowEstimators() {
+        return getContext().getAll(CashFlowEstimator.class);
     }
 
     public String getCategory() {
@@ -187,4 +192,29 @@ public abstract class CashFlowEstimator extends Entity implements CashFlowSource
     public CASH_ESTIMATE_PASS getPass() {
         return CASH_ESTIMATE_PASS.BASE_CASH_FLOWS;   // By default estimators run the first pass
     }
+
+    public static String itemTypeKey(String itemType) {
+        return "itemType:" + itemType;
+    }
+
+    public static String categoryKey(String category) {
+        return "category:" + category;
+    }
+
+    /**
+     * @return item type and category keys of the calendar instances getEstimatedFutureCashFlows sums or
+     * looks at, or empty if it doesn't read the calendar's instances
+     */
+    @JsonIgnore
+    public Set<String> getReads() {
+        return Collections.emptySet();
+    }
+
+    /**
+     * @return item type and category keys of the instances this estimator produces
+     */
+    @JsonIgnore
+    public Set<String> getWrites() {
+        return Set.of(itemTypeKey(getItemType()), categoryKey(getCategory()));
+    }
 }
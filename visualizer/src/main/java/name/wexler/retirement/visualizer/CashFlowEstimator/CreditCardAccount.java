@@ -46,11 +46,10 @@ import java.util.*;
  * Created by mwexler on 7/9/16.
  */
 public class CreditCardAccount extends Liability {
-    private static final List<CreditCardAccount> accounts = new ArrayList<>();
 
     private final String accountName;
     private final Company company;
-    private CashBalance runningTotal;
+    private long runningTotal = Money.ZERO;
 
     // History of balances for Cash and Securities
     private final Map<LocalDate, Map<String, ShareBalance>> shareBalancesByDateAndSymbol = new HashMap<>();
@@ -80,8 +79,6 @@ public class CreditCardAccount extends Liability {
         for (String indicator : indicators) {
             context.put(CreditCardAccount.class, indicator, this);
         }
-        accounts.add(this);
-        runningTotal = new CashBalance(LocalDate.EPOCH, BigDecimal.ZERO);
     }
 
     @Override
@@ -99,7 +96,7 @@ public class CreditCardAccount extends Liability {
 
     @Override
     public void setRunningTotal(LocalDate balanceDate, BigDecimal value) {
-        this.runningTotal = new CashBalance(balanceDate, value);
+        this.runningTotal = Money.of(value);
     }
 
     public String getAccountName() {
@@ -157,8 +154,12 @@ public class CreditCardAccount extends Liability {
     @Override
     @JsonIgnore
     public void updateRunningTotal(CashFlowInstance cashFlowInstance, boolean negate) {
-        runningTotal = new CashBalance(cashFlowInstance.getCashFlowDate(),
-                runningTotal.getValue().add(cashFlowInstance.getAmount()));
-        cashFlowInstance.setCashBalance(runningTotal.getValue());
+        runningTotal += cashFlowInstance.getAmountMicros();
+        cashFlowInstance.setCashBalanceMicros(runningTotal);
+    }
+
+    @Override
+    public void resetRunningTotal() {
+        runningTotal = Money.ZERO;
     }
 }
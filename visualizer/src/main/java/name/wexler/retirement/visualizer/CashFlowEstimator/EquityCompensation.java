@@ -62,7 +62,7 @@ abstract public class EquityCompensation extends CashFlowEstimator {
     }
 
     @JsonIgnore
-    Security getSecurity() {
+    public Security getSecurity() {
         return security;
     }
 
@@ -0,0 +1,260 @@
+package name.wexler.retirement.visualizer.CashFlowEstimator;
+
+import name.wexler.retirement.visualizer.CashFlowInstance.CashFlowInstance;
+import name.wexler.retirement.visualizer.Tables.CashFlowCalendar;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs estimators in dependency order instead of in global passes.  An estimator depends on every other
+ * estimator that writes an item type or category it reads, and starts as soon as those have finished.
+ *
+ * Two estimators that each read what the other writes can't both go first.  The one in the earlier
+ * {@link CASH_ESTIMATE_PASS} does, and if they are in the same pass neither sees the other, which is what
+ * running them pass by pass did.
+ *
+ * An estimator that reads the calendar sees the historical instances plus the estimates of the estimators it
+ * depends on, and nothing else, so its results don't depend on what happens to finish first.
+ */
+public class EstimatorScheduler {
+    private final List<CashFlowEstimator> estimators;
+    private final Map<CashFlowEstimator, List<CashFlowEstimator>> dependencies = new IdentityHashMap<>();
+    private final Map<CashFlowEstimator, List<CashFlowEstimator>> dependents = new IdentityHashMap<>();
+    private final List<CashFlowEstimator> topologicalOrder;
+
+    /**
+     * Estimates and timings from one run.
+     */
+    public static class Schedule {
+        private final Map<CashFlowEstimator, List<CashFlowInstance>> estimates;
+        private final Map<CashFlowEstimator, Long> elapsedNanos;
+        private final List<CashFlowEstimator> criticalPath;
+        private final long criticalPathNanos;
+
+        private Schedule(Map<CashFlowEstimator, List<CashFlowInstance>> estimates,
+                         Map<CashFlowEstimator, Long> elapsedNanos,
+                         List<CashFlowEstimator> criticalPath,
+                         long criticalPathNanos) {
+            this.estimates = estimates;
+            this.elapsedNanos = elapsedNanos;
+            this.criticalPath = criticalPath;
+            this.criticalPathNanos = criticalPathNanos;
+        }
+
+        /**
+         * @return each estimator's estimates, in pass order and then the order the estimators were given in
+         */
+        public Map<CashFlowEstimator, List<CashFlowInstance>> getEstimates() {
+            return estimates;
+        }
+
+        public long getElapsedNanos(CashFlowEstimator estimator) {
+            return elapsedNanos.getOrDefault(estimator, 0L);
+        }
+
+        /**
+         * @return the chain of dependent estimators that took longest, first to last
+         */
+        public List<CashFlowEstimator> getCriticalPath() {
+            return criticalPath;
+        }
+
+        public long getCriticalPathNanos() {
+            return criticalPathNanos;
+        }
+
+        @Override
+        public String toString() {
+            StringJoiner joiner = new StringJoiner(" -> ");
+            for (CashFlowEstimator estimator : criticalPath)
+                joiner.add(estimator.getId() + " (" + getElapsedNanos(estimator) / 1000000 + "ms)");
+            return "Critical path " + criticalPathNanos / 1000000 + "ms: " + joiner;
+        }
+    }
+
+    public EstimatorScheduler(@NotNull List<CashFlowEstimator> estimators) {
+        List<CashFlowEstimator> ordered = new ArrayList<>(estimators);
+        // Stable, so estimators in the same pass keep their order
+        ordered.sort(Comparator.comparing(CashFlowEstimator::getPass));
+        this.estimators = Collections.unmodifiableList(ordered);
+        for (CashFlowEstimator estimator : this.estimators) {
+            dependencies.put(estimator, new ArrayList<>());
+            dependents.put(estimator, new ArrayList<>());
+        }
+        for (CashFlowEstimator reader : this.estimators) {
+            for (CashFlowEstimator writer : this.estimators) {
+                if (writer != reader && dependsOn(reader, writer)) {
+                    dependencies.get(reader).add(writer);
+                    dependents.get(writer).add(reader);
+                }
+            }
+        }
+        topologicalOrder = sortTopologically();
+    }
+
+    static boolean overlaps(Set<String> writes, Set<String> reads) {
+        if (writes.isEmpty() || reads.isEmpty())
+            return false;
+        if (writes.contains(CashFlowEstimator.ALL) || reads.contains(CashFlowEstimator.ALL))
+            return true;
+        for (String read : reads) {
+            if (writes.contains(read))
+                return true;
+        }
+        return false;
+    }
+
+    private static boolean dependsOn(CashFlowEstimator reader, CashFlowEstimator writer) {
+        if (!overlaps(writer.getWrites(), reader.getReads()))
+            return false;
+        if (!overlaps(reader.getWrites(), writer.getReads()))
+            return true;
+        // Each reads the other's output; the earlier pass goes first
+        return writer.getPass().compareTo(reader.getPass()) < 0;
+    }
+
+    private List<CashFlowEstimator> sortTopologically() {
+        Map<CashFlowEstimator, Integer> waitingOn = new IdentityHashMap<>();
+        Deque<CashFlowEstimator> ready = new ArrayDeque<>();
+        for (CashFlowEstimator estimator : estimators) {
+            waitingOn.put(estimator, dependencies.get(estimator).size());
+            if (dependencies.get(estimator).isEmpty())
+                ready.add(estimator);
+        }
+        List<CashFlowEstimator> result = new ArrayList<>(estimators.size());
+        while (!ready.isEmpty()) {
+            CashFlowEstimator estimator = ready.remove();
+            result.add(estimator);
+            for (CashFlowEstimator dependent : dependents.get(estimator)) {
+                if (waitingOn.merge(dependent, -1, Integer::sum) == 0)
+                    ready.add(dependent);
+            }
+        }
+        if (result.size() < estimators.size()) {
+            StringJoiner cycle = new StringJoiner(", ");
+            waitingOn.forEach((estimator, count) -> {
+                if (count > 0)
+                    cycle.add(estimator.getId());
+            });
+            throw new RuntimeException("Cash flow estimators depend on each other: " + cycle);
+        }
+        return result;
+    }
+
+    public List<CashFlowEstimator> getDependencies(CashFlowEstimator estimator) {
+        return Collections.unmodifiableList(dependencies.getOrDefault(estimator, Collections.emptyList()));
+    }
+
+    /**
+     * @return the changed estimators and every estimator that depends on them, directly or not
+     */
+    public Set<CashFlowEstimator> getAffected(Collection<CashFlowEstimator> changed) {
+        Set<CashFlowEstimator> affected = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<CashFlowEstimator> toVisit = new ArrayDeque<>(changed);
+        while (!toVisit.isEmpty()) {
+            CashFlowEstimator estimator = toVisit.remove();
+            if (affected.add(estimator))
+                toVisit.addAll(dependents.getOrDefault(estimator, Collections.emptyList()));
+        }
+        return affected;
+    }
+
+    public Schedule run(@NotNull CashFlowCalendar calendar, @NotNull Executor executor) {
+        return run(calendar, estimators, executor);
+    }
+
+    /**
+     * Run toRun, each as soon as the estimators it depends on are done.  Estimators that aren't being run
+     * contribute the estimates already in the calendar under their id.  The calendar isn't changed.
+     */
+    public Schedule run(@NotNull CashFlowCalendar calendar, @NotNull Collection<CashFlowEstimator> toRun,
+                        @NotNull Executor executor) {
+        Set<CashFlowEstimator> running = Collections.newSetFromMap(new IdentityHashMap<>());
+        running.addAll(toRun);
+        Map<CashFlowEstimator, CompletableFuture<List<CashFlowInstance>>> futures = new IdentityHashMap<>();
+        Map<CashFlowEstimator, Long> elapsedNanos = Collections.synchronizedMap(new IdentityHashMap<>());
+        for (CashFlowEstimator estimator : topologicalOrder) {
+            if (!running.contains(estimator))
+                continue;
+            List<CompletableFuture<List<CashFlowInstance>>> inputs = new ArrayList<>();
+            for (CashFlowEstimator dependency : dependencies.get(estimator)) {
+                if (running.contains(dependency))
+                    inputs.add(futures.get(dependency));
+            }
+            CompletableFuture<List<CashFlowInstance>> estimate =
+                    CompletableFuture.allOf(inputs.toArray(new CompletableFuture[0])).thenApplyAsync(ignored -> {
+                        CashFlowCalendar view = getView(calendar, estimator, running, futures);
+                        long start = System.nanoTime();
+                        List<CashFlowInstance> result = estimator.getEstimatedFutureCashFlows(view);
+                        elapsedNanos.put(estimator, System.nanoTime() - start);
+                        return result;
+                    }, executor);
+            futures.put(estimator, estimate);
+        }
+
+        Map<CashFlowEstimator, List<CashFlowInstance>> estimates = new LinkedHashMap<>();
+        for (CashFlowEstimator estimator : estimators) {
+            if (!running.contains(estimator))
+                continue;
+            try {
+                estimates.put(estimator, futures.get(estimator).join());
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException)
+                    throw (RuntimeException) e.getCause();
+                throw new RuntimeException("Can't estimate " + estimator.getId(), e.getCause());
+            }
+        }
+        return criticalPath(estimates, running, elapsedNanos);
+    }
+
+    /**
+     * Estimators that don't read the calendar's instances get the calendar itself, which isn't changing
+     * during the run.  The rest get their own calendar holding only what they depend on.
+     */
+    private CashFlowCalendar getView(CashFlowCalendar calendar, CashFlowEstimator estimator,
+                                     Set<CashFlowEstimator> running,
+                                     Map<CashFlowEstimator, CompletableFuture<List<CashFlowInstance>>> futures) {
+        if (estimator.getReads().isEmpty())
+            return calendar;
+        List<CashFlowInstance> visible = new ArrayList<>();
+        for (CashFlowEstimator dependency : dependencies.get(estimator)) {
+            if (running.contains(dependency))
+                visible.addAll(futures.get(dependency).join());
+            else
+                visible.addAll(calendar.getProjectedCashFlowInstances(dependency.getId()));
+        }
+        return calendar.withEstimates(visible);
+    }
+
+    private Schedule criticalPath(Map<CashFlowEstimator, List<CashFlowInstance>> estimates,
+                                  Set<CashFlowEstimator> running,
+                                  Map<CashFlowEstimator, Long> elapsedNanos) {
+        Map<CashFlowEstimator, Long> finish = new IdentityHashMap<>();
+        Map<CashFlowEstimator, CashFlowEstimator> slowestInput = new IdentityHashMap<>();
+        CashFlowEstimator last = null;
+        for (CashFlowEstimator estimator : topologicalOrder) {
+            if (!running.contains(estimator))
+                continue;
+            long start = 0;
+            for (CashFlowEstimator dependency : dependencies.get(estimator)) {
+                Long dependencyFinish = finish.get(dependency);
+                if (dependencyFinish != null && dependencyFinish > start) {
+                    start = dependencyFinish;
+                    slowestInput.put(estimator, dependency);
+                }
+            }
+            finish.put(estimator, start + elapsedNanos.getOrDefault(estimator, 0L));
+            if (last == null || finish.get(estimator) > finish.get(last))
+                last = estimator;
+        }
+        LinkedList<CashFlowEstimator> path = new LinkedList<>();
+        for (CashFlowEstimator estimator = last; estimator != null; estimator = slowestInput.get(estimator))
+            path.addFirst(estimator);
+        return new Schedule(estimates, new IdentityHashMap<>(elapsedNanos), path,
+                last == null ? 0 : finish.get(last));
+    }
+}
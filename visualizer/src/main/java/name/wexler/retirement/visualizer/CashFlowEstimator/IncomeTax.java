@@ -34,6 +34,7 @@ import org.jetbrains.annotations.NotNull;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import static name.wexler.retirement.visualizer.CashFlowInstance.CashFlowInstance.NO_ID;
@@ -77,7 +78,7 @@ public class IncomeTax extends CashFlowEstimator {
                 (calendar, cashFlowId, accrualStart, accrualEnd, cashFlowDate, percent, prevCashFlowInstance) -> {
                     BigDecimal balance = (prevCashFlowInstance == null) ? BigDecimal.ZERO : prevCashFlowInstance.getCashBalance();
                     BigDecimal income = calendar.sumMatchingCashFlowForPeriod(accrualStart, accrualEnd,
-                            (instance) -> true);
+                            "all", (instance) -> true);
                     if (income.equals(BigDecimal.ZERO))
                         return null;
                     try {
@@ -126,4 +127,10 @@ public class IncomeTax extends CashFlowEstimator {
     public CASH_ESTIMATE_PASS getPass() {
         return CASH_ESTIMATE_PASS.TAXES;   // Need to calculate all income and expenses before computing taxes
     }
+
+    @JsonIgnore
+    @Override
+    public Set<String> getReads() {
+        return Set.of(ALL);
+    }
 }
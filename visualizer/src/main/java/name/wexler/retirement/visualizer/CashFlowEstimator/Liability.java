@@ -30,6 +30,7 @@ import name.wexler.retirement.visualizer.AccountReader;
 import name.wexler.retirement.visualizer.Tables.CashFlowCalendar;
 import name.wexler.retirement.visualizer.CashFlowInstance.Account;
 import name.wexler.retirement.visualizer.Context;
+import name.wexler.retirement.visualizer.Money;
 import name.wexler.retirement.visualizer.Entity.Company;
 import name.wexler.retirement.visualizer.Entity.Entity;
 import name.wexler.retirement.visualizer.CashFlowFrequency.CashBalance;
@@ -62,7 +63,7 @@ abstract public class Liability extends CashFlowEstimator implements Account {
     private final BigDecimal periodicInterestRate;
     private final Balance _startingBalance;
     private final Map<LocalDate, CashBalance> accountValueByDate = new HashMap<>();
-    private BigDecimal runningTotal;
+    private long runningTotal;
 
     @JsonCreator
     public Liability(@JacksonInject("context") Context context,
@@ -87,7 +88,7 @@ abstract public class Liability extends CashFlowEstimator implements Account {
                 .divide(periodsPerYear, RoundingMode.HALF_UP)
                 .setScale(10, RoundingMode.HALF_UP);
         context.put(Liability.class, id, this);
-        this.runningTotal = startingBalance;
+        this.runningTotal = Money.of(startingBalance);
     }
 
 
@@ -192,8 +193,13 @@ abstract public class Liability extends CashFlowEstimator implements Account {
     @Override
     @JsonIgnore
     public void updateRunningTotal(CashFlowInstance cashFlowInstance, boolean negate) {
-        runningTotal = runningTotal.add(cashFlowInstance.getAmount());
-        cashFlowInstance.setCashBalance(runningTotal);
+        runningTotal += cashFlowInstance.getAmountMicros();
+        cashFlowInstance.setCashBalanceMicros(runningTotal);
+    }
+
+    @Override
+    public void resetRunningTotal() {
+        runningTotal = Money.of(getStartingBalance().getValue());
     }
 
     @JsonIgnore
@@ -1,5 +1,6 @@
 package name.wexler.retirement.visualizer.CashFlowInstance;
 
+import name.wexler.retirement.datastore.TxnHistory;
 import name.wexler.retirement.visualizer.CashFlowEstimator.Salary;
 import name.wexler.retirement.visualizer.CashFlowSource;
 import name.wexler.retirement.visualizer.Context;
@@ -17,8 +18,6 @@ import javax.json.stream.JsonParser;
 import javax.json.stream.JsonParserFactory;
 import java.io.StringReader;
 import java.math.BigDecimal;
-import java.sql.ResultSet;
-import java.sql.SQLException;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneId;
@@ -35,30 +34,30 @@ public class CashFlowCategorizationHeuristics {
     public static CashFlowInstance getInstance(Context context,
                                                Account account,
                                                Spending spending,
-                                               ResultSet rs,
+                                               TxnHistory.TxnRow row,
                                                CashFlowSource cashFlowSource,
                                                String description,
                                                Job job
-    ) throws SQLException, AccountNotFoundException {
+    ) throws AccountNotFoundException {
         CashFlowInstance instance = null;
 
-        long dateMillis = rs.getLong("Date");
+        long dateMillis = row.getDate();
         LocalDate txnDate = Instant.ofEpochMilli(dateMillis).atZone(ZoneId.of("UTC")).toLocalDate();
         LocalDate accrualEnd = txnDate;
         BigDecimal txnAmount = BigDecimal.ZERO;
-        long id = rs.getLong("id");
-        String fi = rs.getString("fi");
-        String category = rs.getString("category");
-        String notes = ObjectUtils.defaultIfNull(rs.getString("notes"), "");
-        String labelsStr = ObjectUtils.defaultIfNull(rs.getString("labels"), "");
+        long id = row.getId();
+        String fi = row.getFi();
+        String category = row.getCategory();
+        String notes = ObjectUtils.defaultIfNull(row.getNotes(), "");
+        String labelsStr = ObjectUtils.defaultIfNull(row.getLabels(), "");
         List<String> names = getLabels(jsonParserFactory, labelsStr);
-        String parentCategory = rs.getString("parent");
+        String parentCategory = row.getParent();
         if (parentCategory == null)
             parentCategory = Category.UNKNOWN;
-        String itemType = rs.getString("itemType");
-        String txnType = rs.getString("txn_type");
-        String symbol = rs.getString("symbol");
-        BigDecimal shares = rs.getBigDecimal("shares");
+        String itemType = row.getItemType();
+        String txnType = row.getTxnType();
+        String symbol = row.getSymbol();
+        BigDecimal shares = row.getShares();
         if (description.toLowerCase(Locale.ROOT).startsWith("bank int") ||
                 description.toLowerCase(Locale.ROOT).startsWith("interest ") ||
                 description.endsWith("ACCOUNT INTEREST")) {
@@ -147,11 +146,11 @@ public class CashFlowCategorizationHeuristics {
             parentCategory = Category.INVESTMENT;
             category = "Dividend Reinvestment";
         }
-        Boolean isDebit = rs.getBoolean("isDebit");
+        Boolean isDebit = row.isDebit();
         Entity company = account.getCompany();
 
         try {
-            txnAmount = rs.getBigDecimal("amount");
+            txnAmount = row.getAmount();
         } catch (NumberFormatException nfe) {
             throw new RuntimeException(nfe);
         }
@@ -2,6 +2,8 @@ package name.wexler.retirement.visualizer.CashFlowInstance;
 
 import name.wexler.retirement.visualizer.CashFlowSink;
 import name.wexler.retirement.visualizer.CashFlowSource;
+import name.wexler.retirement.visualizer.Entity.CategoryDictionary;
+import name.wexler.retirement.visualizer.Money;
 import org.jetbrains.annotations.NotNull;
 
 import java.math.BigDecimal;
@@ -18,20 +20,22 @@ public class CashFlowInstance implements Comparable<CashFlowInstance> {
     private final LocalDate accrualEnd;
     private final LocalDate cashFlowDate;
     private final BigDecimal amount;
-    private BigDecimal cashBalance;
-    private BigDecimal assetBalance;
+    // The balance walks work in Money micros; the BigDecimals are for everything else
+    private final long amountMicros;
+    private long cashBalanceMicros;
+    private long assetBalanceMicros;
     private String description = "";
     private String notes = "";
     private List<String> labels = Collections.emptyList();
-    public final String itemType;
-
-
-    private final String parentCategory ;
-    private final String category;
+    // CategoryDictionary ids
+    private final int itemTypeId;
+    private final int parentCategoryId;
+    private final int categoryId;
     private final CashFlowSink cashFlowSink;
     private final boolean estimated;
     private final long id;
     public static long NO_ID = 2102102102;
+    private static final String UNKNOWN = "unknown";
 
     public CashFlowInstance(long id, boolean estimated,
                             CashFlowSource cashFlowSource, CashFlowSink cashFlowSink,
@@ -46,13 +50,14 @@ public class CashFlowInstance implements Comparable<CashFlowInstance> {
         this.accrualEnd = accrualEnd;
         this.cashFlowDate = cashFlowDate;
         this.amount = amount;
-        this.cashBalance = balance;
-        this.assetBalance = BigDecimal.ZERO;
+        this.amountMicros = Money.of(amount);
+        this.cashBalanceMicros = Money.of(balance);
+        this.assetBalanceMicros = Money.ZERO;
         this.cashFlowSource = cashFlowSource;
         this.cashFlowSink = cashFlowSink;
-        this.itemType = itemType;
-        this.parentCategory = parentCategory;
-        this.category = category;
+        this.itemTypeId = CategoryDictionary.idOf(itemType == null ? UNKNOWN : itemType);
+        this.parentCategoryId = CategoryDictionary.idOf(parentCategory);
+        this.categoryId = CategoryDictionary.idOf(category == null ? UNKNOWN : category);
         this.description = description;
     }
 
@@ -64,9 +69,8 @@ public class CashFlowInstance implements Comparable<CashFlowInstance> {
         result = this.accrualStart.compareTo(that.accrualStart);
         if (result != 0)
             return result;
-        result = this.category.compareTo(that.category);
-        if (result != 0)
-            return result;
+        if (this.categoryId != that.categoryId)
+            return getCategory().compareTo(that.getCategory());
         result = this.description.compareTo(that.description);
         if (result != 0)
             return result;
@@ -81,15 +85,19 @@ public class CashFlowInstance implements Comparable<CashFlowInstance> {
     }
 
     public String getCategory() {
-        if (category == null)
-            return "unknown";
-        return category;
+        return CategoryDictionary.nameOf(categoryId);
+    }
+
+    public int getCategoryId() {
+        return categoryId;
     }
 
     public String getItemType() {
-        if (itemType == null)
-            return "unknown";
-        return itemType;
+        return CategoryDictionary.nameOf(itemTypeId);
+    }
+
+    public int getItemTypeId() {
+        return itemTypeId;
     }
 
     public String getNotes() { return notes; }
@@ -134,16 +142,32 @@ public class CashFlowInstance implements Comparable<CashFlowInstance> {
         return amount;
     }
 
-    public BigDecimal getCashBalance() { return cashBalance; }
+    public long getAmountMicros() {
+        return amountMicros;
+    }
+
+    public BigDecimal getCashBalance() { return Money.toBigDecimal(cashBalanceMicros); }
+
+    public long getCashBalanceMicros() { return cashBalanceMicros; }
 
     public void setAssetBalance(BigDecimal newBalance) {
-        this.assetBalance = newBalance;
+        this.assetBalanceMicros = Money.of(newBalance);
     }
 
-    public BigDecimal getAssetBalance() { return assetBalance; }
+    public void setAssetBalanceMicros(long newBalance) {
+        this.assetBalanceMicros = newBalance;
+    }
+
+    public BigDecimal getAssetBalance() { return Money.toBigDecimal(assetBalanceMicros); }
+
+    public long getAssetBalanceMicros() { return assetBalanceMicros; }
 
     public void setCashBalance(BigDecimal newBalance) {
-        this.cashBalance = newBalance;
+        this.cashBalanceMicros = Money.of(newBalance);
+    }
+
+    public void setCashBalanceMicros(long newBalance) {
+        this.cashBalanceMicros = newBalance;
     }
 
     public LocalDate getCashFlowDate() {
@@ -160,11 +184,15 @@ public class CashFlowInstance implements Comparable<CashFlowInstance> {
 
     @Override
     public String toString() {
-        String result = cashFlowDate.toString() + ": " + getAmount() + " => " + cashBalance;
+        String result = cashFlowDate.toString() + ": " + getAmount() + " => " + getCashBalance();
         return result;
     }
 
     public @NotNull  String getParentCategory() {
-        return parentCategory;
+        return CategoryDictionary.nameOf(parentCategoryId);
+    }
+
+    public int getParentCategoryId() {
+        return parentCategoryId;
     }
 }
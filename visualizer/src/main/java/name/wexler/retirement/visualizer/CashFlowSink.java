@@ -10,4 +10,11 @@ public interface CashFlowSink {
     String getId();
     boolean isOwner(Entity entity);
     void setStartingBalance();
+
+    /**
+     * Put the running total back where it was before any balance walk, dropping whatever the last walk left in
+     * it.  Accounts with a current balance get it again afterwards.
+     */
+    default void resetRunningTotal() {
+    }
 }
@@ -0,0 +1,27 @@
+package name.wexler.retirement.visualizer;
+
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Map;
+
+/**
+ * Sends the page's ETag and Last-Modified with every GET, and answers 304 without running the controller when the
+ * browser already has the current version.  The version is left in a request attribute for RenderedPageCache.
+ */
+public class ConditionalGetInterceptor implements HandlerInterceptor {
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!"GET".equals(request.getMethod()))
+            return true;
+        Map<String, String> pathVariables =
+                (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        String scenarioId = pathVariables == null ? null : pathVariables.get("scenarioId");
+        PageVersion version = PageVersion.of(scenarioId);
+        request.setAttribute(PageVersion.ATTRIBUTE, version);
+        return !new ServletWebRequest(request, response).checkNotModified(version.getETag(), version.getLastModified());
+    }
+}
@@ -49,6 +49,10 @@ public class Context {
             allEntities.put(id, entity);
         }
 
+        Collection<T> getAll() {
+            return allEntities.values();
+        }
+
         void removeAllEntities() {
             allEntities.clear();
         }
@@ -57,9 +61,19 @@ public class Context {
 
     private final Map<String, EntityManager> classEntityManager;
     private final ObjectMapper mapper;
+    private final Path resources;
+    private final SecurityPrices securityPrices = new SecurityPrices();
     private Assumptions assumptions;
 
     public Context(AccountReader accountReader) {
+        this(accountReader, resourceDir);
+    }
+
+    /**
+     * @param resources where to read the JSON files from, instead of the resource directory
+     */
+    Context(AccountReader accountReader, Path resources) {
+        this.resources = resources;
         InjectableValues injectableValues = new InjectableValues.Std()
                 .addValue("context", this)
                 .addValue("accountReader", accountReader);
@@ -79,6 +93,10 @@ public class Context {
         return assumptions;
     }
 
+    SecurityPrices getSecurityPrices() {
+        return securityPrices;
+    }
+
     private ObjectMapper getObjectMapper() {
         return mapper;
     }
@@ -111,6 +129,14 @@ public class Context {
         return result;
     }
 
+    /**
+     * @return every entity registered under clazz so far
+     */
+    public <T extends Entity> Collection<T> getAll(Class clazz) {
+        EntityManager<T> entityManager = this.getEntityManager(clazz);
+        return Collections.unmodifiableCollection(entityManager.getAll());
+    }
+
     public <T extends Entity> void put(Class clazz, String id, T value) {
         EntityManager<T> entityManager = this.getEntityManager(clazz);
         entityManager.put(id, value);
@@ -140,7 +166,7 @@ public class Context {
     }
 
     private <T> T[] fromJSONFileArray(Class clazz, String fileName) throws IOException {
-        Path filePath = resourceDir.resolve(fileName);
+        Path filePath = resources.resolve(fileName);
         File entityFile = filePath.toFile();
         ObjectMapper mapper = getObjectMapper();
         try {
@@ -156,13 +182,20 @@ public class Context {
     }
 
     public <T> T fromJSONFile(Class clazz, String fileName) throws IOException {
-        Path filePath = resourceDir.resolve(fileName);
+        Path filePath = resources.resolve(fileName);
         File entityFile = filePath.toFile();
         ObjectMapper mapper = getObjectMapper();
         T result = (T) mapper.readValue(entityFile, clazz);
         return result;
     }
 
+    /**
+     * @return where the JSON files are read from
+     */
+    public static Path getResourceDir() {
+        return resourceDir;
+    }
+
     public Path getHistoryDir(String companyId) {
         Path dirPath = txnDir.resolve(companyId);
         return dirPath;
@@ -52,6 +52,8 @@ public class Category extends Entity {
         super(context, id, Category.class);
         this.name = id;
         this.itemType = itemType;
+        CategoryDictionary.idOf(id);
+        CategoryDictionary.idOf(itemType);
     }
 
     public String getItemType() {
@@ -0,0 +1,72 @@
+package name.wexler.retirement.visualizer.Entity;
+
+import name.wexler.retirement.datastore.DataStore;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Small int ids for category, parent category and item type names, so instances can store and compare ids
+ * instead of strings.  Ids are handed out in the order names are first seen and never change while the
+ * process runs.  The names from categories.json and the categoryMapping table are registered up front so the
+ * common ones get low ids; anything else gets an id the first time an instance uses it.
+ */
+public final class CategoryDictionary {
+    public static final int NONE = -1;
+    private static final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private static volatile String[] names = new String[256];
+    private static int size = 0;
+
+    private CategoryDictionary() {
+    }
+
+    /**
+     * @return the id for name, registering it if it's new, or NONE for null
+     */
+    public static int idOf(String name) {
+        if (name == null)
+            return NONE;
+        Integer id = ids.get(name);
+        return id != null ? id : register(name);
+    }
+
+    /**
+     * @return the id for name, or NONE if nothing has used it, in which case nothing can match it either
+     */
+    public static int lookup(String name) {
+        if (name == null)
+            return NONE;
+        return ids.getOrDefault(name, NONE);
+    }
+
+    /**
+     * @return the name for id, or null for NONE
+     */
+    public static String nameOf(int id) {
+        return id == NONE ? null : names[id];
+    }
+
+    private static synchronized int register(String name) {
+        Integer id = ids.get(name);
+        if (id != null)
+            return id;
+        if (size == names.length)
+            names = Arrays.copyOf(names, size * 2);
+        // The name goes in before the id is published, so whoever finds the id can find the name
+        names[size] = name;
+        ids.put(name, size);
+        return size++;
+    }
+
+    public static void readCategoryMapping(DataStore ds) {
+        try {
+            ds.getTxnHistory().forEachCategoryMapping(rs -> {
+                idOf(rs.getString("raw_category"));
+                idOf(rs.getString("parentCategory"));
+            });
+        } catch (SQLException sqle) {
+            System.err.println(sqle);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package name.wexler.retirement.visualizer;
+
+import name.wexler.retirement.visualizer.Asset.Asset;
+import name.wexler.retirement.visualizer.CashFlowEstimator.Liability;
+import name.wexler.retirement.visualizer.CashFlowInstance.CashFlowInstance;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * The history every scenario starts from.  Transactions and budgets are read once and the same instances go
+ * into every scenario's calendar.
+ *
+ * Accounts, assets and liabilities are shared by the scenarios too, and a balance walk leaves its running totals
+ * in them, so the walks take turns.  Every walk starts by resetting all of them, then setting the current
+ * balances of the accounts the datastore has, so it doesn't matter which scenario walked them last.
+ */
+public class HistoricalCashFlows {
+    private final Context context;
+    private final AccountReader accountReader;
+    private final List<CashFlowInstance> cashFlowInstances;
+    private final List<Budget> budgets;
+
+    public HistoricalCashFlows(@NotNull Context context, @NotNull AccountReader accountReader) {
+        this.context = context;
+        this.accountReader = accountReader;
+        try {
+            cashFlowInstances = Collections.unmodifiableList(accountReader.readCashFlowInstances(context));
+            budgets = Collections.unmodifiableList(accountReader.readBudgets(context));
+        } catch (IOException ioe) {
+            throw new RuntimeException("Can't read history", ioe);
+        }
+    }
+
+    public @NotNull
+    List<CashFlowInstance> getCashFlowInstances() {
+        return cashFlowInstances;
+    }
+
+    public @NotNull
+    List<Budget> getBudgets() {
+        return budgets;
+    }
+
+    /**
+     * Reset every asset's and liability's running total, then set accounts to their current balances.  Liabilities
+     * the datastore doesn't know about go back to their starting balances.  Call from inside walkBalances.
+     */
+    public void setCurrentBalances() {
+        Set<CashFlowSink> sinks = Collections.newSetFromMap(new IdentityHashMap<>());
+        sinks.addAll(context.<Asset>getAll(Asset.class));
+        sinks.addAll(context.<Liability>getAll(Liability.class));
+        sinks.forEach(CashFlowSink::resetRunningTotal);
+        try {
+            accountReader.getAccountBalances(context);
+        } catch (IOException ioe) {
+            throw new RuntimeException("Can't setCurrentBalances", ioe);
+        }
+    }
+
+    /**
+     * Run something that updates the shared running totals, waiting for any other scenario's walk to finish.
+     */
+    public synchronized <T> T walkBalances(@NotNull Supplier<T> walk) {
+        return walk.get();
+    }
+}
@@ -0,0 +1,336 @@
+package name.wexler.retirement.visualizer.JSON;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import name.wexler.retirement.visualizer.CashFlowInstance.CashFlowInstance;
+import name.wexler.retirement.visualizer.Entity.CategoryDictionary;
+import name.wexler.retirement.visualizer.Money;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Filter, sort, page and project a list of cash flow instances for the JSON drill-down endpoints.  Spring binds
+ * the request parameters to the setters:
+ *
+ *   fields    comma separated fields to write, all of them if empty
+ *   sort      comma separated fields, each prefixed with - to sort descending; date order if empty
+ *   q         case insensitive substring of the description
+ *   itemType, parentCategory, category, minAmount, maxAmount, from, to   exact, inclusive filters
+ *   limit     instances per page, at most MAX_LIMIT
+ *   cursor    the next value from the previous page
+ *
+ * The cursor is an opaque position in the filtered and sorted list.  The calendar's lists are snapshots that only
+ * change when a scenario is rebuilt, so paging with the same parameters walks the whole list exactly once.
+ */
+public class CashFlowInstanceQuery {
+    public static final int DEFAULT_LIMIT = 100;
+    public static final int MAX_LIMIT = 1000;
+    private static final JsonFactory jsonFactory = new JsonFactory();
+
+    private interface FieldWriter {
+        void write(JsonGenerator generator, CashFlowInstance instance) throws IOException;
+    }
+
+    private static final Map<String, FieldWriter> fieldWriters = new LinkedHashMap<>();
+    private static final Map<String, Comparator<CashFlowInstance>> comparators = new HashMap<>();
+
+    static {
+        fieldWriters.put("id", (g, instance) -> g.writeNumber(instance.getId()));
+        fieldWriters.put("cashFlowDate", (g, instance) -> writeDate(g, instance.getCashFlowDate()));
+        fieldWriters.put("accrualStart", (g, instance) -> writeDate(g, instance.getAccrualStart()));
+        fieldWriters.put("accrualEnd", (g, instance) -> writeDate(g, instance.getAccrualEnd()));
+        fieldWriters.put("itemType", (g, instance) -> g.writeString(instance.getItemType()));
+        fieldWriters.put("parentCategory", (g, instance) -> g.writeString(instance.getParentCategory()));
+        fieldWriters.put("category", (g, instance) -> g.writeString(instance.getCategory()));
+        fieldWriters.put("cashFlowSourceId", (g, instance) -> g.writeString(instance.getCashFlowSourceId()));
+        fieldWriters.put("cashFlowSinkId", (g, instance) -> g.writeString(instance.getCashFlowSinkId()));
+        fieldWriters.put("description", (g, instance) -> g.writeString(instance.getDescription()));
+        fieldWriters.put("amount", (g, instance) -> g.writeNumber(instance.getAmount()));
+        fieldWriters.put("cashBalance", (g, instance) -> g.writeNumber(instance.getCashBalance()));
+        fieldWriters.put("assetBalance", (g, instance) -> g.writeNumber(instance.getAssetBalance()));
+        fieldWriters.put("estimate", (g, instance) -> g.writeBoolean(instance.isEstimate()));
+        fieldWriters.put("labels", (g, instance) -> {
+            g.writeStartArray();
+            for (String label : instance.getLabels())
+                g.writeString(label);
+            g.writeEndArray();
+        });
+        fieldWriters.put("notes", (g, instance) -> g.writeString(instance.getNotes()));
+
+        comparators.put("id", Comparator.comparingLong(CashFlowInstance::getId));
+        comparators.put("cashFlowDate", Comparator.comparing(CashFlowInstance::getCashFlowDate));
+        comparators.put("accrualStart", Comparator.comparing(CashFlowInstance::getAccrualStart));
+        comparators.put("accrualEnd", Comparator.comparing(CashFlowInstance::getAccrualEnd));
+        comparators.put("itemType", Comparator.comparing(CashFlowInstance::getItemType));
+        comparators.put("parentCategory", Comparator.comparing(CashFlowInstance::getParentCategory));
+        comparators.put("category", Comparator.comparing(CashFlowInstance::getCategory));
+        comparators.put("cashFlowSourceId", Comparator.comparing(CashFlowInstance::getCashFlowSourceId));
+        comparators.put("cashFlowSinkId", Comparator.comparing(CashFlowInstance::getCashFlowSinkId));
+        comparators.put("description",
+                Comparator.comparing(CashFlowInstance::getDescription, Comparator.nullsFirst(Comparator.naturalOrder())));
+        comparators.put("amount", Comparator.comparingLong(CashFlowInstance::getAmountMicros));
+    }
+
+    @ResponseStatus(value = HttpStatus.BAD_REQUEST)
+    public static class InvalidQueryException extends RuntimeException {
+        public InvalidQueryException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * One page of a query: the instances to write, how many matched in all, and the cursor for the next page.
+     */
+    public static class Page {
+        private final List<CashFlowInstance> instances;
+        private final int total;
+        private final String next;
+
+        private Page(List<CashFlowInstance> instances, int total, String next) {
+            this.instances = instances;
+            this.total = total;
+            this.next = next;
+        }
+
+        public List<CashFlowInstance> getInstances() {
+            return instances;
+        }
+
+        public int getTotal() {
+            return total;
+        }
+
+        /**
+         * @return the cursor for the next page, or null if this is the last one
+         */
+        public String getNext() {
+            return next;
+        }
+    }
+
+    private String fields;
+    private String sort;
+    private String q;
+    private String itemType;
+    private String parentCategory;
+    private String category;
+    private BigDecimal minAmount;
+    private BigDecimal maxAmount;
+    private String from;
+    private String to;
+    private int limit = DEFAULT_LIMIT;
+    private String cursor;
+
+    private static void writeDate(JsonGenerator generator, LocalDate date) throws IOException {
+        if (date == null)
+            generator.writeNull();
+        else
+            generator.writeString(date.toString());
+    }
+
+    private static LocalDate parseDate(String name, String value) {
+        if (value == null || value.isEmpty())
+            return null;
+        try {
+            return LocalDate.parse(value);
+        } catch (DateTimeParseException dtpe) {
+            throw new InvalidQueryException("Bad " + name + " date: " + value);
+        }
+    }
+
+    private static List<String> split(String value) {
+        if (value == null || value.isEmpty())
+            return Collections.emptyList();
+        return Arrays.stream(value.split(",")).map(String::trim).filter(s -> !s.isEmpty()).collect(Collectors.toList());
+    }
+
+    public void setFields(String fields) {
+        this.fields = fields;
+    }
+
+    public void setSort(String sort) {
+        this.sort = sort;
+    }
+
+    public void setQ(String q) {
+        this.q = q;
+    }
+
+    public void setItemType(String itemType) {
+        this.itemType = itemType;
+    }
+
+    public void setParentCategory(String parentCategory) {
+        this.parentCategory = parentCategory;
+    }
+
+    public void setCategory(String category) {
+        this.category = category;
+    }
+
+    public void setMinAmount(BigDecimal minAmount) {
+        this.minAmount = minAmount;
+    }
+
+    public void setMaxAmount(BigDecimal maxAmount) {
+        this.maxAmount = maxAmount;
+    }
+
+    public void setFrom(String from) {
+        this.from = from;
+    }
+
+    public void setTo(String to) {
+        this.to = to;
+    }
+
+    public void setLimit(int limit) {
+        this.limit = limit;
+    }
+
+    public void setCursor(String cursor) {
+        this.cursor = cursor;
+    }
+
+    private Predicate<CashFlowInstance> getFilter() {
+        Predicate<CashFlowInstance> filter = instance -> true;
+        // Compare dictionary ids, so a name nothing uses matches nothing
+        if (itemType != null) {
+            int itemTypeId = CategoryDictionary.lookup(itemType);
+            filter = filter.and(instance -> instance.getItemTypeId() == itemTypeId);
+        }
+        if (parentCategory != null) {
+            int parentCategoryId = CategoryDictionary.lookup(parentCategory);
+            filter = filter.and(instance -> instance.getParentCategoryId() == parentCategoryId);
+        }
+        if (category != null) {
+            int categoryId = CategoryDictionary.lookup(category);
+            filter = filter.and(instance -> instance.getCategoryId() == categoryId);
+        }
+        if (minAmount != null) {
+            long min = Money.of(minAmount);
+            filter = filter.and(instance -> instance.getAmountMicros() >= min);
+        }
+        if (maxAmount != null) {
+            long max = Money.of(maxAmount);
+            filter = filter.and(instance -> instance.getAmountMicros() <= max);
+        }
+        LocalDate fromDate = parseDate("from", from);
+        if (fromDate != null)
+            filter = filter.and(instance -> !instance.getCashFlowDate().isBefore(fromDate));
+        LocalDate toDate = parseDate("to", to);
+        if (toDate != null)
+            filter = filter.and(instance -> !instance.getCashFlowDate().isAfter(toDate));
+        if (q != null && !q.isEmpty()) {
+            String needle = q.toLowerCase(Locale.ROOT);
+            filter = filter.and(instance -> instance.getDescription() != null &&
+                    instance.getDescription().toLowerCase(Locale.ROOT).contains(needle));
+        }
+        return filter;
+    }
+
+    private Comparator<CashFlowInstance> getComparator() {
+        Comparator<CashFlowInstance> result = null;
+        for (String key : split(sort)) {
+            boolean descending = key.startsWith("-");
+            String field = descending ? key.substring(1) : key;
+            Comparator<CashFlowInstance> comparator = comparators.get(field);
+            if (comparator == null)
+                throw new InvalidQueryException("Can't sort on " + field);
+            if (descending)
+                comparator = comparator.reversed();
+            result = result == null ? comparator : result.thenComparing(comparator);
+        }
+        return result;
+    }
+
+    private List<FieldWriter> getFieldWriters(List<String> names) {
+        if (names.isEmpty())
+            return new ArrayList<>(fieldWriters.values());
+        List<FieldWriter> result = new ArrayList<>();
+        for (String name : names) {
+            FieldWriter writer = fieldWriters.get(name);
+            if (writer == null)
+                throw new InvalidQueryException("No field " + name);
+            result.add(writer);
+        }
+        return result;
+    }
+
+    private List<String> getFieldNames() {
+        List<String> names = split(fields);
+        return names.isEmpty() ? new ArrayList<>(fieldWriters.keySet()) : names;
+    }
+
+    static String encodeCursor(int offset) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(
+                Integer.toString(offset).getBytes(StandardCharsets.UTF_8));
+    }
+
+    static int decodeCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty())
+            return 0;
+        try {
+            int offset = Integer.parseInt(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+            if (offset < 0)
+                throw new InvalidQueryException("Bad cursor: " + cursor);
+            return offset;
+        } catch (IllegalArgumentException iae) {
+            throw new InvalidQueryException("Bad cursor: " + cursor);
+        }
+    }
+
+    /**
+     * @param instances in date order, as the calendar's indexes return them
+     */
+    public Page apply(@NotNull List<CashFlowInstance> instances) {
+        if (limit < 1 || limit > MAX_LIMIT)
+            throw new InvalidQueryException("limit must be between 1 and " + MAX_LIMIT);
+        int offset = decodeCursor(cursor);
+        getFieldWriters(split(fields));    // Reject unknown fields before anything is written
+        Comparator<CashFlowInstance> comparator = getComparator();
+        List<CashFlowInstance> matching = instances.stream().filter(getFilter()).collect(Collectors.toList());
+        if (comparator != null)
+            matching.sort(comparator);     // Stable, so ties stay in date order
+        int start = Math.min(offset, matching.size());
+        int end = Math.min(start + limit, matching.size());
+        String next = end < matching.size() ? encodeCursor(end) : null;
+        return new Page(matching.subList(start, end), matching.size(), next);
+    }
+
+    /**
+     * Write the page straight to out, one instance at a time, without building a tree first.
+     */
+    public void write(@NotNull Page page, @NotNull OutputStream out) throws IOException {
+        List<String> names = getFieldNames();
+        List<FieldWriter> writers = getFieldWriters(names);
+        try (JsonGenerator generator = jsonFactory.createGenerator(out, JsonEncoding.UTF8)) {
+            generator.writeStartObject();
+            generator.writeNumberField("total", page.getTotal());
+            generator.writeStringField("next", page.getNext());
+            generator.writeArrayFieldStart("instances");
+            for (CashFlowInstance instance : page.getInstances()) {
+                generator.writeStartObject();
+                for (int i = 0; i < writers.size(); ++i) {
+                    generator.writeFieldName(names.get(i));
+                    writers.get(i).write(generator, instance);
+                }
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package name.wexler.retirement.visualizer;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Amounts as longs counting millionths of a dollar, for the balance walks that add up every instance.
+ *
+ * Everything read from the database is in cents, and the estimators round what they compute to cents or
+ * multiply cents by rates with a few decimal places, so six places hold those amounts exactly and adding them
+ * gives the same result as adding the BigDecimals did.  Anything finer is rounded half up on the way in.
+ * Convert with of and toBigDecimal at the edges; the JSPs, JSON and JDBC still see BigDecimals.
+ */
+public final class Money {
+    public static final int SCALE = 6;
+    public static final long ZERO = 0L;
+    private static final long microsPerCent = 10000L;
+
+    private Money() {
+    }
+
+    /**
+     * @return value in millionths of a dollar, zero if value is null
+     */
+    public static long of(BigDecimal value) {
+        if (value == null)
+            return ZERO;
+        return value.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * @return micros as a BigDecimal, with two decimal places when it is a whole number of cents
+     */
+    public static BigDecimal toBigDecimal(long micros) {
+        if (micros % microsPerCent == 0)
+            return BigDecimal.valueOf(micros / microsPerCent, 2);
+        return BigDecimal.valueOf(micros, SCALE);
+    }
+
+    /**
+     * Round to cents the way setScale(2, RoundingMode.HALF_UP) does, ties away from zero.
+     */
+    public static long roundToCents(long micros) {
+        long remainder = micros % microsPerCent;
+        long cents = micros - remainder;
+        if (remainder >= microsPerCent / 2)
+            cents += microsPerCent;
+        else if (remainder <= -microsPerCent / 2)
+            cents -= microsPerCent;
+        return cents;
+    }
+}
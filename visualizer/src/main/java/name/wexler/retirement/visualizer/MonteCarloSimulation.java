@@ -0,0 +1,178 @@
+package name.wexler.retirement.visualizer;
+
+import name.wexler.retirement.visualizer.Asset.Asset;
+import name.wexler.retirement.visualizer.CashFlowEstimator.Liability;
+import name.wexler.retirement.visualizer.CashFlowInstance.CashFlowInstance;
+import name.wexler.retirement.visualizer.Tables.CashFlowCalendar;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * Runs a scenario's projection under randomized investment returns and inflation.
+ *
+ * The scenario's calendar is boiled down once to a starting net worth and a net cash flow for each projected
+ * year.  Each path then only carries its wealth and a price level as doubles: every year the wealth grows by a
+ * normally distributed return, and the year's net cash flow is scaled by how far the path's inflation has
+ * drifted from the assumed inflation the estimators used.  Paths run in parallel in chunks, each chunk with its
+ * own generator seeded from the simulation's seed, so the same seed gives the same bands.
+ */
+public class MonteCarloSimulation {
+    public static final int MAX_PATHS = 50000;
+    private static final int pathsPerChunk = 250;
+
+    private final int startYear;
+    private final double startingNetWorth;
+    private final double[] netCashFlows;
+    private final double meanReturn;
+    private final double returnStdDev;
+    private final double meanInflation;
+    private final double inflationStdDev;
+
+    @ResponseStatus(value = HttpStatus.BAD_REQUEST)
+    public static class InvalidPathsException extends RuntimeException {
+        public InvalidPathsException(int paths) {
+            super("paths must be between 1 and " + MAX_PATHS + ": " + paths);
+        }
+    }
+
+    /**
+     * Percentile bands of net worth at the end of each year.
+     */
+    public static class Result {
+        private final int startYear;
+        private final int paths;
+        private final double[] p5;
+        private final double[] p50;
+        private final double[] p95;
+
+        private Result(int startYear, int paths, double[] p5, double[] p50, double[] p95) {
+            this.startYear = startYear;
+            this.paths = paths;
+            this.p5 = p5;
+            this.p50 = p50;
+            this.p95 = p95;
+        }
+
+        public int getStartYear() {
+            return startYear;
+        }
+
+        public int getEndYear() {
+            return startYear + p50.length - 1;
+        }
+
+        public int getPaths() {
+            return paths;
+        }
+
+        public double getP5(int year) {
+            return p5[year - startYear];
+        }
+
+        public double getP50(int year) {
+            return p50[year - startYear];
+        }
+
+        public double getP95(int year) {
+            return p95[year - startYear];
+        }
+    }
+
+    public MonteCarloSimulation(int startYear, double startingNetWorth, @NotNull double[] netCashFlows,
+                                @NotNull Assumptions assumptions) {
+        this.startYear = startYear;
+        this.startingNetWorth = startingNetWorth;
+        this.netCashFlows = netCashFlows.clone();
+        this.meanReturn = assumptions.getLongTermInvestmentReturn().doubleValue();
+        this.returnStdDev = assumptions.getLongTermInvestmentReturnStdDev();
+        this.meanInflation = assumptions.getInflation();
+        this.inflationStdDev = assumptions.getInflationStdDev();
+    }
+
+    /**
+     * Start from the scenario's asset values less what's owed on its liabilities at the end of last year, then
+     * add the net of the estimated cash flows into and out of its assets each year through the end of its calendar.
+     */
+    public static MonteCarloSimulation fromScenario(@NotNull Scenario scenario) {
+        CashFlowCalendar calendar = scenario.getCashFlowCalendar();
+        int startYear = LocalDate.now().getYear();
+        Integer lastYear = calendar.getLastYear();
+        int years = lastYear == null || lastYear < startYear ? 0 : lastYear - startYear + 1;
+
+        double startingNetWorth = 0.0;
+        for (Asset asset : calendar.getAssets())
+            startingNetWorth += calendar.getAssetValue(asset.getId(), startYear - 1).doubleValue();
+        for (Liability liability : calendar.getLiabilities().values())
+            startingNetWorth -= calendar.getLiabilityBalance(liability.getId(), startYear - 1).doubleValue();
+
+        double[] netCashFlows = new double[years];
+        for (int i = 0; i < years; ++i) {
+            for (CashFlowInstance instance : calendar.getCashFlowsByYear(startYear + i)) {
+                if (instance.isEstimate() && instance.getCashFlowSink() instanceof Asset)
+                    netCashFlows[i] += instance.getAmount().doubleValue();
+            }
+        }
+        return new MonteCarloSimulation(startYear, startingNetWorth, netCashFlows, scenario.getAssumptions());
+    }
+
+    /**
+     * @throws InvalidPathsException unless 1 <= paths <= MAX_PATHS, since every path takes a double per year
+     */
+    public Result run(int paths, long seed) {
+        if (paths < 1 || paths > MAX_PATHS)
+            throw new InvalidPathsException(paths);
+        int years = netCashFlows.length;
+        // One column per year, so the percentiles can sort each year in place
+        double[][] netWorth = new double[years][paths];
+        int chunks = (paths + pathsPerChunk - 1) / pathsPerChunk;
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            Random random = new Random(seed + chunk);
+            int end = Math.min(paths, (chunk + 1) * pathsPerChunk);
+            for (int path = chunk * pathsPerChunk; path < end; ++path)
+                runPath(random, netWorth, path);
+        });
+
+        double[] p5 = new double[years];
+        double[] p50 = new double[years];
+        double[] p95 = new double[years];
+        IntStream.range(0, years).parallel().forEach(year -> {
+            double[] column = netWorth[year];
+            Arrays.sort(column);
+            p5[year] = percentile(column, 5);
+            p50[year] = percentile(column, 50);
+            p95[year] = percentile(column, 95);
+        });
+        return new Result(startYear, paths, p5, p50, p95);
+    }
+
+    private void runPath(Random random, double[][] netWorth, int path) {
+        double wealth = startingNetWorth;
+        double priceLevel = 1.0;
+        double assumedPriceLevel = 1.0;
+        for (int year = 0; year < netCashFlows.length; ++year) {
+            // A debt doesn't earn the market return
+            if (wealth > 0.0)
+                wealth *= 1.0 + meanReturn + returnStdDev * random.nextGaussian();
+            priceLevel *= 1.0 + meanInflation + inflationStdDev * random.nextGaussian();
+            assumedPriceLevel *= 1.0 + meanInflation;
+            wealth += netCashFlows[year] * priceLevel / assumedPriceLevel;
+            netWorth[year][path] = wealth;
+        }
+    }
+
+    /**
+     * Nearest rank percentile of sorted values.
+     */
+    static double percentile(double[] sorted, int percentile) {
+        if (sorted.length == 0)
+            return Double.NaN;
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.max(rank, 1) - 1];
+    }
+}
@@ -0,0 +1,69 @@
+package name.wexler.retirement.visualizer;
+
+import name.wexler.retirement.visualizer.Tables.CashFlowCalendar;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Objects;
+
+/**
+ * What a page about a scenario depends on, as an ETag and a Last-Modified time.  The calendar's version changes
+ * whenever its instances or balances do, and a rebuild makes new calendars with new versions, so two requests
+ * with the same ETag get the same page.  Versions are only unique within a process, so the build's random id is
+ * part of the ETag too, and a restart against changed data doesn't hand out an ETag a browser already has.  The date is part of it too, since the pages split history from
+ * projections at today.
+ */
+public class PageVersion {
+    static final String ATTRIBUTE = PageVersion.class.getName();
+
+    private final String scenarioId;
+    private final String eTag;
+    private final long lastModified;
+
+    private PageVersion(String scenarioId, String eTag, long lastModified) {
+        this.scenarioId = scenarioId;
+        this.eTag = eTag;
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * @param scenarioId the scenario the page is about, or null for the first one
+     */
+    public static PageVersion of(String scenarioId) {
+        Retirement retirement = Retirement.getInstance();
+        Scenario scenario = scenarioId == null ? retirement.getScenario() : retirement.getScenario(scenarioId);
+        CashFlowCalendar calendar = scenario.getCashFlowCalendar();
+        LocalDate today = LocalDate.now();
+        long startOfToday = today.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        return new PageVersion(scenarioId,
+                "\"" + retirement.getBuildId() + "-" + calendar.getVersion() + "-" + today + "\"",
+                Math.max(calendar.getLastModified(), startOfToday));
+    }
+
+    public String getScenarioId() {
+        return scenarioId;
+    }
+
+    public String getETag() {
+        return eTag;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof PageVersion))
+            return false;
+        PageVersion that = (PageVersion) o;
+        return Objects.equals(scenarioId, that.scenarioId) && eTag.equals(that.eTag);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(scenarioId, eTag);
+    }
+}
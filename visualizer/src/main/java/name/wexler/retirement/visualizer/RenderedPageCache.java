@@ -0,0 +1,188 @@
+package name.wexler.retirement.visualizer;
+
+import org.springframework.web.context.request.ServletWebRequest;
+
+import javax.servlet.*;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the most recently rendered pages and serves them again, without running the controller or the JSP, for
+ * as long as the version ConditionalGetInterceptor gave them is current.  Pages are keyed by URL, which holds the
+ * view and its path variables, and least recently used pages are dropped once there are maxEntries of them.
+ *
+ * Optional: it only runs if web.xml maps it.
+ */
+public class RenderedPageCache implements Filter {
+    public static final int defaultMaxEntries = 64;
+
+    private Map<String, Page> pages;
+
+    private static class Page {
+        private final PageVersion version;
+        private final String contentType;
+        private final byte[] body;
+
+        private Page(PageVersion version, String contentType, byte[] body) {
+            this.version = version;
+            this.contentType = contentType;
+            this.body = body;
+        }
+    }
+
+    /**
+     * Collects what the JSP writes instead of sending it, so it can be kept as well as sent.
+     */
+    private static class CapturingResponse extends HttpServletResponseWrapper {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private ServletOutputStream outputStream = null;
+        private PrintWriter writer = null;
+
+        private CapturingResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            if (writer != null)
+                throw new IllegalStateException("getWriter has already been called");
+            if (outputStream == null) {
+                outputStream = new ServletOutputStream() {
+                    @Override
+                    public boolean isReady() {
+                        return true;
+                    }
+
+                    @Override
+                    public void setWriteListener(WriteListener writeListener) {
+                        throw new UnsupportedOperationException();
+                    }
+
+                    @Override
+                    public void write(int b) {
+                        bytes.write(b);
+                    }
+
+                    @Override
+                    public void write(byte[] b, int off, int len) {
+                        bytes.write(b, off, len);
+                    }
+                };
+            }
+            return outputStream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (outputStream != null)
+                throw new IllegalStateException("getOutputStream has already been called");
+            if (writer == null)
+                writer = new PrintWriter(new OutputStreamWriter(bytes, getCharacterEncoding()));
+            return writer;
+        }
+
+        @Override
+        public void flushBuffer() {
+            if (writer != null)
+                writer.flush();
+        }
+
+        @Override
+        public void resetBuffer() {
+            super.resetBuffer();
+            bytes.reset();
+        }
+
+        @Override
+        public void reset() {
+            super.reset();
+            bytes.reset();
+        }
+
+        @Override
+        public void setContentLength(int len) {
+        }
+
+        @Override
+        public void setContentLengthLong(long len) {
+        }
+
+        byte[] toByteArray() {
+            flushBuffer();
+            return bytes.toByteArray();
+        }
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig) {
+        String maxEntriesParam = filterConfig.getInitParameter("maxEntries");
+        int maxEntries = maxEntriesParam == null ? defaultMaxEntries : Integer.parseInt(maxEntriesParam);
+        pages = Collections.synchronizedMap(new LinkedHashMap<String, Page>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Page> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    private static boolean isCurrent(Page page) {
+        try {
+            return page.version.equals(PageVersion.of(page.version.getScenarioId()));
+        } catch (RuntimeException e) {
+            // Not ready or the scenario is gone; let the controller say so
+            return false;
+        }
+    }
+
+    @Override
+    public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain chain)
+            throws IOException, ServletException {
+        HttpServletRequest request = (HttpServletRequest) servletRequest;
+        HttpServletResponse response = (HttpServletResponse) servletResponse;
+        if (!"GET".equals(request.getMethod())) {
+            chain.doFilter(request, response);
+            return;
+        }
+        String key = request.getQueryString() == null ?
+                request.getRequestURI() :
+                request.getRequestURI() + "?" + request.getQueryString();
+
+        Page page = pages.get(key);
+        if (page != null) {
+            if (isCurrent(page)) {
+                PageVersion version = page.version;
+                if (new ServletWebRequest(request, response).checkNotModified(version.getETag(), version.getLastModified()))
+                    return;
+                response.setContentType(page.contentType);
+                response.setContentLength(page.body.length);
+                response.getOutputStream().write(page.body);
+                return;
+            }
+            pages.remove(key);
+        }
+
+        CapturingResponse capture = new CapturingResponse(response);
+        chain.doFilter(request, capture);
+        byte[] body = capture.toByteArray();
+        PageVersion version = (PageVersion) request.getAttribute(PageVersion.ATTRIBUTE);
+        if (version != null && capture.getStatus() == HttpServletResponse.SC_OK && body.length > 0)
+            pages.put(key, new Page(version, capture.getContentType(), body));
+        if (body.length > 0) {
+            response.setContentLength(body.length);
+            response.getOutputStream().write(body);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        pages.clear();
+    }
+}
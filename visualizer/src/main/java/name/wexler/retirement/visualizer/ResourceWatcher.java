@@ -0,0 +1,92 @@
+package name.wexler.retirement.visualizer;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Watches the JSON files in the resource directory, and the datastore for commits from elsewhere such as a
+ * crawler run, and calls onChange when either changes.  Changes are debounced: onChange runs once things have
+ * been quiet for a while, so an editor saving several files or a crawler committing account after account
+ * turns into one call.
+ */
+public class ResourceWatcher implements Runnable {
+    private static final long defaultPollMillis = 2000;
+    private static final long defaultQuietMillis = 1000;
+
+    private final Path resourceDir;
+    private final LongSupplier dataVersion;
+    private final Runnable onChange;
+    private final long pollMillis;
+    private final long quietMillis;
+    private Thread thread = null;
+
+    public ResourceWatcher(@NotNull Path resourceDir, @NotNull LongSupplier dataVersion, @NotNull Runnable onChange) {
+        this(resourceDir, dataVersion, onChange, defaultPollMillis, defaultQuietMillis);
+    }
+
+    ResourceWatcher(@NotNull Path resourceDir, @NotNull LongSupplier dataVersion, @NotNull Runnable onChange,
+                    long pollMillis, long quietMillis) {
+        this.resourceDir = resourceDir;
+        this.dataVersion = dataVersion;
+        this.onChange = onChange;
+        this.pollMillis = pollMillis;
+        this.quietMillis = quietMillis;
+    }
+
+    public synchronized void start() {
+        if (thread != null)
+            return;
+        thread = new Thread(this, "resource-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public synchronized void stop() {
+        if (thread == null)
+            return;
+        thread.interrupt();
+        thread = null;
+    }
+
+    @Override
+    public void run() {
+        try (WatchService watchService = resourceDir.getFileSystem().newWatchService()) {
+            resourceDir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+            long lastVersion = dataVersion.getAsLong();
+            long changedAt = 0;     // When the last change not yet passed on was seen, 0 if there isn't one
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = watchService.poll(changedAt == 0 ? pollMillis : quietMillis, TimeUnit.MILLISECONDS);
+                long now = System.currentTimeMillis();
+                if (key != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == OVERFLOW || event.context().toString().endsWith(".json"))
+                            changedAt = now;
+                    }
+                    if (!key.reset()) {
+                        System.err.println("Stopped watching " + resourceDir + ", it's gone");
+                        return;
+                    }
+                }
+                long version = dataVersion.getAsLong();
+                if (version != lastVersion) {
+                    lastVersion = version;
+                    changedAt = now;
+                }
+                if (changedAt != 0 && now - changedAt >= quietMillis) {
+                    changedAt = 0;
+                    onChange.run();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Stopped
+        } catch (IOException ioe) {
+            System.err.println("Can't watch " + resourceDir + ": " + ioe);
+        }
+    }
+}
@@ -24,50 +24,181 @@
 package name.wexler.retirement.visualizer;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.sql.DriverManager;
 import java.sql.SQLException;
-import java.util.List;
-import java.util.Locale;
-
-import com.fasterxml.jackson.databind.JsonMappingException;
-import com.fasterxml.jackson.core.JsonGenerationException;
+import java.util.*;
+import java.util.concurrent.*;
 
 import name.wexler.retirement.datastore.DataStore;
+import name.wexler.retirement.jdbcDrivers.generic.OpenProfile;
 import name.wexler.retirement.visualizer.Asset.AssetAccount;
 import name.wexler.retirement.visualizer.Tables.CashFlowCalendar;
 import name.wexler.retirement.visualizer.CashFlowFrequency.CashFlowFrequency;
 import name.wexler.retirement.visualizer.Asset.Asset;
 import name.wexler.retirement.visualizer.CashFlowInstance.SecurityTransaction;
 import name.wexler.retirement.visualizer.CashFlowEstimator.CashFlowEstimator;
+import name.wexler.retirement.visualizer.Entity.CategoryDictionary;
 import name.wexler.retirement.visualizer.Entity.Company;
 import name.wexler.retirement.visualizer.Entity.Person;
 import name.wexler.retirement.visualizer.Expense.Expense;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.sqlite.JDBC;
 
-import static org.mockito.Mockito.mock;
-
 
 /**
  * Created by mwexler on 6/28/16.
  */
 public class Retirement {
-    private List<Scenario> scenarios;
-    private List<Person> people;
-    static private final DataStore ds;
-    static private Retirement INSTANCE = null;
+    @ResponseStatus(HttpStatus.NOT_FOUND)
+    public static class ScenarioNotFoundException extends RuntimeException {
+        public ScenarioNotFoundException(String scenarioId) {
+            super("No such scenario: " + scenarioId);
+        }
+    }
 
+    /**
+     * Thrown to requests that arrive before the first build has finished.
+     */
+    @ResponseStatus(value = HttpStatus.SERVICE_UNAVAILABLE, reason = "Scenarios are still being built")
+    public static class NotReadyException extends RuntimeException {
+        public NotReadyException() {
+            super("Scenarios are still being built");
+        }
+    }
+
+    public enum BuildState {BUILDING, READY, REBUILDING, FAILED}
+
+    private final Map<String, Scenario> scenarios = new LinkedHashMap<>();
+    private final List<Person> people;
+    // Calendar versions start again at 1 in every JVM; this keeps ETags from a previous process or build apart
+    private final String buildId = Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+    // Readers take whatever instance is here; a rebuild swaps in a new one without ever blocking them
+    static private volatile Retirement INSTANCE = null;
+    static private final ExecutorService builder = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "retirement-build");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Guarded by Retirement.class
+    static private CompletableFuture<Retirement> build = null;
+    static private boolean rebuildPending = false;
+    static private volatile Throwable buildFailure = null;
+
+    /**
+     * @return the last completely built instance
+     * @throws NotReadyException if there isn't one yet, after starting a build if none is running
+     */
     public static Retirement getInstance() {
-        if (INSTANCE == null) {
-            synchronized(Retirement.class) {
-                INSTANCE = new Retirement();
+        Retirement current = INSTANCE;
+        if (current == null) {
+            rebuild();
+            throw new NotReadyException();
+        }
+        return current;
+    }
+
+    /**
+     * Start building a new instance in the background, or return the build already running.  When it finishes
+     * it replaces the current instance; requests already holding the old one finish with it.
+     */
+    public static CompletableFuture<Retirement> rebuild() {
+        return rebuild(Retirement::new);
+    }
+
+    /**
+     * Like rebuild, but build the new instance with factory.  If factory throws, the current instance stays.
+     */
+    static synchronized CompletableFuture<Retirement> rebuild(Callable<Retirement> factory) {
+        if (build != null && !build.isDone())
+            return build;
+        CompletableFuture<Retirement> next = new CompletableFuture<>();
+        Future<?> task = builder.submit(() -> {
+            try {
+                Retirement retirement = factory.call();
+                synchronized (Retirement.class) {
+                    if (next.isCancelled())
+                        return;
+                    INSTANCE = retirement;
+                    buildFailure = null;
+                }
+                next.complete(retirement);
+            } catch (CancellationException ce) {
+                next.cancel(false);
+            } catch (Throwable t) {
+                System.err.println("Build failed: " + t);
+                t.printStackTrace();
+                buildFailure = t;
+                next.completeExceptionally(t);
+            } finally {
+                startPendingRebuild();
             }
+        });
+        // CompletableFuture.cancel doesn't interrupt anything, so pass it on to the task
+        next.whenComplete((retirement, t) -> {
+            if (next.isCancelled())
+                task.cancel(true);
+        });
+        build = next;
+        return next;
+    }
+
+    /**
+     * Rebuild because the inputs changed.  Unlike rebuild, if a build is already running this starts another
+     * once it finishes, since the running one may have read the inputs before they changed.  Any number of
+     * requests during one build come to a single rebuild after it.
+     */
+    public static synchronized void requestRebuild() {
+        if (build != null && !build.isDone())
+            rebuildPending = true;
+        else
+            rebuild();
+    }
+
+    private static synchronized void startPendingRebuild() {
+        if (rebuildPending) {
+            rebuildPending = false;
+            rebuild();
         }
-        return INSTANCE;
     }
 
+    /**
+     * Stop the build that's running, if any, along with any rebuild requested after it.  The current instance,
+     * if there is one, stays.
+     */
+    public static synchronized void cancelBuild() {
+        rebuildPending = false;
+        if (build != null)
+            build.cancel(true);
+    }
+
+    public static synchronized BuildState getBuildState() {
+        boolean building = build != null && !build.isDone();
+        if (INSTANCE != null)
+            return building ? BuildState.REBUILDING : BuildState.READY;
+        if (building || buildFailure == null)
+            return BuildState.BUILDING;
+        return BuildState.FAILED;
+    }
+
+    public static Throwable getBuildFailure() {
+        return buildFailure;
+    }
+
+    private static void checkCancelled() {
+        if (Thread.currentThread().isInterrupted())
+            throw new CancellationException("Build cancelled");
+    }
+
+    /**
+     * Read everything and build every scenario.  Anything that can't be read fails the whole build, so a
+     * half-saved JSON file never replaces a good instance with a partial one.
+     */
     private Retirement() {
         AccountReader accountReader = new AccountReader();
         Context context = new Context(accountReader);
+        DataStore ds = getDataStore();
 
         try {
             this.people = Person.readPeople(context);
@@ -79,20 +210,96 @@ public class Retirement {
             Security.readSecurities(context, ds);
             CashFlowEstimator.readCashFlowSources(context);
             Asset.readAssets(context);
+            checkCancelled();
 
-            this.scenarios = Scenario.readScenarios(context);
-        } catch (JsonGenerationException | JsonMappingException e) {
-            e.printStackTrace();
+            CategoryDictionary.readCategoryMapping(ds);
+            HistoricalCashFlows history = new HistoricalCashFlows(context, accountReader);
+            checkCancelled();
+            scenarios.putAll(readScenarios(context));
+            buildScenarios(scenarios.values(), history);
         } catch (IOException e) {
-            e.printStackTrace();
+            throw new UncheckedIOException("Can't read " + Context.getResourceDir(), e);
+        } finally {
+            // The build threads are done with their statements until the next build
+            ds.releaseStatements();
         }
     }
 
+    Retirement(List<Person> people, Collection<Scenario> scenarios) {
+        this.people = people;
+        for (Scenario scenario : scenarios)
+            this.scenarios.put(scenario.getId(), scenario);
+    }
+
+    /**
+     * @return the scenarios in scenarios.json by id, in file order
+     * @throws IOException if it can't be read or parsed
+     * @throws IllegalStateException if it has no scenarios, since every page needs one
+     */
+    static Map<String, Scenario> readScenarios(Context context) throws IOException {
+        Map<String, Scenario> scenarios = new LinkedHashMap<>();
+        for (Scenario scenario : Scenario.readScenarios(context))
+            scenarios.put(scenario.getId(), scenario);
+        if (scenarios.isEmpty())
+            throw new IllegalStateException("No scenarios in scenarios.json");
+        return scenarios;
+    }
+
+    /**
+     * Build every scenario's calendar at once on top of the same history.
+     */
+    static void buildScenarios(Collection<Scenario> scenarios, HistoricalCashFlows history) {
+        ExecutorService executorService =
+                Executors.newFixedThreadPool(Math.max(1, Math.min(scenarios.size(), Runtime.getRuntime().availableProcessors())));
+        try {
+            List<CompletableFuture<Void>> builds = new ArrayList<>(scenarios.size());
+            for (Scenario scenario : scenarios)
+                builds.add(CompletableFuture.runAsync(() -> scenario.build(history), executorService));
+            CompletableFuture.allOf(builds.toArray(new CompletableFuture[0])).get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new CompletionException(e.getCause());
+        } catch (InterruptedException e) {
+            // Cancelled; stop the scenarios that haven't started and interrupt the rest
+            executorService.shutdownNow();
+            throw new CancellationException("Build cancelled");
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    /**
+     * @return the first scenario in scenarios.json
+     */
     public Scenario getScenario() {
-        return scenarios.get(0);
+        return scenarios.values().iterator().next();
+    }
+
+    public Scenario getScenario(String scenarioId) {
+        Scenario scenario = scenarios.get(scenarioId);
+        if (scenario == null)
+            throw new ScenarioNotFoundException(scenarioId);
+        return scenario;
+    }
+
+    /**
+     * @return a random id for this build, so ETags handed out by other builds and other processes don't match
+     */
+    public String getBuildId() {
+        return buildId;
+    }
+
+    public Collection<Scenario> getScenarios() {
+        return Collections.unmodifiableCollection(scenarios.values());
+    }
+
+    // Opened on first use rather than when the class loads, so nothing touches the database until a build does
+    private static class DataStoreHolder {
+        static final DataStore ds = new DataStore(OpenProfile.READ_ONLY);
     }
 
-    static public DataStore getDataStore() { return ds; }
+    static public DataStore getDataStore() { return DataStoreHolder.ds; }
 
     public List<Person> getPeople() {
         return people;
@@ -100,7 +307,7 @@ public class Retirement {
 
 
     public CashFlowCalendar getCashFlowCalendar(String scenarioId) {
-        return getScenario().getCashFlowCalendar();
+        return getScenario(scenarioId).getCashFlowCalendar();
     }
 
 
@@ -110,7 +317,6 @@ public class Retirement {
         } catch (SQLException var1) {
             var1.printStackTrace();
         }
-        ds = new DataStore();
     }
 }
 
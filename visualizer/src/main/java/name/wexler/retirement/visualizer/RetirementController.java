@@ -32,19 +32,21 @@ import name.wexler.retirement.visualizer.CashFlowInstance.LiabilityCashFlowInsta
 import name.wexler.retirement.datastore.DataStore;
 
 import name.wexler.retirement.visualizer.CashFlowInstance.SecurityTransaction;
+import name.wexler.retirement.visualizer.Entity.CategoryDictionary;
 import name.wexler.retirement.visualizer.Tables.CashFlowCalendar;
 import name.wexler.retirement.visualizer.Tables.CashFlowTableList;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.ModelMap;
 import org.springframework.web.servlet.ModelAndView;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 
-import java.util.Collection;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 import java.util.stream.Collectors;
 
 @Controller
@@ -52,7 +54,6 @@ public class RetirementController {
 
     private static final String VIEW_INDEX = "index";
     private final static org.slf4j.Logger logger = LoggerFactory.getLogger(RetirementController.class);
-    Retirement retirement = Retirement.getInstance();
 
     @RequestMapping(value = "/visualizer/scenario/{scenarioId}/asset/{assetId}/year/{year}", method = RequestMethod.GET)
     public ModelAndView retirementAsset(@PathVariable String assetId,
@@ -64,10 +65,7 @@ public class RetirementController {
         model.put("scenarioId", scenarioId);
         model.put("year", year);
         List<CashFlowInstance> selectedCashFlows =
-                retirement.getCashFlowCalendar(scenarioId).getCashFlowInstances().stream().
-                        filter(instance -> instance.getCashFlowSinkId().equals(assetId)).
-                        filter(instance -> instance.getYear() == year).
-                        collect(Collectors.toList());
+                Retirement.getInstance().getCashFlowCalendar(scenarioId).getCashFlowsBySink(assetId, year);
         model.put("cashFlows", selectedCashFlows);
         return new ModelAndView("asset", "command", model);
     }
@@ -77,9 +75,7 @@ public class RetirementController {
         model.put("assetId", assetId);
         model.put("scenarioId", scenarioId);
         List<CashFlowInstance> selectedCashFlows =
-                retirement.getCashFlowCalendar(scenarioId).getCashFlowInstances().stream().
-                        filter(instance -> instance.getCashFlowSinkId().equals(assetId)).
-                        collect(Collectors.toList());
+                Retirement.getInstance().getCashFlowCalendar(scenarioId).getCashFlowsBySink(assetId);
         model.put("cashFlows", selectedCashFlows);
         return new ModelAndView("asset", "command", model);
     }
@@ -89,8 +85,8 @@ public class RetirementController {
         model.put("assetId", assetId);
         model.put("scenarioId", scenarioId);
         List<SecurityTransaction> selectedCashFlows =
-                retirement.getCashFlowCalendar(scenarioId).getCashFlowInstances().stream().
-                        filter(instance -> instance.getCashFlowSinkId().equals(assetId) && instance instanceof SecurityTransaction).
+                Retirement.getInstance().getCashFlowCalendar(scenarioId).getCashFlowsBySink(assetId).stream().
+                        filter(instance -> instance instanceof SecurityTransaction).
                         map(instance -> (SecurityTransaction) instance).
                         collect(Collectors.toList());
         model.put("cashFlows", selectedCashFlows);
@@ -107,7 +103,7 @@ public class RetirementController {
         model.put("year", year);
         model.put("groupBy", "");
         List<LiabilityCashFlowInstance> cashFlowInstances =
-                retirement.getCashFlowCalendar(scenarioId).
+                Retirement.getInstance().getCashFlowCalendar(scenarioId).
                         getLiabilityCashFlowInstances(liabilityId, year);
         model.put("cashFlows", cashFlowInstances);
         return new ModelAndView("cashFlows", "command", model);
@@ -120,7 +116,7 @@ public class RetirementController {
         model.put("cashFlowId", liabilityId);
         model.put("scenarioId", scenarioId);
         model.put("groupBy", "");
-        List<LiabilityCashFlowInstance> cashFlowInstances = retirement.getCashFlowCalendar(scenarioId).getLiabilityCashFlowInstances(liabilityId);
+        List<LiabilityCashFlowInstance> cashFlowInstances = Retirement.getInstance().getCashFlowCalendar(scenarioId).getLiabilityCashFlowInstances(liabilityId);
         model.put("cashFlows", cashFlowInstances);
         return new ModelAndView("cashFlows", "command", model);
     }
@@ -134,10 +130,10 @@ public class RetirementController {
         model.put("category", category);
         model.put("scenarioId", scenarioId);
         model.put("groupBy", "");
+        int groupingId = CategoryDictionary.lookup(grouping);
         List<CashFlowInstance> selectedCashFlows =
-                retirement.getCashFlowCalendar(scenarioId).getCashFlowInstances().stream().
-                        filter(instance -> instance.getItemType().equals(grouping)).
-                        filter(instance -> instance.getCategory().equals(category)).
+                Retirement.getInstance().getCashFlowCalendar(scenarioId).getCashFlowsByCategory(category).stream().
+                        filter(instance -> instance.getItemTypeId() == groupingId).
                         filter(instance -> instance.getAccrualEnd().getYear() == year).
                         sorted().
                         collect(Collectors.toList());
@@ -155,10 +151,10 @@ public class RetirementController {
         model.put("category", "All");
         model.put("grouping", grouping);
         model.put("year", year);
+        int groupingId = CategoryDictionary.lookup(grouping);
         List<CashFlowInstance> selectedCashFlows =
-                retirement.getCashFlowCalendar(scenarioId).getCashFlowInstances().stream().
-                        filter(instance -> instance.getCashFlowDate().getYear() == year).
-                        filter(instance -> instance.getItemType().equals(grouping)).
+                Retirement.getInstance().getCashFlowCalendar(scenarioId).getCashFlowsByYear(year).stream().
+                        filter(instance -> instance.getItemTypeId() == groupingId).
                         sorted().
                         collect(Collectors.toList());
         model.put("cashFlows", selectedCashFlows);
@@ -175,8 +171,7 @@ public class RetirementController {
         model.put("grouping", "All");
         model.put("year", year);
         List<CashFlowInstance> selectedCashFlows =
-                retirement.getCashFlowCalendar(scenarioId).getCashFlowInstances().stream().
-                        filter(instance -> instance.getCashFlowDate().getYear() == year).
+                Retirement.getInstance().getCashFlowCalendar(scenarioId).getCashFlowsByYear(year).stream().
                         sorted().
                         collect(Collectors.toList());
         model.put("cashFlows", selectedCashFlows);
@@ -193,43 +188,95 @@ public class RetirementController {
         model.put("groupBy", "");
 
         List<CashFlowInstance> selectedCashFlows =
-                retirement.getCashFlowCalendar(scenarioId).getCashFlowInstances().stream().
-                        filter(instance -> instance.getCategory().equals(category)).
+                Retirement.getInstance().getCashFlowCalendar(scenarioId).getCashFlowsByCategory(category).stream().
                         sorted().
                         collect(Collectors.toList());
         model.put("cashFlows", selectedCashFlows);
         return new ModelAndView("cashFlows", "command", model);
     }
 
+    @RequestMapping(value = "/visualizer/scenario/{scenarioId}/monte-carlo", method = RequestMethod.GET)
+    public ModelAndView retirementMonteCarlo(@PathVariable String scenarioId,
+                                             @RequestParam(defaultValue = "10000") int paths,
+                                             @RequestParam(defaultValue = "0") long seed,
+                                             ModelMap model) {
+        if (paths < 1 || paths > MonteCarloSimulation.MAX_PATHS)
+            throw new MonteCarloSimulation.InvalidPathsException(paths);
+        model.put("scenarioId", scenarioId);
+        model.put("paths", paths);
+        MonteCarloSimulation.Result result =
+                MonteCarloSimulation.fromScenario(Retirement.getInstance().getScenario(scenarioId)).run(paths, seed);
+        List<Map<String, Object>> bands = new ArrayList<>();
+        for (int year = result.getStartYear(); year <= result.getEndYear(); ++year) {
+            Map<String, Object> band = new HashMap<>();
+            band.put("year", year);
+            band.put("p5", result.getP5(year));
+            band.put("p50", result.getP50(year));
+            band.put("p95", result.getP95(year));
+            bands.add(band);
+        }
+        model.put("bands", bands);
+        return new ModelAndView("monteCarlo", model);
+    }
+
+    /**
+     * For load balancers and scripts: 200 once there's something to serve, 503 until then.
+     */
+    @RequestMapping(value = "/visualizer/ready", method = RequestMethod.GET)
+    public ResponseEntity<String> retirementReady() {
+        Retirement.BuildState state = Retirement.getBuildState();
+        boolean ready = state == Retirement.BuildState.READY || state == Retirement.BuildState.REBUILDING;
+        return new ResponseEntity<>(state.name(), ready ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    /**
+     * Rebuild everything in the background; the current scenarios keep serving until the new ones are done.
+     */
+    @RequestMapping(value = "/visualizer/rebuild", method = RequestMethod.POST)
+    public ResponseEntity<String> retirementRebuild() {
+        Retirement.rebuild();
+        return new ResponseEntity<>(Retirement.getBuildState().name(), HttpStatus.ACCEPTED);
+    }
+
     @RequestMapping(value = "/visualizer", method = RequestMethod.GET)
     public ModelAndView retirement(ModelMap model) {
-        CashFlowCalendar cashFlowCalendar = retirement.getCashFlowCalendar(retirement.getScenario().getId());
-        List<CashFlowInstance> cashFlowInstances = cashFlowCalendar.getCashFlowInstances();
-        int startYear = cashFlowInstances.stream().
-                map(CashFlowInstance::getYear).
-                min(Integer::compareTo).
-                get();
-        int endYear = cashFlowInstances.stream().
-                map(CashFlowInstance::getYear).
-                max(Integer::compareTo).
-                get();
-        return retirementYearRange(model, startYear, endYear);
+        return retirementScenario(Retirement.getInstance().getScenario().getId(), model);
     }
 
     @RequestMapping(value = "/visualizer/year-range/{startYear}/{endYear}", method = RequestMethod.GET)
     public ModelAndView retirementYearRange(ModelMap model,
                                             @PathVariable int startYear,
                                             @PathVariable int endYear) {
-        CashFlowCalendar cashFlowCalendar = retirement.getCashFlowCalendar(retirement.getScenario().getId());
-        model.put("cashFlows", CashFlowTableList.getCashFlowTable(retirement.getScenario(), cashFlowCalendar,
-                cashFlowCalendar.getCashFlowInstances(), startYear, endYear));
+        return retirementYearRange(Retirement.getInstance().getScenario().getId(), startYear, endYear, model);
+    }
+
+    @RequestMapping(value = "/visualizer/scenario/{scenarioId}", method = RequestMethod.GET)
+    public ModelAndView retirementScenario(@PathVariable String scenarioId, ModelMap model) {
+        CashFlowCalendar cashFlowCalendar = Retirement.getInstance().getCashFlowCalendar(scenarioId);
+        int startYear = cashFlowCalendar.getFirstYear();
+        int endYear = cashFlowCalendar.getLastYear();
+        return retirementYearRange(scenarioId, startYear, endYear, model);
+    }
+
+    @RequestMapping(value = "/visualizer/scenario/{scenarioId}/year-range/{startYear}/{endYear}", method = RequestMethod.GET)
+    public ModelAndView retirementYearRange(@PathVariable String scenarioId,
+                                            @PathVariable int startYear,
+                                            @PathVariable int endYear,
+                                            ModelMap model) {
+        // One instance for the whole page, even if a rebuild is swapped in meanwhile
+        Retirement retirement = Retirement.getInstance();
+        Scenario scenario = retirement.getScenario(scenarioId);
+        CashFlowCalendar cashFlowCalendar = scenario.getCashFlowCalendar();
+        model.put("cashFlows", CashFlowTableList.getCashFlowTable(scenario, cashFlowCalendar, startYear, endYear));
         model.put("assetsAndLiabilities", CashFlowTableList.getAssetsAndLiabilities(
-                retirement.getScenario(),
+                scenario,
                 cashFlowCalendar,
                 startYear, endYear));
-        model.put("scenario", retirement.getPeople().get(0));
-        model.put("assumptions", retirement.getScenario().getAssumptions());
+        model.put("scenario", scenario);
+        model.put("scenarioId", scenarioId);
+        model.put("scenarios", retirement.getScenarios());
+        model.put("assumptions", scenario.getAssumptions());
         model.put("people", retirement.getPeople());
         return new ModelAndView("retirement", model);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,61 @@
+package name.wexler.retirement.visualizer;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.servlet.ModelAndView;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Starts building the scenarios in the background as soon as the application context is up, so the first
+ * request doesn't pay for it, and stops the build on shutdown.  Until the first build is done, requests that
+ * need it get a page saying so instead of waiting.  After that, edits to the JSON files or new data in the
+ * datastore rebuild everything in the background, and the new build is swapped in when it's done.
+ */
+@ControllerAdvice
+public class RetirementLifecycle {
+    private static final int RETRY_AFTER_SECONDS = 5;
+    // Shared, since both the root and servlet contexts create one of these
+    private static ResourceWatcher watcher = null;
+
+    @PostConstruct
+    public void start() {
+        Retirement.rebuild();
+        synchronized (RetirementLifecycle.class) {
+            if (watcher == null) {
+                watcher = new ResourceWatcher(Context.getResourceDir(),
+                        Retirement.getDataStore()::getDataVersion,
+                        Retirement::requestRebuild);
+                watcher.start();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        boolean last = false;
+        synchronized (RetirementLifecycle.class) {
+            if (watcher != null) {
+                watcher.stop();
+                watcher = null;
+                last = true;
+            }
+        }
+        Retirement.cancelBuild();
+        if (last)
+            Retirement.getDataStore().close();
+    }
+
+    @ExceptionHandler(Retirement.NotReadyException.class)
+    public ModelAndView building(HttpServletResponse response) {
+        response.setHeader("Retry-After", Integer.toString(RETRY_AFTER_SECONDS));
+        ModelAndView modelAndView = new ModelAndView("building");
+        modelAndView.setStatus(HttpStatus.SERVICE_UNAVAILABLE);
+        modelAndView.addObject("state", Retirement.getBuildState());
+        modelAndView.addObject("retryAfter", RETRY_AFTER_SECONDS);
+        return modelAndView;
+    }
+}
@@ -26,18 +26,22 @@ package name.wexler.retirement.visualizer;
 
 import com.fasterxml.jackson.annotation.*;
 import name.wexler.retirement.visualizer.Asset.AssetAccount;
-import name.wexler.retirement.visualizer.CashFlowEstimator.CASH_ESTIMATE_PASS;
 import name.wexler.retirement.visualizer.Entity.Category;
 import name.wexler.retirement.visualizer.Tables.CashFlowCalendar;
 import name.wexler.retirement.visualizer.Asset.Asset;
 import name.wexler.retirement.visualizer.CashFlowInstance.CashFlowInstance;
 import name.wexler.retirement.visualizer.CashFlowEstimator.CashFlowEstimator;
+import name.wexler.retirement.visualizer.CashFlowEstimator.EquityCompensation;
+import name.wexler.retirement.visualizer.CashFlowEstimator.EstimatorScheduler;
 import name.wexler.retirement.visualizer.CashFlowEstimator.Liability;
 import name.wexler.retirement.visualizer.Entity.Entity;
 import org.jetbrains.annotations.NotNull;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Created by mwexler on 6/28/16.
@@ -46,11 +50,15 @@ import java.util.*;
 @JsonIgnoreProperties(ignoreUnknown = true)
 @JsonPropertyOrder({ "id", "assumptions", "name", "cashFlowSources"})
 public class Scenario extends Entity {
+    private final static org.slf4j.Logger logger = LoggerFactory.getLogger(Scenario.class);
     private final String name;
     private final Assumptions _assumptions;
     private static final String scenariosPath = "scenarios.json";
-    private AccountReader accountReader;
+    private static final ExecutorService estimatorPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
     private final List<CashFlowEstimator> _cashFlowEstimators;
+    private final List<Asset> _assets;
+    @JsonIgnore
+    private final EstimatorScheduler scheduler;
 
     @JsonIgnore
     private final CashFlowCalendar calendar;
@@ -75,30 +83,52 @@ public class Scenario extends Entity {
              @JsonProperty(value = "assumptions", required = true) Assumptions assumptions) throws DuplicateEntityException {
         super(context, id, Scenario.class);
         this.name = name;
-        this.accountReader = accountReader;
         this._assumptions = assumptions;
 
         _cashFlowEstimators = new ArrayList<>();
         setCashFlowEstimators(context, cashFlowEstimators);
+        scheduler = new EstimatorScheduler(_cashFlowEstimators);
         calendar = new CashFlowCalendar(this, assumptions);
-        List<Asset> assetList = setAssetIds(context, assets);
-        calendar.addCashFlowInstances(getHistoricalCashFlowInstances());
-        calendar.addCashFlowInstances(getEstimatedAssetValues(assetList));
-        calendar.addBudgets(getBudgets());
-        setCurrentBalances();
-        Iterator<CASH_ESTIMATE_PASS> passIterator =
-                CASH_ESTIMATE_PASS.BASE_CASH_FLOWS.iterator();
-        while (passIterator.hasNext()) {
-            CASH_ESTIMATE_PASS pass = passIterator.next();
-            List<CashFlowInstance> cashFlowInstances = getFutureCashFlowInstances(calendar, pass);
-            calendar.addCashFlowInstances(cashFlowInstances);
-        }
-        calendar.computeBalances();
+        _assets = setAssetIds(context, assets);
         setLiabilityIds(context, liabilities);
         setAccountIds(context, accounts);
         context.put(Scenario.class, id, this);
     }
 
+    /**
+     * Fill in the calendar: the shared history, then this scenario's estimates, then the balances.  Scenarios
+     * can be built concurrently; only the parts that touch shared accounts and assets take turns.
+     */
+    public void build(@NotNull HistoricalCashFlows history) {
+        Security.prefetch(getContext(), getSecurities());
+        calendar.addCashFlowInstances(history.getCashFlowInstances());
+        calendar.addCashFlowInstances(history.walkBalances(() -> getEstimatedAssetValues(_assets)));
+        calendar.addBudgets(history.getBudgets());
+        addFutureCashFlowInstances(_cashFlowEstimators);
+        history.walkBalances(() -> {
+            history.setCurrentBalances();
+            calendar.computeBalances();
+            return null;
+        });
+    }
+
+    /**
+     * Run the estimators, each as soon as the ones it reads from are done, adding each one's estimates to the
+     * calendar as its own segment.
+     */
+    private void addFutureCashFlowInstances(@NotNull Collection<CashFlowEstimator> estimators) {
+        EstimatorScheduler.Schedule schedule = scheduler.run(calendar, estimators, estimatorPool);
+        schedule.getEstimates().forEach((estimator, cashFlowInstances) ->
+                calendar.addProjectedCashFlowInstances(estimator.getId(), cashFlowInstances));
+        logger.debug("{}: {}", getId(), schedule);
+    }
+
+    @JsonIgnore
+    public @NotNull
+    List<CashFlowEstimator> getCashFlowEstimators() {
+        return Collections.unmodifiableList(_cashFlowEstimators);
+    }
+
     private @NotNull
     List<CashFlowInstance> getEstimatedAssetValues(@NotNull List<Asset> assets) {
         final List<CashFlowInstance> cashFlowInstances = new ArrayList<>();
@@ -111,52 +141,22 @@ public class Scenario extends Entity {
         return cashFlowInstances;
     }
 
+    /**
+     * @return securities whose prices this scenario's estimators will need
+     */
     private @NotNull
-    List<CashFlowInstance> getFutureCashFlowInstances
-            (
-                    @NotNull CashFlowCalendar calendar,
-                    @NotNull CASH_ESTIMATE_PASS pass
-            ) {
-        final List<CashFlowInstance> cashFlowInstances = new ArrayList<>();
-        _cashFlowEstimators.
-                stream().
-                filter(estimator -> estimator.getPass() == pass).
-                forEach(cashFlowSource -> {
-                    String id = cashFlowSource.getId();
-                    List<CashFlowInstance> estimatorInstances = cashFlowSource.getEstimatedFutureCashFlows(calendar);
-                    cashFlowInstances.addAll(estimatorInstances);
-                });
-        return cashFlowInstances;
-    }
-
-    private @NotNull
-    List<CashFlowInstance> getHistoricalCashFlowInstances() {
-        try {
-            return accountReader.readCashFlowInstances(getContext());
-        } catch (IOException ioe) {
-            throw new RuntimeException("Can't getHistoricalCashFlowInstances", ioe);
+    Set<Security> getSecurities() {
+        Set<Security> securities = new HashSet<>();
+        for (CashFlowEstimator estimator : _cashFlowEstimators) {
+            if (estimator instanceof EquityCompensation) {
+                Security security = ((EquityCompensation) estimator).getSecurity();
+                if (security != null)
+                    securities.add(security);
+            }
         }
+        return securities;
     }
 
-    private @NotNull
-    List<Budget> getBudgets() {
-        try {
-            return accountReader.readBudgets(getContext());
-        } catch (IOException ioe) {
-            throw new RuntimeException("Can't getBudgets", ioe);
-        }
-    }
-
-    private @NotNull
-    void setCurrentBalances() {
-        try {
-            accountReader.getAccountBalances(getContext());
-        } catch (IOException ioe) {
-            throw new RuntimeException("Can't setCurrentBalances", ioe);
-        }
-    }
-
-
     @JsonProperty(value = "cashFlowSources")
     private void setCashFlowEstimators(@JacksonInject("context") Context context,
                                        @JsonProperty(value = "cashFlowSources", required = true) String[] cashFlowSourceIds) {
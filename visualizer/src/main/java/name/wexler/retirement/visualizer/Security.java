@@ -4,35 +4,43 @@ import com.fasterxml.jackson.annotation.JacksonInject;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import name.wexler.retirement.datastore.DataStore;
-import name.wexler.retirement.datastore.TickerHistory;
+import name.wexler.retirement.datastore.PriceSeries;
 import name.wexler.retirement.visualizer.Entity.Entity;
 
 import java.io.IOException;
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
-import java.util.*;
+import java.util.Collection;
 
 
 /**
  * Created by mwexler on 6/4/17.
  */
 public class Security extends Entity {
-    private static final Map<String, Map<LocalDate, BigDecimal>> historicalPrices = new HashMap<>();
     private static final String securitiesPath = "securities.json";
-    private static TickerHistory tickerHistory = null;
-    private final static BigDecimal daysInYear = BigDecimal.valueOf(365.25);
-    private final static int ROUNDING_SCALE = 8;
 
+    /**
+     * Read the security definitions.  Price history is loaded lazily, the first time a price is
+     * asked for, into the context's {@link SecurityPrices}, which keeps only the most recently used
+     * tickers in memory.  Each build has a context of its own, so a rebuild after a crawler run sees
+     * the new prices while the build it replaces goes on serving the old ones.
+     */
     static public void readSecurities(Context context, DataStore ds) throws IOException {
         context.fromJSONFileList(Security[].class, securitiesPath);
-        tickerHistory = ds.getTickerHistory();
-        Map<String, LocalDate> tickers = tickerHistory.getTickers();
-        tickers.forEach((name, date) -> {
-            Map<LocalDate, BigDecimal> singleTickerHistory = tickerHistory.getHistoricalPrices(name);
-            historicalPrices.put(name, singleTickerHistory);
-        });
+        context.getSecurityPrices().setTickerHistory(ds.getTickerHistory());
+    }
+
+    /**
+     * Load the price history of securities in the background so it's ready by the time a
+     * scenario asks for their prices.
+     */
+    static public void prefetch(Context context, Collection<Security> securities) {
+        context.getSecurityPrices().prefetch(securities);
+    }
+
+    void setPriceSeries(PriceSeries priceSeries) {
+        getContext().getSecurityPrices().setPriceSeries(getId(), priceSeries);
     }
 
     @JsonCreator
@@ -47,29 +55,27 @@ public class Security extends Entity {
         return getId();
     }
 
+    /**
+     * @return the close on valueDate, the previous close if the market was closed that day, a
+     * projection from the latest close for dates after the history ends, or zero for dates before
+     * it starts
+     */
     public BigDecimal getSharePriceAtDate(LocalDate valueDate, Assumptions assumptions) {
-        BigDecimal sharePrice = BigDecimal.ZERO;
-        if (historicalPrices.containsKey(getId())) {
-            Map<LocalDate, BigDecimal> singleTickerHistory = historicalPrices.get(getId());
-            if (singleTickerHistory.containsKey(valueDate))
-                sharePrice = singleTickerHistory.get(valueDate);
-            else
-                sharePrice = estimatePrice(singleTickerHistory, valueDate, assumptions);
-        }
-        return sharePrice;
+        SecurityPrices prices = getContext().getSecurityPrices();
+        SecurityPrices.PriceProjection projection = prices.getProjection(getId());
+        if (projection == null || projection.priceSeries.isEmpty())
+            return BigDecimal.ZERO;
+        if (valueDate.isAfter(projection.latestDate))
+            return estimatePrice(prices, projection, valueDate, assumptions);
+        double close = projection.priceSeries.getFloorPrice(valueDate);
+        if (Double.isNaN(close))
+            return BigDecimal.ZERO;
+        return BigDecimal.valueOf(close);
     }
 
-    public BigDecimal estimatePrice(Map<LocalDate, BigDecimal> singleTickerHistory, LocalDate valueDate, Assumptions assumptions) {
-        BigDecimal sharePrice = BigDecimal.ZERO;
-
-        LocalDate latestDate = singleTickerHistory.keySet().stream().max(LocalDate::compareTo).get();
-        if (valueDate.isAfter(latestDate)) {
-
-            long days = latestDate.until(valueDate, ChronoUnit.DAYS);
-            BigDecimal growth = BigDecimal.valueOf(days).divide(daysInYear, ROUNDING_SCALE, RoundingMode.HALF_UP)
-                    .multiply(assumptions.getLongTermInvestmentReturn()).add(BigDecimal.ONE);
-            sharePrice = singleTickerHistory.get(latestDate).multiply(growth);
-        }
-        return sharePrice;
+    private BigDecimal estimatePrice(SecurityPrices prices, SecurityPrices.PriceProjection projection,
+                                     LocalDate valueDate, Assumptions assumptions) {
+        long days = projection.latestDate.until(valueDate, ChronoUnit.DAYS);
+        return projection.latestPrice.multiply(prices.growthFactor(days, assumptions.getLongTermInvestmentReturn()));
     }
 }
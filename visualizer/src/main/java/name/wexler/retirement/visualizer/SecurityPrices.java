@@ -0,0 +1,130 @@
+package name.wexler.retirement.visualizer;
+
+import name.wexler.retirement.datastore.PriceSeries;
+import name.wexler.retirement.datastore.TickerHistory;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * Price history and growth factors for the securities of one {@link Context}.  Every build reads into a
+ * new Context, so it starts with empty caches: it sees the prices a crawler run stored since the last build,
+ * and the build it replaces keeps serving from its own caches until nothing holds it any more.
+ */
+class SecurityPrices {
+    static final int priceCacheSize = 64;
+    static final int growthFactorCacheSize = 32 * 1024;
+    private static final long prefetchIdleSeconds = 30;
+    private final static BigDecimal daysInYear = BigDecimal.valueOf(365.25);
+    private final static int ROUNDING_SCALE = 8;
+
+    // Guarded by itself.  Holds futures so a request for a ticker that's being prefetched waits
+    // for that load rather than starting another.
+    private final Map<String, CompletableFuture<PriceProjection>> historicalPrices =
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CompletableFuture<PriceProjection>> eldest) {
+                    return size() > priceCacheSize;
+                }
+            };
+    private final Map<BigDecimal, Map<Long, BigDecimal>> growthFactors = new ConcurrentHashMap<>();
+    // One thread at most, which exits once it's been idle a while, so a replaced build leaves nothing running
+    private final ExecutorService prefetchExecutor = new ThreadPoolExecutor(0, 1,
+            prefetchIdleSeconds, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+        Thread thread = new Thread(runnable, "security-prefetch");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile TickerHistory tickerHistory = null;
+
+    /**
+     * Price history for one security, with the latest close kept ready for projecting forward.
+     */
+    static class PriceProjection {
+        final PriceSeries priceSeries;
+        final LocalDate latestDate;
+        final BigDecimal latestPrice;
+
+        PriceProjection(PriceSeries priceSeries) {
+            this.priceSeries = priceSeries;
+            this.latestDate = priceSeries.getLatestDate();
+            this.latestPrice = priceSeries.isEmpty() ? null : BigDecimal.valueOf(priceSeries.getLatestPrice());
+        }
+    }
+
+    /**
+     * @param tickerHistory where to load price history from the first time a ticker's price is asked for
+     */
+    void setTickerHistory(TickerHistory tickerHistory) {
+        this.tickerHistory = tickerHistory;
+    }
+
+    void setPriceSeries(String ticker, PriceSeries priceSeries) {
+        synchronized (historicalPrices) {
+            historicalPrices.put(ticker, CompletableFuture.completedFuture(new PriceProjection(priceSeries)));
+        }
+    }
+
+    /**
+     * Load the price history of securities in the background so it's ready by the time a
+     * scenario asks for their prices.
+     */
+    void prefetch(Collection<Security> securities) {
+        if (tickerHistory == null || securities.isEmpty())
+            return;
+        prefetchExecutor.submit(() -> securities.forEach(security -> getProjection(security.getId())));
+    }
+
+    /**
+     * @return the ticker's price history, loading it if it isn't cached, or null if there's nowhere to load
+     * it from
+     */
+    PriceProjection getProjection(String ticker) {
+        CompletableFuture<PriceProjection> future;
+        boolean load = false;
+        TickerHistory history = tickerHistory;
+        synchronized (historicalPrices) {
+            future = historicalPrices.get(ticker);
+            if (future == null) {
+                if (history == null)
+                    return null;
+                future = new CompletableFuture<>();
+                historicalPrices.put(ticker, future);
+                load = true;
+            }
+        }
+        if (load) {
+            try {
+                future.complete(new PriceProjection(history.getPriceSeries(ticker)));
+            } catch (RuntimeException e) {
+                synchronized (historicalPrices) {
+                    historicalPrices.remove(ticker, future);
+                }
+                future.completeExceptionally(e);
+            }
+        }
+        return future.join();
+    }
+
+    /**
+     * Growth over days at the long term return, memoized since every vesting period of every
+     * RSU and option asks for the same handful of offsets.  Once a return has growthFactorCacheSize
+     * offsets, further ones are computed without being kept.
+     */
+    BigDecimal growthFactor(long days, BigDecimal longTermReturn) {
+        Map<Long, BigDecimal> factors = growthFactors.computeIfAbsent(longTermReturn, r -> new ConcurrentHashMap<>());
+        BigDecimal factor = factors.get(days);
+        if (factor == null) {
+            factor = BigDecimal.valueOf(days).divide(daysInYear, ROUNDING_SCALE, RoundingMode.HALF_UP)
+                    .multiply(longTermReturn).add(BigDecimal.ONE);
+            if (factors.size() < growthFactorCacheSize)
+                factors.put(days, factor);
+        }
+        return factor;
+    }
+}
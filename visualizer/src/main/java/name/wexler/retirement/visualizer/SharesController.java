@@ -47,7 +47,6 @@ import java.util.stream.Collectors;
 public class SharesController {
     private static final String VIEW_INDEX = "index";
     private final static org.slf4j.Logger logger = LoggerFactory.getLogger(SharesController.class);
-    Retirement retirement = Retirement.getInstance();
 
     private final Comparator<Map<String, Object>> byTickerCompanyAndAccount = new Comparator<Map<String, Object>>() {
         @Override
@@ -89,7 +88,7 @@ public class SharesController {
     @RequestMapping(value = "/visualizer/scenario/{scenarioId}/shareBalances/now", method = RequestMethod.GET)
     public ModelAndView retirementSecuritiesNow(@PathVariable String scenarioId, ModelMap model) {
         model.put("scenarioId", scenarioId);
-        CashFlowCalendar cashFlowCalendar = retirement.getCashFlowCalendar(scenarioId);
+        CashFlowCalendar cashFlowCalendar = Retirement.getInstance().getCashFlowCalendar(scenarioId);
         List<Map<String, Object>> shareBalances =
                 getShareBalances(cashFlowCalendar.getAssets(), AssetAccount::getCurrentShareBalances);
         model.put("shareBalances", shareBalances);
@@ -99,7 +98,7 @@ public class SharesController {
     @RequestMapping(value = "/visualizer/scenario/{scenarioId}/shareBalances/start", method = RequestMethod.GET)
     public ModelAndView retirementSecuritiesStart(@PathVariable String scenarioId, ModelMap model) {
         model.put("scenarioId", scenarioId);
-        CashFlowCalendar cashFlowCalendar = retirement.getCashFlowCalendar(scenarioId);
+        CashFlowCalendar cashFlowCalendar = Retirement.getInstance().getCashFlowCalendar(scenarioId);
         List<Map<String, Object>> shareBalances =
                 getShareBalances(cashFlowCalendar.getAssets(), AssetAccount::getStartShareBalances);
         model.put("shareBalances", shareBalances);
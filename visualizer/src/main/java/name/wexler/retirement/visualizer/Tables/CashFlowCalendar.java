@@ -10,6 +10,7 @@ import name.wexler.retirement.visualizer.CashFlowInstance.CashFlowInstance;
 import name.wexler.retirement.visualizer.CashFlowInstance.LiabilityCashFlowInstance;
 import name.wexler.retirement.visualizer.CashFlowEstimator.CashFlowEstimator;
 import name.wexler.retirement.visualizer.CashFlowSink;
+import name.wexler.retirement.visualizer.Money;
 import name.wexler.retirement.visualizer.Entity.Entity;
 import name.wexler.retirement.visualizer.Scenario;
 import org.jetbrains.annotations.NotNull;
@@ -37,6 +38,12 @@ public class CashFlowCalendar {
     private final List<CashFlowInstance> cashFlowInstances = new ArrayList<>();
     private final Assumptions _assumptions;
     private final Scenario _scenario;
+    private volatile CashFlowIndex index = null;
+    // Guarded by cashFlowInstances, since a sort or removal there invalidates them
+    private final Map<String, CashFlowRangeSum> rangeSums = new HashMap<>();
+
+    // Estimated instances by the estimator that produced them
+    private final Map<String, List<CashFlowInstance>> projectedSegments = new LinkedHashMap<>();
 
     /**
      *
@@ -54,17 +61,26 @@ public class CashFlowCalendar {
         return _assets.values();
     }
 
+    /**
+     * The index is built on first use after instances are added, so estimators querying the
+     * calendar between passes see everything added by earlier passes.
+     */
+    private CashFlowIndex getIndex() {
+        CashFlowIndex current = index;
+        if (current == null) {
+            synchronized (cashFlowInstances) {
+                current = index;
+                if (current == null) {
+                    current = new CashFlowIndex(cashFlowInstances);
+                    index = current;
+                }
+            }
+        }
+        return current;
+    }
+
     public BigDecimal getAssetValue(String assetId, Integer year) {
-        Asset asset = this._scenario.getContext().getById(Asset.class, assetId);
-        Optional<CashFlowInstance> finalInstanceForYear =
-                this.getCashFlowInstances().stream().
-                        filter(instance -> instance.getCashFlowSink() == asset).
-                        filter(instance -> instance.getCashFlowDate().isBefore(LocalDate.of(year + 1, Month.JANUARY, 1))).
-                        reduce((first, second) -> second);
-        BigDecimal finalBalance = BigDecimal.ZERO;
-        if (finalInstanceForYear.isPresent())
-            finalBalance = finalInstanceForYear.get().getCashBalance().add(finalInstanceForYear.get().getAssetBalance());
-        return finalBalance;
+        return CashFlowSummary.assetValue(getIndex(), assetId, year);
     }
 
     public Map<String, Liability> getLiabilities() {
@@ -72,17 +88,67 @@ public class CashFlowCalendar {
     }
 
     public BigDecimal getLiabilityAmount(String id, Integer year) {
-        return this.getCashFlowInstances().stream().
-                filter(instance->instance.getCashFlowSource() instanceof Liability).
-                filter(instance->instance.getCashFlowSourceId() == id).
-                filter(instance->instance.getYear() == year).
-                sorted((a,b) -> a.getCashFlowDate().compareTo(b.getCashFlowDate())).
-                collect(Collectors.mapping(instance -> instance.getAmount(),
-                        Collectors.reducing(BigDecimal.ZERO, BigDecimal::add)));
+        return CashFlowSummary.liabilityAmount(getIndex(), id, year);
+    }
+
+    /**
+     * @return what's still owed on the liability at the end of year: its starting balance less the principal of
+     * its payments since, or zero if it doesn't start until later
+     */
+    public BigDecimal getLiabilityBalance(String id, Integer year) {
+        Liability liability = _liabilities.get(id);
+        if (liability == null)
+            return BigDecimal.ZERO;
+        return CashFlowSummary.liabilityBalance(getIndex(), liability, year);
     }
 
     public void addCashFlowInstances(List<CashFlowInstance> cashFlowInstances) {
-        this.cashFlowInstances.addAll(cashFlowInstances);
+        synchronized (this.cashFlowInstances) {
+            this.cashFlowInstances.addAll(cashFlowInstances);
+            index = null;
+        }
+    }
+
+    /**
+     * Add estimated instances as a group that estimators reading this one's output can ask for with
+     * {@link #getProjectedCashFlowInstances(String)}.
+     *
+     * @param segment name of the group, the id of the estimator that produced them
+     */
+    public void addProjectedCashFlowInstances(String segment, List<CashFlowInstance> cashFlowInstances) {
+        synchronized (this.cashFlowInstances) {
+            projectedSegments.computeIfAbsent(segment, key -> new ArrayList<>()).addAll(cashFlowInstances);
+            this.cashFlowInstances.addAll(cashFlowInstances);
+            index = null;
+        }
+    }
+
+    public List<CashFlowInstance> getProjectedCashFlowInstances(String segment) {
+        synchronized (cashFlowInstances) {
+            List<CashFlowInstance> instances = projectedSegments.get(segment);
+            return instances == null ? Collections.emptyList() : new ArrayList<>(instances);
+        }
+    }
+
+    /**
+     * @return a calendar with this one's historical instances, budgets, assets and liabilities plus the given
+     * estimates, for an estimator that should see only the estimates it depends on
+     */
+    public CashFlowCalendar withEstimates(List<CashFlowInstance> estimates) {
+        CashFlowCalendar view = new CashFlowCalendar(_scenario, _assumptions);
+        view.budgets = budgets;
+        view._assets.putAll(_assets);
+        view._liabilities.putAll(_liabilities);
+        synchronized (cashFlowInstances) {
+            Set<CashFlowInstance> projected = Collections.newSetFromMap(new IdentityHashMap<>());
+            projectedSegments.values().forEach(projected::addAll);
+            for (CashFlowInstance instance : cashFlowInstances) {
+                if (!projected.contains(instance))
+                    view.cashFlowInstances.add(instance);
+            }
+        }
+        view.cashFlowInstances.addAll(estimates);
+        return view;
     }
 
     public void addBudgets(List<Budget> budgets) {
@@ -100,73 +166,116 @@ public class CashFlowCalendar {
      * Then we need to iterate forward over the estimated transactions to get the ending balances.
      */
     public void computeBalances() {
-        // First we sort all the cash flow instances into date order.
-        cashFlowInstances.sort(Comparator.comparing(CashFlowInstance::getCashFlowDate));
-
-        // Then we iterate backward
-        ListIterator<CashFlowInstance> listIterator = cashFlowInstances.listIterator(cashFlowInstances.size());
-
-        Set<CashFlowSink> cashFlowSinks = new HashSet<>();
-        while (listIterator.hasPrevious()) {
-            CashFlowInstance instance = listIterator.previous();
-            if (instance.isEstimate() && instance.getCashFlowDate().isAfter(LocalDate.now()))
-                continue;   // We are counting back from actual balance, skip estimates
-            CashFlowSink sink = instance.getCashFlowSink();
-            cashFlowSinks.add(sink);
-            sink.updateRunningTotal(instance, true);
-        }
-        cashFlowSinks.forEach(sink -> sink.setStartingBalance());
-
-        listIterator = cashFlowInstances.listIterator();
-        while (listIterator.hasNext()) {
-            CashFlowInstance instance = listIterator.next();
-            if (!instance.isEstimate() || instance.getCashFlowDate().isBefore(LocalDate.now()))
-                continue;   // We are counting forward from actual balance, already applied non-estimates
-            CashFlowSink sink = instance.getCashFlowSink();
-            sink.updateRunningTotal(instance, false);
+        synchronized (cashFlowInstances) {
+            LocalDate balanceDate = LocalDate.now();
+            // First we sort all the cash flow instances into date order.
+            cashFlowInstances.sort(Comparator.comparing(CashFlowInstance::getCashFlowDate));
+            index = null;
+            rangeSums.clear();  // They track how much of the list they've seen, which the sort invalidates
+
+            // Then we iterate backward
+            ListIterator<CashFlowInstance> listIterator = cashFlowInstances.listIterator(cashFlowInstances.size());
+
+            Set<CashFlowSink> cashFlowSinks = new HashSet<>();
+            while (listIterator.hasPrevious()) {
+                CashFlowInstance instance = listIterator.previous();
+                if (instance.isEstimate() && instance.getCashFlowDate().isAfter(balanceDate))
+                    continue;   // We are counting back from actual balance, skip estimates
+                CashFlowSink sink = instance.getCashFlowSink();
+                cashFlowSinks.add(sink);
+                sink.updateRunningTotal(instance, true);
+            }
+            cashFlowSinks.forEach(sink -> sink.setStartingBalance());
+
+            listIterator = cashFlowInstances.listIterator();
+            while (listIterator.hasNext()) {
+                CashFlowInstance instance = listIterator.next();
+                if (!instance.isEstimate() || instance.getCashFlowDate().isBefore(balanceDate))
+                    continue;   // We are counting forward from actual balance, already applied non-estimates
+                CashFlowSink sink = instance.getCashFlowSink();
+                sink.updateRunningTotal(instance, false);
+            }
+
+            // Build the indexes now so the first page render doesn't pay for them.
+            getIndex();
         }
     }
 
     public void addAssets(List<Asset> assets) {
         assets.forEach(item-> _assets.put(item.getId(), item));
+        index = null;   // The summary has a row per asset
     }
 
     public void addLiabilities(List<Liability> liabilities) {
         liabilities.forEach(item-> _liabilities.put(item.getId(), item));
+        index = null;
     }
 
     public BigDecimal sumMatchingCashFlowForPeriod(LocalDate accrualStart, LocalDate accrualEnd, CashFlowChecker checker) {
         BigDecimal sum = BigDecimal.ZERO;
-        for (CashFlowInstance cashFlowInstance : this.cashFlowInstances) {
-            cashFlowInstance.getCashFlowSource();
-            if (cashFlowInstance.isPaidInDateRange(accrualStart, accrualEnd)) {
-                if (checker.check(cashFlowInstance)) {
-                    sum = sum.add(cashFlowInstance.getAmount());
-                }
+        for (CashFlowInstance cashFlowInstance : getIndex().getPaidBetween(accrualStart, accrualEnd)) {
+            if (checker.check(cashFlowInstance)) {
+                sum = sum.add(cashFlowInstance.getAmount());
             }
         }
         return sum;
     }
 
+    /**
+     * Same as {@link #sumMatchingCashFlowForPeriod(LocalDate, LocalDate, CashFlowChecker)} but answered from
+     * prefix sums kept for predicateKey, which are brought up to date with instances added since the last call.
+     *
+     * @param predicateKey names the predicate; every call with the same key must pass an equivalent checker
+     */
+    public BigDecimal sumMatchingCashFlowForPeriod(LocalDate accrualStart, LocalDate accrualEnd,
+                                                   String predicateKey, CashFlowChecker checker) {
+        synchronized (cashFlowInstances) {
+            CashFlowRangeSum rangeSum = rangeSums.computeIfAbsent(predicateKey, key -> new CashFlowRangeSum(checker));
+            rangeSum.catchUp(cashFlowInstances);
+            return rangeSum.sum(accrualStart, accrualEnd);
+        }
+    }
+
     public Assumptions getAssumptions() {
         return _assumptions;
     }
 
     public List<CashFlowInstance> getCashFlowsBySink(String cashFlowId) {
-        List<CashFlowInstance> cashFlows =
-                cashFlowInstances.stream().
-                        filter(instance -> instance.getCashFlowSinkId().equals(cashFlowId)).
-                        collect(Collectors.toList());
-        return cashFlows;
+        return getIndex().getBySink(cashFlowId);
     }
 
     public List<CashFlowInstance> getCashFlowsBySink(String cashFlowId, Integer year) {
-        List<CashFlowInstance> cashFlows =
-                cashFlowInstances.stream().
-                        filter(instance -> instance.getCashFlowSinkId().equals(cashFlowId)).
-                        filter(instance -> instance.getYear() == year).
-                        collect(Collectors.toList());
-        return cashFlows;
+        return CashFlowIndex.paidInYear(getIndex().getBySink(cashFlowId), year);
+    }
+
+    public List<CashFlowInstance> getCashFlowsBySource(String cashFlowId, Integer year) {
+        return CashFlowIndex.paidInYear(getIndex().getBySource(cashFlowId), year);
+    }
+
+    public List<CashFlowInstance> getCashFlowsByYear(int year) {
+        return getIndex().getByYear(year);
+    }
+
+    public List<CashFlowInstance> getCashFlowsByItemType(String itemType) {
+        return getIndex().getByItemType(itemType);
+    }
+
+    public List<CashFlowInstance> getCashFlowsByCategory(String category) {
+        return getIndex().getByCategory(category);
+    }
+
+    /**
+     * @return first year with a cash flow, or null if the calendar is empty
+     */
+    public Integer getFirstYear() {
+        return getIndex().getFirstYear();
+    }
+
+    /**
+     * @return last year with a cash flow, or null if the calendar is empty
+     */
+    public Integer getLastYear() {
+        return getIndex().getLastYear();
     }
 
     public List<LiabilityCashFlowInstance> getLiabilityCashFlowInstances(String liabilityId) {
@@ -177,6 +286,35 @@ public class CashFlowCalendar {
         return (List<LiabilityCashFlowInstance>) (List<?>) getCashFlowsBySink(liabilityId, year);
     }
 
+    /**
+     * @return the instances in date order as columns, for aggregating over
+     */
+    public CashFlowInstanceTable getInstanceTable() {
+        return getIndex().getTable();
+    }
+
+    /**
+     * @return a number that changes whenever the calendar's instances or balances do, and is never reused,
+     * even by another calendar
+     */
+    public long getVersion() {
+        return getIndex().getVersion();
+    }
+
+    /**
+     * @return when the calendar last changed, in epoch millis
+     */
+    public long getLastModified() {
+        return getIndex().getCreated();
+    }
+
+    /**
+     * @return the yearly sums and balances for every year the calendar covers, built once per index
+     */
+    public CashFlowSummary getSummary() {
+        return getIndex().getSummary(_assets.values(), _liabilities.values());
+    }
+
     public List<CashFlowInstance> getCashFlowInstances() {
         return cashFlowInstances;
     }
@@ -0,0 +1,179 @@
+package name.wexler.retirement.visualizer.Tables;
+
+import name.wexler.retirement.visualizer.Asset.Asset;
+import name.wexler.retirement.visualizer.CashFlowEstimator.Liability;
+import name.wexler.retirement.visualizer.CashFlowInstance.CashFlowInstance;
+import name.wexler.retirement.visualizer.Entity.CategoryDictionary;
+import org.jetbrains.annotations.NotNull;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Secondary indexes over a calendar's cash flow instances.  Every list is in cash flow date order,
+ * ties kept in the order the instances were added, so date ranges within a list are found by
+ * binary search.  The index is a snapshot; the calendar drops it, along with the table and summary
+ * built from it, whenever instances or balances change.
+ */
+class CashFlowIndex {
+    private static final AtomicLong versions = new AtomicLong();
+    private final long version = versions.incrementAndGet();
+    private final long created = System.currentTimeMillis();
+    private final List<CashFlowInstance> byDate;
+    private final Map<String, List<CashFlowInstance>> bySink;
+    private final Map<String, List<CashFlowInstance>> bySource;
+    private final NavigableMap<Integer, List<CashFlowInstance>> byYear;
+    private final Map<Integer, List<CashFlowInstance>> byItemType;
+    private final Map<Integer, List<CashFlowInstance>> byCategory;
+    private volatile CashFlowInstanceTable table;
+    private volatile CashFlowSummary summary;
+
+    CashFlowIndex(List<CashFlowInstance> instances) {
+        List<CashFlowInstance> sorted = new ArrayList<>(instances);
+        sorted.sort(Comparator.comparing(CashFlowInstance::getCashFlowDate));
+        byDate = Collections.unmodifiableList(sorted);
+        bySink = groupBy(sorted, CashFlowInstance::getCashFlowSinkId, new HashMap<>());
+        bySource = groupBy(sorted, CashFlowInstance::getCashFlowSourceId, new HashMap<>());
+        byYear = groupBy(sorted, CashFlowInstance::getYear, new TreeMap<>());
+        byItemType = groupBy(sorted, CashFlowInstance::getItemTypeId, new HashMap<>());
+        byCategory = groupBy(sorted, CashFlowInstance::getCategoryId, new HashMap<>());
+    }
+
+    private static <K, M extends Map<K, List<CashFlowInstance>>> M groupBy(
+            List<CashFlowInstance> sorted, Function<CashFlowInstance, K> key, M index) {
+        for (CashFlowInstance instance : sorted)
+            index.computeIfAbsent(key.apply(instance), k -> new ArrayList<>()).add(instance);
+        index.replaceAll((k, list) -> Collections.unmodifiableList(list));
+        return index;
+    }
+
+    /**
+     * @return index of the first instance in the date-sorted list paid on or after date
+     */
+    private static int firstOnOrAfter(List<CashFlowInstance> sorted, LocalDate date) {
+        int low = 0;
+        int high = sorted.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted.get(mid).getCashFlowDate().isBefore(date))
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    /**
+     * @return the instances in the date-sorted list paid between start and end inclusive
+     */
+    static List<CashFlowInstance> paidBetween(List<CashFlowInstance> sorted, LocalDate start, LocalDate end) {
+        if (end.isBefore(start))
+            return Collections.emptyList();
+        int from = firstOnOrAfter(sorted, start);
+        int to = end.equals(LocalDate.MAX) ? sorted.size() : firstOnOrAfter(sorted, end.plusDays(1));
+        return sorted.subList(from, to);
+    }
+
+    static List<CashFlowInstance> paidInYear(List<CashFlowInstance> sorted, int year) {
+        return paidBetween(sorted, LocalDate.of(year, Month.JANUARY, 1), LocalDate.of(year, Month.DECEMBER, 31));
+    }
+
+    List<CashFlowInstance> getAll() {
+        return byDate;
+    }
+
+    List<CashFlowInstance> getPaidBetween(LocalDate start, LocalDate end) {
+        return paidBetween(byDate, start, end);
+    }
+
+    /**
+     * @return a number no other index, of this calendar or any other, has had
+     */
+    long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return when the index was built, in epoch millis
+     */
+    long getCreated() {
+        return created;
+    }
+
+    /**
+     * Built on first use, since most indexes are replaced before anything aggregates over them.
+     */
+    CashFlowInstanceTable getTable() {
+        CashFlowInstanceTable current = table;
+        if (current == null) {
+            synchronized (this) {
+                current = table;
+                if (current == null) {
+                    current = new CashFlowInstanceTable(byDate);
+                    table = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    CashFlowSummary getSummary(Collection<Asset> assets, Collection<Liability> liabilities) {
+        CashFlowSummary current = summary;
+        if (current == null) {
+            synchronized (this) {
+                current = summary;
+                if (current == null) {
+                    current = new CashFlowSummary(this, assets, liabilities);
+                    summary = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    @NotNull List<CashFlowInstance> getBySink(String sinkId) {
+        return bySink.getOrDefault(sinkId, Collections.emptyList());
+    }
+
+    @NotNull List<CashFlowInstance> getBySource(String sourceId) {
+        return bySource.getOrDefault(sourceId, Collections.emptyList());
+    }
+
+    @NotNull List<CashFlowInstance> getByYear(int year) {
+        return byYear.getOrDefault(year, Collections.emptyList());
+    }
+
+    @NotNull List<CashFlowInstance> getByItemType(String itemType) {
+        return byItemType.getOrDefault(CategoryDictionary.lookup(itemType), Collections.emptyList());
+    }
+
+    @NotNull List<CashFlowInstance> getByCategory(String category) {
+        return byCategory.getOrDefault(CategoryDictionary.lookup(category), Collections.emptyList());
+    }
+
+    /**
+     * @return the last instance for the sink paid before date, or null if there isn't one
+     */
+    CashFlowInstance getLastBySinkBefore(String sinkId, LocalDate date) {
+        List<CashFlowInstance> instances = getBySink(sinkId);
+        int index = firstOnOrAfter(instances, date);
+        return index > 0 ? instances.get(index - 1) : null;
+    }
+
+    /**
+     * @return first year with a cash flow, or null if there are none
+     */
+    Integer getFirstYear() {
+        return byYear.isEmpty() ? null : byYear.firstKey();
+    }
+
+    /**
+     * @return last year with a cash flow, or null if there are none
+     */
+    Integer getLastYear() {
+        return byYear.isEmpty() ? null : byYear.lastKey();
+    }
+}
@@ -0,0 +1,217 @@
+package name.wexler.retirement.visualizer.Tables;
+
+import name.wexler.retirement.visualizer.CashFlowInstance.CashFlowInstance;
+import name.wexler.retirement.visualizer.Entity.CategoryDictionary;
+import name.wexler.retirement.visualizer.Money;
+import org.jetbrains.annotations.NotNull;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * The fields the tables aggregate over, copied out of a list of instances into one primitive array per column.
+ * Dates are epoch days, amounts are Money micros and the strings are dictionary ids, so a scan over
+ * thousands of rows touches a few arrays instead of an object graph per instance.
+ *
+ * Balances aren't copied since the balance walk keeps changing them; the instance is still there for those.
+ * A Row is a flyweight over one index with the same getters as the instance, so code that only reads can take
+ * rows instead of instances.
+ */
+public class CashFlowInstanceTable {
+    private final CashFlowInstance[] instances;
+    private final int[] cashFlowDays;
+    private final int[] accrualStartDays;
+    private final int[] accrualEndDays;
+    private final int[] years;
+    private final long[] amounts;
+    private final int[] itemTypes;
+    private final int[] parentCategories;
+    private final int[] categories;
+    private final int[] sinks;
+    private final int[] sources;
+    private final Dictionary sinkDictionary = new Dictionary();
+    private final Dictionary sourceDictionary = new Dictionary();
+
+    /**
+     * Codes sink and source ids in the order they are first seen.
+     */
+    static class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int encode(String value) {
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = values.size();
+                codes.put(value, code);
+                values.add(value);
+            }
+            return code;
+        }
+
+        String decode(int code) {
+            return values.get(code);
+        }
+    }
+
+    /**
+     * One row of the table.  Rows don't copy anything, so forEach reuses a single one.
+     */
+    public class Row {
+        private int index;
+
+        private Row(int index) {
+            this.index = index;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public CashFlowInstance getInstance() {
+            return instances[index];
+        }
+
+        public LocalDate getCashFlowDate() {
+            return LocalDate.ofEpochDay(cashFlowDays[index]);
+        }
+
+        public LocalDate getAccrualStart() {
+            return LocalDate.ofEpochDay(accrualStartDays[index]);
+        }
+
+        public LocalDate getAccrualEnd() {
+            return LocalDate.ofEpochDay(accrualEndDays[index]);
+        }
+
+        public int getYear() {
+            return years[index];
+        }
+
+        public BigDecimal getAmount() {
+            return instances[index].getAmount();
+        }
+
+        public long getAmountMicros() {
+            return amounts[index];
+        }
+
+        public String getItemType() {
+            return CategoryDictionary.nameOf(itemTypes[index]);
+        }
+
+        public String getParentCategory() {
+            return CategoryDictionary.nameOf(parentCategories[index]);
+        }
+
+        public String getCategory() {
+            return CategoryDictionary.nameOf(categories[index]);
+        }
+
+        public String getCashFlowSinkId() {
+            return sinkDictionary.decode(sinks[index]);
+        }
+
+        public String getCashFlowSourceId() {
+            return sourceDictionary.decode(sources[index]);
+        }
+
+        public BigDecimal getCashBalance() {
+            return instances[index].getCashBalance();
+        }
+
+        public BigDecimal getAssetBalance() {
+            return instances[index].getAssetBalance();
+        }
+
+        public String getDescription() {
+            return instances[index].getDescription();
+        }
+
+        public boolean isEstimate() {
+            return instances[index].isEstimate();
+        }
+    }
+
+    public CashFlowInstanceTable(@NotNull List<CashFlowInstance> cashFlowInstances) {
+        int size = cashFlowInstances.size();
+        instances = cashFlowInstances.toArray(new CashFlowInstance[0]);
+        cashFlowDays = new int[size];
+        accrualStartDays = new int[size];
+        accrualEndDays = new int[size];
+        years = new int[size];
+        amounts = new long[size];
+        itemTypes = new int[size];
+        parentCategories = new int[size];
+        categories = new int[size];
+        sinks = new int[size];
+        sources = new int[size];
+        for (int i = 0; i < size; ++i) {
+            CashFlowInstance instance = instances[i];
+            cashFlowDays[i] = Math.toIntExact(instance.getCashFlowDate().toEpochDay());
+            accrualStartDays[i] = Math.toIntExact(instance.getAccrualStart().toEpochDay());
+            accrualEndDays[i] = Math.toIntExact(instance.getAccrualEnd().toEpochDay());
+            years[i] = instance.getYear();
+            amounts[i] = instance.getAmountMicros();
+            itemTypes[i] = instance.getItemTypeId();
+            parentCategories[i] = instance.getParentCategoryId();
+            categories[i] = instance.getCategoryId();
+            sinks[i] = sinkDictionary.encode(instance.getCashFlowSinkId());
+            sources[i] = sourceDictionary.encode(instance.getCashFlowSourceId());
+        }
+    }
+
+    public int size() {
+        return instances.length;
+    }
+
+    public Row getRow(int index) {
+        Objects.checkIndex(index, instances.length);
+        return new Row(index);
+    }
+
+    public void forEach(Consumer<Row> action) {
+        Row row = new Row(0);
+        for (int i = 0; i < instances.length; ++i) {
+            row.index = i;
+            action.accept(row);
+        }
+    }
+
+    /**
+     * Sum amounts by item type, parent category, category and year.  Every group that has a row in any year
+     * is returned, with sums only for the years from startYear to endYear.
+     *
+     * @return itemType -> parentCategory -> category -> year -> sum
+     */
+    public Map<String, Map<String, Map<String, Map<Integer, BigDecimal>>>> sumByCategoryAndYear(int startYear,
+                                                                                                 int endYear) {
+        int yearCount = Math.max(0, endYear - startYear + 1);
+        // One row of yearly sums per distinct (itemType, parentCategory, category), keyed by the packed ids,
+        // shifted by one so a missing parent category packs too
+        Map<Long, long[]> sums = new HashMap<>();
+        for (int i = 0; i < instances.length; ++i) {
+            long key = ((long) (itemTypes[i] + 1) << 42) | ((long) (parentCategories[i] + 1) << 21) | (categories[i] + 1);
+            long[] yearlySums = sums.computeIfAbsent(key, k -> new long[yearCount]);
+            int year = years[i] - startYear;
+            if (year >= 0 && year < yearCount)
+                yearlySums[year] += amounts[i];
+        }
+
+        Map<String, Map<String, Map<String, Map<Integer, BigDecimal>>>> result = new HashMap<>();
+        sums.forEach((key, yearlySums) -> {
+            String itemType = CategoryDictionary.nameOf((int) (key >>> 42) - 1);
+            String parentCategory = CategoryDictionary.nameOf((int) ((key >>> 21) & 0x1FFFFF) - 1);
+            String category = CategoryDictionary.nameOf((int) (key & 0x1FFFFF) - 1);
+            Map<Integer, BigDecimal> byYear = result
+                    .computeIfAbsent(itemType, k -> new HashMap<>())
+                    .computeIfAbsent(parentCategory, k -> new HashMap<>())
+                    .computeIfAbsent(category, k -> new HashMap<>());
+            for (int year = 0; year < yearCount; ++year)
+                byYear.put(startYear + year, Money.toBigDecimal(yearlySums[year]));
+        });
+        return result;
+    }
+}
@@ -0,0 +1,129 @@
+package name.wexler.retirement.visualizer.Tables;
+
+import name.wexler.retirement.visualizer.CashFlowInstance.CashFlowInstance;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Running totals of the instances matching one predicate, sorted by cash flow date, so the sum
+ * over any date range is the difference of two prefix sums found by binary search.
+ *
+ * The calendar only ever appends instances, so the structure remembers how many it has seen and
+ * folds in just the new ones.  New instances dated after everything already summed are appended;
+ * otherwise they are merged in and the prefix sums recomputed from the first insertion point.
+ */
+class CashFlowRangeSum {
+    private final CashFlowCalendar.CashFlowChecker checker;
+    private int covered = 0;
+    private int size = 0;
+    private long[] epochDays = new long[16];
+    private BigDecimal[] amounts = new BigDecimal[16];
+    // prefix[i] is the sum of amounts[0..i-1]
+    private BigDecimal[] prefix = new BigDecimal[17];
+
+    CashFlowRangeSum(CashFlowCalendar.CashFlowChecker checker) {
+        this.checker = checker;
+        prefix[0] = BigDecimal.ZERO;
+    }
+
+    /**
+     * Fold in instances appended to the calendar since the last call.
+     */
+    synchronized void catchUp(List<CashFlowInstance> instances) {
+        if (instances.size() == covered)
+            return;
+        List<CashFlowInstance> added = new ArrayList<>();
+        for (CashFlowInstance instance : instances.subList(covered, instances.size())) {
+            if (checker.check(instance))
+                added.add(instance);
+        }
+        covered = instances.size();
+        if (added.isEmpty())
+            return;
+        added.sort(Comparator.comparing(CashFlowInstance::getCashFlowDate));
+        ensureCapacity(size + added.size());
+
+        long firstAdded = added.get(0).getCashFlowDate().toEpochDay();
+        int dirtyFrom;
+        if (size == 0 || firstAdded >= epochDays[size - 1]) {
+            dirtyFrom = size;
+            for (CashFlowInstance instance : added) {
+                epochDays[size] = instance.getCashFlowDate().toEpochDay();
+                amounts[size] = instance.getAmount();
+                ++size;
+            }
+        } else {
+            dirtyFrom = merge(added);
+        }
+        for (int i = dirtyFrom; i < size; ++i)
+            prefix[i + 1] = prefix[i].add(amounts[i]);
+    }
+
+    /**
+     * Merge sorted instances into the arrays from the back, so existing entries move at most once.
+     * Ties keep the existing entries first, matching append order.
+     *
+     * @return index of the first entry that changed
+     */
+    private int merge(List<CashFlowInstance> added) {
+        int existing = size - 1;
+        int incoming = added.size() - 1;
+        int target = size + added.size() - 1;
+        while (incoming >= 0) {
+            long incomingDay = added.get(incoming).getCashFlowDate().toEpochDay();
+            if (existing >= 0 && epochDays[existing] > incomingDay) {
+                epochDays[target] = epochDays[existing];
+                amounts[target] = amounts[existing];
+                --existing;
+            } else {
+                epochDays[target] = incomingDay;
+                amounts[target] = added.get(incoming).getAmount();
+                --incoming;
+            }
+            --target;
+        }
+        size += added.size();
+        return existing + 1;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= epochDays.length)
+            return;
+        int newCapacity = Math.max(capacity, epochDays.length * 2);
+        epochDays = Arrays.copyOf(epochDays, newCapacity);
+        amounts = Arrays.copyOf(amounts, newCapacity);
+        prefix = Arrays.copyOf(prefix, newCapacity + 1);
+    }
+
+    /**
+     * @return index of the first entry dated on or after epochDay
+     */
+    private int firstOnOrAfter(long epochDay) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (epochDays[mid] < epochDay)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    /**
+     * @return sum of matching instances paid between start and end inclusive
+     */
+    synchronized BigDecimal sum(LocalDate start, LocalDate end) {
+        int from = firstOnOrAfter(start.toEpochDay());
+        int to = end.equals(LocalDate.MAX) ? size : firstOnOrAfter(end.toEpochDay() + 1);
+        if (from >= to)
+            return BigDecimal.ZERO;
+        return prefix[to].subtract(prefix[from]);
+    }
+}
@@ -0,0 +1,127 @@
+package name.wexler.retirement.visualizer.Tables;
+
+import name.wexler.retirement.visualizer.Asset.Asset;
+import name.wexler.retirement.visualizer.CashFlowEstimator.Liability;
+import name.wexler.retirement.visualizer.CashFlowFrequency.Balance;
+import name.wexler.retirement.visualizer.CashFlowInstance.CashFlowInstance;
+import name.wexler.retirement.visualizer.CashFlowInstance.LiabilityCashFlowInstance;
+import name.wexler.retirement.visualizer.Money;
+import org.jetbrains.annotations.NotNull;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.*;
+
+/**
+ * Everything the overview page shows, computed once per index: the sums by item type, parent category,
+ * category and year, and each asset's value and liability's payments by year, for every year the calendar
+ * covers.  A page for any year range just reads its slice, so it costs the same however many instances there
+ * are.  The calendar drops the index, and with it the summary, whenever instances or balances change.
+ *
+ * The maps are shared by every caller and must not be modified.
+ */
+public class CashFlowSummary {
+    private final Integer firstYear;
+    private final Integer lastYear;
+    private final Map<String, Map<String, Map<String, Map<Integer, BigDecimal>>>> categorySums;
+    // Indexed by year - firstYear
+    private final Map<String, BigDecimal[]> assetValues = new HashMap<>();
+    private final Map<String, BigDecimal[]> liabilityAmounts = new HashMap<>();
+
+    CashFlowSummary(@NotNull CashFlowIndex index, @NotNull Collection<Asset> assets,
+                    @NotNull Collection<Liability> liabilities) {
+        firstYear = index.getFirstYear();
+        lastYear = index.getLastYear();
+        if (firstYear == null) {
+            categorySums = Collections.emptyMap();
+            return;
+        }
+        categorySums = index.getTable().sumByCategoryAndYear(firstYear, lastYear);
+        int years = lastYear - firstYear + 1;
+        for (Asset asset : assets) {
+            BigDecimal[] values = new BigDecimal[years];
+            for (int year = 0; year < years; ++year)
+                values[year] = assetValue(index, asset.getId(), firstYear + year);
+            assetValues.put(asset.getId(), values);
+        }
+        for (Liability liability : liabilities) {
+            BigDecimal[] amounts = new BigDecimal[years];
+            for (int year = 0; year < years; ++year)
+                amounts[year] = liabilityAmount(index, liability.getId(), firstYear + year);
+            liabilityAmounts.put(liability.getId(), amounts);
+        }
+    }
+
+    static BigDecimal assetValue(CashFlowIndex index, String assetId, int year) {
+        CashFlowInstance finalInstanceForYear =
+                index.getLastBySinkBefore(assetId, LocalDate.of(year + 1, Month.JANUARY, 1));
+        BigDecimal finalBalance = BigDecimal.ZERO;
+        if (finalInstanceForYear != null)
+            finalBalance = Money.toBigDecimal(
+                    finalInstanceForYear.getCashBalanceMicros() + finalInstanceForYear.getAssetBalanceMicros());
+        return finalBalance;
+    }
+
+    static BigDecimal liabilityAmount(CashFlowIndex index, String liabilityId, int year) {
+        BigDecimal sum = BigDecimal.ZERO;
+        for (CashFlowInstance instance : CashFlowIndex.paidInYear(index.getBySource(liabilityId), year)) {
+            if (instance.getCashFlowSource() instanceof Liability)
+                sum = sum.add(instance.getAmount());
+        }
+        return sum;
+    }
+
+    static BigDecimal liabilityBalance(CashFlowIndex index, Liability liability, int year) {
+        Balance startingBalance = liability.getStartingBalance();
+        LocalDate endOfYear = LocalDate.of(year, Month.DECEMBER, 31);
+        if (startingBalance == null || startingBalance.getBalanceDate().isAfter(endOfYear))
+            return BigDecimal.ZERO;
+        // Instance balances are overwritten with the sink's running total, so count down from the start instead
+        BigDecimal owed = startingBalance.getValue().abs();
+        for (CashFlowInstance instance : CashFlowIndex.paidBetween(index.getBySource(liability.getId()),
+                startingBalance.getBalanceDate(), endOfYear)) {
+            if (instance instanceof LiabilityCashFlowInstance)
+                owed = owed.subtract(((LiabilityCashFlowInstance) instance).getPrincipal().abs());
+        }
+        return owed.max(BigDecimal.ZERO);
+    }
+
+    /**
+     * @return first year with a cash flow, or null if there are none
+     */
+    public Integer getFirstYear() {
+        return firstYear;
+    }
+
+    /**
+     * @return last year with a cash flow, or null if there are none
+     */
+    public Integer getLastYear() {
+        return lastYear;
+    }
+
+    /**
+     * @return itemType -> parentCategory -> category -> year -> sum, with a sum for every year the calendar covers
+     */
+    public Map<String, Map<String, Map<String, Map<Integer, BigDecimal>>>> getCategorySums() {
+        return categorySums;
+    }
+
+    /**
+     * @return the asset's value at the end of year; after the last year nothing changes it any more
+     */
+    public BigDecimal getAssetValue(String assetId, int year) {
+        BigDecimal[] values = assetValues.get(assetId);
+        if (values == null || year < firstYear)
+            return BigDecimal.ZERO;
+        return values[Math.min(year, lastYear) - firstYear];
+    }
+
+    public BigDecimal getLiabilityAmount(String liabilityId, int year) {
+        BigDecimal[] amounts = liabilityAmounts.get(liabilityId);
+        if (amounts == null || year < firstYear || year > lastYear)
+            return BigDecimal.ZERO;
+        return amounts[year - firstYear];
+    }
+}
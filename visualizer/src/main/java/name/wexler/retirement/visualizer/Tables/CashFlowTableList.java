@@ -56,9 +56,7 @@ public class CashFlowTableList extends TableList {
     }
 
     private BigDecimal getAnnualCashFlow(String cashFlowId, Integer year) {
-        return cashFlowCalendar.getCashFlowInstances().stream().
-                filter(instance->instance.getYear() == year).
-                filter(instance->instance.getCashFlowId() == cashFlowId).
+        return cashFlowCalendar.getCashFlowsBySource(cashFlowId, year).stream().
                 map(instance->instance.getAmount()).
                 collect(Collectors.reducing(BigDecimal.ZERO, BigDecimal::add));
     }
@@ -66,9 +64,9 @@ public class CashFlowTableList extends TableList {
 
     private BigDecimal getEntityValue(Entity entity, Integer year) {
         if (entity instanceof Asset) {
-            return cashFlowCalendar.getAssetValue(entity.getId(), year);
+            return cashFlowCalendar.getSummary().getAssetValue(entity.getId(), year);
         } else if (entity instanceof Liability) {
-            return cashFlowCalendar.getLiabilityAmount(entity.getId(), year);
+            return cashFlowCalendar.getSummary().getLiabilityAmount(entity.getId(), year);
         } else if (entity instanceof CashFlowEstimator) {
             return getAnnualCashFlow(entity.getId(), year);
         } else {
@@ -188,18 +186,28 @@ public class CashFlowTableList extends TableList {
         return tableList;
     }
 
+    /**
+     * Slices the calendar's summary, so every year range is read from the same sums.
+     */
+    public static CashFlowTableList getCashFlowTable(Scenario scenario,
+                                                     CashFlowCalendar cashFlowCalendar,
+                                                     int startYear, int endYear) {
+        return createTableListFromNestedHash(cashFlowCalendar.getSummary().getCategorySums(),
+                scenario, cashFlowCalendar, startYear, endYear);
+    }
+
     public static CashFlowTableList getCashFlowTable(Scenario scenario,
                                                      CashFlowCalendar cashFlowCalendar,
                                                      List<CashFlowInstance> instances,
                                                      int startYear, int endYear) {
-        Map<String, Map<String, Map<String, Map<Integer, BigDecimal>>>> categoryMap =
-                instances.stream().
-                        collect(Collectors.groupingBy(CashFlowInstance::getItemType,
-                                Collectors.groupingBy(CashFlowInstance::getParentCategory,
-                                        Collectors.groupingBy(CashFlowInstance::getCategory,
-                                                Collectors.groupingBy(CashFlowInstance::getYear,
-                                                        Collectors.mapping(instance -> instance.getAmount(),
-                                                                Collectors.reducing(BigDecimal.ZERO, BigDecimal::add)))))));
-        return createTableListFromNestedHash(categoryMap, scenario, cashFlowCalendar,startYear, endYear);
+        return getCashFlowTable(scenario, cashFlowCalendar, new CashFlowInstanceTable(instances), startYear, endYear);
+    }
+
+    private static CashFlowTableList getCashFlowTable(Scenario scenario,
+                                                      CashFlowCalendar cashFlowCalendar,
+                                                      CashFlowInstanceTable instanceTable,
+                                                      int startYear, int endYear) {
+        return createTableListFromNestedHash(instanceTable.sumByCategoryAndYear(startYear, endYear),
+                scenario, cashFlowCalendar, startYear, endYear);
     }
 }
@@ -0,0 +1,13 @@
+<%@ page isELIgnored="false" %>
+<html>
+<head>
+    <title>Retirement Calculator</title>
+    <meta http-equiv="refresh" content="${retryAfter}" />
+    <link href="<%=request.getContextPath()%>/css/retirement.css" rel="stylesheet" />
+</head>
+<body>
+<h1>Retirement Calculator</h1>
+
+<p>The scenarios are still being built (${state}).  This page will reload in ${retryAfter} seconds.</p>
+</body>
+</html>
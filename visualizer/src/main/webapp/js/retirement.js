@@ -1,3 +1,7 @@
+const contextRoot = document.currentScript.src.replace(/\/js\/retirement\.js.*$/, "");
+const detailPageSize = 50;
+const detailFields = ["cashFlowDate", "description", "cashFlowSinkId", "amount"];
+
 function displayDetails(event) {
     children = document.getElementsByClassName(event.currentTarget.id);
     for (let child of children) {
@@ -7,10 +11,83 @@ function displayDetails(event) {
             child.style.visibility = "visible";
     }
 }
+
+// The JSON version of a category link's drill-down, or null if there isn't one
+function detailsUrl(link) {
+    let match = link.getAttribute("href").match(/scenario\/([^\/]+)\/grouping\/([^\/]+)\/([^\/]+)$/);
+    if (!match || match[2] == "liability")
+        return null;
+    let [, scenarioId, grouping, category] = match;
+    let path = grouping == "asset" ? "asset/" + category : "grouping/" + grouping + "/" + category;
+    let url = new URL(contextRoot + "/visualizer/api/scenario/" + scenarioId + "/" + path);
+    url.searchParams.set("fields", detailFields.join(","));
+    url.searchParams.set("limit", detailPageSize);
+    return url;
+}
+
+function appendDetails(table, url, more) {
+    more.disabled = true;
+    fetch(url).then(response => {
+        if (!response.ok)
+            throw new Error(response.status + " " + response.statusText);
+        return response.json();
+    }).then(page => {
+        for (let instance of page.instances) {
+            let tr = table.insertRow();
+            for (let field of detailFields) {
+                let td = tr.insertCell();
+                let value = instance[field];
+                if (field == "amount") {
+                    td.className = "money";
+                    value = value.toLocaleString(undefined, {minimumFractionDigits: 2, maximumFractionDigits: 2});
+                }
+                td.textContent = value;
+            }
+        }
+        if (page.next) {
+            url.searchParams.set("cursor", page.next);
+            more.textContent = "More (" + (page.total - table.rows.length) + " left)";
+            more.disabled = false;
+        } else {
+            more.remove();
+        }
+    }).catch(error => {
+        more.textContent = "Failed: " + error.message;
+    });
+}
+
+// Expand a category row in place, fetching its instances a page at a time
+function toggleCategoryDetails(event) {
+    let link = event.currentTarget;
+    let url = detailsUrl(link);
+    if (!url)
+        return;
+    event.preventDefault();
+    let row = link.closest("tr");
+    let next = row.nextElementSibling;
+    if (next && next.classList.contains("category-details")) {
+        next.hidden = !next.hidden;
+        return;
+    }
+    let detailsRow = document.createElement("tr");
+    detailsRow.className = "category-details";
+    let cell = detailsRow.insertCell();
+    cell.colSpan = row.cells.length;
+    let table = document.createElement("table");
+    cell.appendChild(table);
+    let more = document.createElement("button");
+    more.onclick = () => appendDetails(table, url, more);
+    cell.appendChild(more);
+    row.after(detailsRow);
+    appendDetails(table, url, more);
+}
+
 window.addEventListener("DOMContentLoaded", function() {
     var subTotals = document.getElementsByClassName("subtotal");
     for (let subTotal of subTotals) {
         subTotal.onclick = displayDetails;
     }
+    for (let link of document.querySelectorAll(".table-scroll a[href*='/grouping/']")) {
+        link.addEventListener("click", toggleCategoryDetails);
+    }
 }, false);
-
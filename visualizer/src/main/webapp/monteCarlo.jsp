@@ -0,0 +1,36 @@
+<%@ taglib prefix="c" uri="http://java.sun.com/jsp/jstl/core" %>
+<%@ taglib prefix="fmt" uri="http://java.sun.com/jsp/jstl/fmt" %>
+<%@ page isELIgnored="false" %>
+<html>
+<head>
+    <link href="<%=request.getContextPath()%>/css/retirement.css" rel="stylesheet" />
+    <script type="application/javascript" src="<%=request.getContextPath()%>/js/retirement.js" ></script>
+</head>
+<body>
+<h1>Net worth for ${scenarioId} over ${paths} paths</h1>
+
+<table border="1">
+    <caption>Net Worth Percentiles</caption>
+    <tr>
+        <th>Year</th>
+        <th>5th</th>
+        <th>Median</th>
+        <th>95th</th>
+    </tr>
+    <c:forEach var="band" items="${bands}">
+        <tr>
+            <th>${band.year}</th>
+            <td align="right">
+                <fmt:formatNumber value="${band.p5}" type="currency" />
+            </td>
+            <td align="right">
+                <fmt:formatNumber value="${band.p50}" type="currency" />
+            </td>
+            <td align="right">
+                <fmt:formatNumber value="${band.p95}" type="currency" />
+            </td>
+        </tr>
+    </c:forEach>
+</table>
+</body>
+</html>
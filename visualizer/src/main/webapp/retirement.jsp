@@ -29,6 +29,17 @@
 
 <h2>${scenario.name}</h2>
 
+<p>
+    Scenarios:
+    <c:forEach items="${scenarios}" var="s">
+        <c:choose>
+            <c:when test="${s.id == scenarioId}">${s.name}</c:when>
+            <c:otherwise><a href="<%=request.getContextPath()%>/visualizer/scenario/${s.id}">${s.name}</a></c:otherwise>
+        </c:choose>
+    </c:forEach>
+    <a href="<%=request.getContextPath()%>/visualizer/scenario/${scenarioId}/monte-carlo">Monte Carlo</a>
+</p>
+
 
 <table border="1">
     <caption>Assumptions</caption>
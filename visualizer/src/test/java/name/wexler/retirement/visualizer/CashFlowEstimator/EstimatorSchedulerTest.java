@@ -0,0 +1,97 @@
+package name.wexler.retirement.visualizer.CashFlowEstimator;
+
+import name.wexler.retirement.visualizer.Assumptions;
+import name.wexler.retirement.visualizer.CashFlowInstance.CashFlowInstance;
+import name.wexler.retirement.visualizer.Scenario;
+import name.wexler.retirement.visualizer.Tables.CashFlowCalendar;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class EstimatorSchedulerTest {
+    private static final String INCOME = CashFlowEstimator.itemTypeKey("INCOME");
+    private static final String ALIMONY = CashFlowEstimator.categoryKey("Alimony");
+    private CashFlowCalendar calendar;
+    private ExecutorService executorService;
+    private final Map<CashFlowEstimator, CashFlowCalendar> seen = Collections.synchronizedMap(new IdentityHashMap<>());
+
+    @Before
+    public void setUp() {
+        calendar = new CashFlowCalendar(mock(Scenario.class), mock(Assumptions.class));
+        executorService = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        executorService.shutdown();
+    }
+
+    private CashFlowEstimator estimator(String id, CASH_ESTIMATE_PASS pass, Set<String> reads, Set<String> writes,
+                                        long delayMillis) {
+        CashFlowEstimator estimator = mock(CashFlowEstimator.class);
+        List<CashFlowInstance> instances = Collections.singletonList(mock(CashFlowInstance.class));
+        when(estimator.getId()).thenReturn(id);
+        when(estimator.getPass()).thenReturn(pass);
+        when(estimator.getReads()).thenReturn(reads);
+        when(estimator.getWrites()).thenReturn(writes);
+        when(estimator.getEstimatedFutureCashFlows(any())).thenAnswer(invocation -> {
+            seen.put(estimator, invocation.getArgument(0));
+            Thread.sleep(delayMillis);
+            return instances;
+        });
+        return estimator;
+    }
+
+    @Test
+    public void independentEstimatorsKeepTheirOrder() {
+        List<CashFlowEstimator> estimators = new ArrayList<>();
+        for (int i = 0; i < 8; ++i)     // Earlier estimators finish last
+            estimators.add(estimator("e" + i, CASH_ESTIMATE_PASS.BASE_CASH_FLOWS, Set.of(), Set.of(INCOME), (8 - i) * 5));
+        EstimatorScheduler.Schedule schedule = new EstimatorScheduler(estimators).run(calendar, executorService);
+        assertEquals(estimators, new ArrayList<>(schedule.getEstimates().keySet()));
+        for (CashFlowEstimator estimator : estimators)
+            assertSame(calendar, seen.get(estimator));
+    }
+
+    @Test
+    public void readersSeeOnlyWhatTheyDependOn() {
+        CashFlowEstimator salary = estimator("salary", CASH_ESTIMATE_PASS.BASE_CASH_FLOWS, Set.of(), Set.of(INCOME), 20);
+        CashFlowEstimator loan = estimator("loan", CASH_ESTIMATE_PASS.BASE_CASH_FLOWS, Set.of(),
+                Set.of(CashFlowEstimator.itemTypeKey("EXPENSE")), 0);
+        CashFlowEstimator alimony = estimator("alimony", CASH_ESTIMATE_PASS.DERIVED_EXPENSES,
+                Set.of(INCOME, ALIMONY), Set.of(ALIMONY), 0);
+        EstimatorScheduler scheduler = new EstimatorScheduler(Arrays.asList(alimony, loan, salary));
+
+        assertEquals(Collections.singletonList(salary), scheduler.getDependencies(alimony));
+        EstimatorScheduler.Schedule schedule = scheduler.run(calendar, executorService);
+        // Estimates come back in pass order
+        assertEquals(Arrays.asList(loan, salary, alimony), new ArrayList<>(schedule.getEstimates().keySet()));
+        assertEquals(schedule.getEstimates().get(salary), seen.get(alimony).getCashFlowInstances());
+        assertEquals(Arrays.asList(salary, alimony), schedule.getCriticalPath());
+        assertTrue(schedule.getCriticalPathNanos() >= schedule.getElapsedNanos(salary));
+    }
+
+    @Test
+    public void mutualReadersFollowPassOrder() {
+        CashFlowEstimator alimony1 = estimator("alimony1", CASH_ESTIMATE_PASS.DERIVED_EXPENSES,
+                Set.of(ALIMONY), Set.of(ALIMONY), 0);
+        CashFlowEstimator alimony2 = estimator("alimony2", CASH_ESTIMATE_PASS.DERIVED_EXPENSES,
+                Set.of(ALIMONY), Set.of(ALIMONY), 0);
+        CashFlowEstimator tax = estimator("tax", CASH_ESTIMATE_PASS.TAXES,
+                Set.of(CashFlowEstimator.ALL), Set.of(CashFlowEstimator.ALL), 0);
+        EstimatorScheduler scheduler = new EstimatorScheduler(Arrays.asList(tax, alimony1, alimony2));
+
+        // Same pass, so neither sees the other
+        assertEquals(Collections.emptyList(), scheduler.getDependencies(alimony1));
+        assertEquals(Collections.emptyList(), scheduler.getDependencies(alimony2));
+        assertEquals(Arrays.asList(alimony1, alimony2), scheduler.getDependencies(tax));
+        assertEquals(Set.of(alimony2, tax), scheduler.getAffected(Collections.singletonList(alimony2)));
+    }
+}
@@ -1,5 +1,6 @@
 package name.wexler.retirement.visualizer.CashFlowInstance;
 
+import name.wexler.retirement.datastore.TxnHistory;
 import name.wexler.retirement.visualizer.AccountReader;
 import name.wexler.retirement.visualizer.CashFlowEstimator.Salary;
 import name.wexler.retirement.visualizer.CashFlowSource;
@@ -16,7 +17,6 @@ import javax.json.Json;
 import javax.json.stream.JsonParserFactory;
 import javax.json.stream.JsonParsingException;
 import java.math.BigDecimal;
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.Instant;
 import java.time.LocalDate;
@@ -37,39 +37,39 @@ public class CashFlowCategorizationHeuristicsTest {
     private Spending spending = mock(Spending.class);
     private CashFlowSource cashFlowSource = mock(CashFlowSource.class);
     private Account account = mock(Account.class);
-    private ResultSet rs = mock(ResultSet.class);
+    private TxnHistory.TxnRow row = mock(TxnHistory.TxnRow.class);
     private Job job = mock(Job.class);
     private final static String BLANK = "";
 
     @Before
     public void setUp() throws Exception {
-        when(rs.getString("parent")).thenReturn(BLANK);
-        when(rs.getString("category")).thenReturn(BLANK);
-        when(rs.getString("txn_type")).thenReturn(BLANK);
-        when(rs.getLong("Date")).thenReturn(0L);
-        when(rs.getLong("id")).thenReturn(1L);
-        when(rs.getString("fi")).thenReturn(BLANK);
-        when(rs.getString("notes")).thenReturn(BLANK);
-        when(rs.getString("labels")).thenReturn(BLANK);
-        when(rs.getString("itemType")).thenReturn(BLANK);
-        when(rs.getString("symbol")).thenReturn(null);
-        when(rs.getString("shares")).thenReturn(null);
+        when(row.getParent()).thenReturn(BLANK);
+        when(row.getCategory()).thenReturn(BLANK);
+        when(row.getTxnType()).thenReturn(BLANK);
+        when(row.getDate()).thenReturn(0L);
+        when(row.getId()).thenReturn(1L);
+        when(row.getFi()).thenReturn(BLANK);
+        when(row.getNotes()).thenReturn(BLANK);
+        when(row.getLabels()).thenReturn(BLANK);
+        when(row.getItemType()).thenReturn(BLANK);
+        when(row.getSymbol()).thenReturn(null);
+        when(row.getShares()).thenReturn(null);
     }
 
     @Test(expected = NullPointerException.class)
     public void getInstanceNullDescription() throws SQLException, CashFlowCategorizationHeuristics.AccountNotFoundException {
 
-        CashFlowCategorizationHeuristics.getInstance(context, account, spending, rs, cashFlowSource, null, job);
+        CashFlowCategorizationHeuristics.getInstance(context, account, spending, row, cashFlowSource, null, job);
     }
 
     @Test
     public void getInstanceNullParentCategory() throws
             SQLException, CashFlowCategorizationHeuristics.AccountNotFoundException {
 
-        when(rs.getString("parent")).thenReturn(null);
-        when(rs.getString("category")).thenReturn(BLANK);
+        when(row.getParent()).thenReturn(null);
+        when(row.getCategory()).thenReturn(BLANK);
         CashFlowInstance instance =
-                CashFlowCategorizationHeuristics.getInstance(context, account, spending, rs, cashFlowSource, "", job);
+                CashFlowCategorizationHeuristics.getInstance(context, account, spending, row, cashFlowSource, "", job);
         assertEquals(Category.UNKNOWN, instance.getParentCategory());
     }
 
@@ -77,39 +77,38 @@ public class CashFlowCategorizationHeuristicsTest {
     public void getInstanceNullCategory() throws
             SQLException, CashFlowCategorizationHeuristics.AccountNotFoundException {
 
-        when(rs.getString("category")).thenReturn(null);
+        when(row.getCategory()).thenReturn(null);
         CashFlowInstance instance =
-                CashFlowCategorizationHeuristics.getInstance(context, account, spending, rs, cashFlowSource, "", job);
+                CashFlowCategorizationHeuristics.getInstance(context, account, spending, row, cashFlowSource, "", job);
     }
 
     @Test
     public void getInstanceNullTxnType() throws
             SQLException, CashFlowCategorizationHeuristics.AccountNotFoundException {
 
-        when(rs.getString("txnType")).thenReturn(null);
         CashFlowInstance instance =
-                CashFlowCategorizationHeuristics.getInstance(context, account, spending, rs, cashFlowSource, "", job);
+                CashFlowCategorizationHeuristics.getInstance(context, account, spending, row, cashFlowSource, "", job);
         assert(instance != null);
     }
 
     @Test
     public void getInstanceInterestIncome() throws SQLException, CashFlowCategorizationHeuristics.AccountNotFoundException {
         CashFlowInstance instance =
-                CashFlowCategorizationHeuristics.getInstance(context, account, spending, rs, cashFlowSource,
+                CashFlowCategorizationHeuristics.getInstance(context, account, spending, row, cashFlowSource,
                         "Bank Int 123", job);
         assertEquals(Category.INTEREST_INCOME, instance.getCategory());
         assertEquals(Category.INVESTMENT, instance.getParentCategory());
         assertEquals(Category.INCOME_ITEM_TYPE, instance.getItemType());
 
         instance =
-                CashFlowCategorizationHeuristics.getInstance(context, account, spending, rs, cashFlowSource,
+                CashFlowCategorizationHeuristics.getInstance(context, account, spending, row, cashFlowSource,
                         "Interest 2345", job);
         assertEquals(Category.INTEREST_INCOME, instance.getCategory());
         assertEquals(Category.INVESTMENT, instance.getParentCategory());
         assertEquals(Category.INCOME_ITEM_TYPE, instance.getItemType());
 
         instance =
-                CashFlowCategorizationHeuristics.getInstance(context, account, spending, rs, cashFlowSource,
+                CashFlowCategorizationHeuristics.getInstance(context, account, spending, row, cashFlowSource,
                         "My Bank ACCOUNT INTEREST", job);
         assertEquals(Category.INTEREST_INCOME, instance.getCategory());
         assertEquals(Category.INVESTMENT, instance.getParentCategory());
@@ -119,15 +118,15 @@ public class CashFlowCategorizationHeuristicsTest {
     @Test
     public void getInstanceTransfer() throws SQLException, CashFlowCategorizationHeuristics.AccountNotFoundException {
         CashFlowInstance instance =
-                CashFlowCategorizationHeuristics.getInstance(context, account, spending, rs, cashFlowSource,
+                CashFlowCategorizationHeuristics.getInstance(context, account, spending, row, cashFlowSource,
                         "Tfr 123", job);
         assertEquals(Category.TRANSFER_CATEGORY, instance.getCategory());
         assertEquals(Category.TRANSFER_CATEGORY, instance.getParentCategory());
         assertEquals(Category.TRANSFER_ITEM_TYPE, instance.getItemType());
 
-        when(rs.getString("category")).thenReturn(Category.TRANSFER_CATEGORY);
+        when(row.getCategory()).thenReturn(Category.TRANSFER_CATEGORY);
         instance =
-                CashFlowCategorizationHeuristics.getInstance(context, account, spending, rs, cashFlowSource, BLANK, job);
+                CashFlowCategorizationHeuristics.getInstance(context, account, spending, row, cashFlowSource, BLANK, job);
         assertEquals(Category.TRANSFER_CATEGORY, instance.getCategory());
         assertEquals(Category.TRANSFER_CATEGORY, instance.getParentCategory());
         assertEquals(Category.TRANSFER_ITEM_TYPE, instance.getItemType());
@@ -136,7 +135,7 @@ public class CashFlowCategorizationHeuristicsTest {
     @Test
     public void getInstanceJournal() throws SQLException, CashFlowCategorizationHeuristics.AccountNotFoundException {
         CashFlowInstance instance =
-                CashFlowCategorizationHeuristics.getInstance(context, account, spending, rs, cashFlowSource,
+                CashFlowCategorizationHeuristics.getInstance(context, account, spending, row, cashFlowSource,
                         "JOURNAL 123", job);
         assertEquals(Category.JOURNAL_CATEGORY, instance.getCategory());
         assertEquals(Category.TRANSFER_CATEGORY, instance.getParentCategory());
@@ -146,7 +145,7 @@ public class CashFlowCategorizationHeuristicsTest {
     @Test
     public void getInstanceOverdraft() throws SQLException, CashFlowCategorizationHeuristics.AccountNotFoundException {
         CashFlowInstance instance =
-                CashFlowCategorizationHeuristics.getInstance(context, account, spending, rs, cashFlowSource,
+                CashFlowCategorizationHeuristics.getInstance(context, account, spending, row, cashFlowSource,
                         "Overdraft 123", job);
         assertEquals(Category.OVERDRAFT_CATEGORY, instance.getCategory());
         assertEquals(Category.TRANSFER_CATEGORY, instance.getParentCategory());
@@ -156,14 +155,14 @@ public class CashFlowCategorizationHeuristicsTest {
     @Test
     public void getInstanceCheck() throws SQLException, CashFlowCategorizationHeuristics.AccountNotFoundException {
         CashFlowInstance instance =
-                CashFlowCategorizationHeuristics.getInstance(context, account, spending, rs, cashFlowSource,
+                CashFlowCategorizationHeuristics.getInstance(context, account, spending, row, cashFlowSource,
                         "Check: 123", job);
         assertEquals(Category.CHECK_CATEGORY, instance.getCategory());
         assertEquals(Category.UNCATEGORIZED_CATEGORY, instance.getParentCategory());
         assertEquals(Category.EXPENSE_ITEM_TYPE, instance.getItemType());
 
-        when(rs.getString("txn_type")).thenReturn("CHECK");
-        instance = CashFlowCategorizationHeuristics.getInstance(context, account, spending, rs, cashFlowSource, BLANK, job);
+        when(row.getTxnType()).thenReturn("CHECK");
+        instance = CashFlowCategorizationHeuristics.getInstance(context, account, spending, row, cashFlowSource, BLANK, job);
         assertEquals(Category.CHECK_CATEGORY, instance.getCategory());
         assertEquals(Category.UNCATEGORIZED_CATEGORY, instance.getParentCategory());
         assertEquals(Category.EXPENSE_ITEM_TYPE, instance.getItemType());
@@ -172,7 +171,7 @@ public class CashFlowCategorizationHeuristicsTest {
     @Test
     public void getInstanceInvestmentTransfer() throws SQLException, CashFlowCategorizationHeuristics.AccountNotFoundException {
         CashFlowInstance instance =
-                CashFlowCategorizationHeuristics.getInstance(context, account, spending, rs, cashFlowSource,
+                CashFlowCategorizationHeuristics.getInstance(context, account, spending, row, cashFlowSource,
                         "Olink Tid 17", job);
         assertEquals(Category.TRANSFER_CATEGORY, instance.getCategory());
         assertEquals(Category.INVESTMENT, instance.getParentCategory());
@@ -182,7 +181,7 @@ public class CashFlowCategorizationHeuristicsTest {
     @Test
     public void getInstancePayrollContribution() throws SQLException, CashFlowCategorizationHeuristics.AccountNotFoundException {
         CashFlowInstance instance =
-                CashFlowCategorizationHeuristics.getInstance(context, account, spending, rs, cashFlowSource,
+                CashFlowCategorizationHeuristics.getInstance(context, account, spending, row, cashFlowSource,
                         "Payroll Contribution", job);
         assertEquals(Category.PAYROLL_CONTRIBUTION_CATEGORY, instance.getCategory());
         assertEquals(Category.INVESTMENT, instance.getParentCategory());
@@ -192,7 +191,7 @@ public class CashFlowCategorizationHeuristicsTest {
     @Test
     public void getInstanceFundsReceived() throws SQLException, CashFlowCategorizationHeuristics.AccountNotFoundException {
         CashFlowInstance instance =
-                CashFlowCategorizationHeuristics.getInstance(context, account, spending, rs, cashFlowSource,
+                CashFlowCategorizationHeuristics.getInstance(context, account, spending, row, cashFlowSource,
                         "FUNDS RECEIVED blah blah blah", job);
         assertEquals(Category.FUNDS_RECEIVED_CATEGORY, instance.getCategory());
         assertEquals(Category.TRANSFER_CATEGORY, instance.getParentCategory());
@@ -202,7 +201,7 @@ public class CashFlowCategorizationHeuristicsTest {
     @Test
     public void getInstancePlanContribution() throws SQLException, CashFlowCategorizationHeuristics.AccountNotFoundException {
         CashFlowInstance instance =
-                CashFlowCategorizationHeuristics.getInstance(context, account, spending, rs, cashFlowSource,
+                CashFlowCategorizationHeuristics.getInstance(context, account, spending, row, cashFlowSource,
                         "Foo Bank - Plan Contribution", job);
         assertEquals(Category.CONTRIBUTION_CATEGORY, instance.getCategory());
         assertEquals(Category.RETIREMENT_CATEGORY, instance.getParentCategory());
@@ -212,14 +211,14 @@ public class CashFlowCategorizationHeuristicsTest {
     @Test
     public void getInstanceBankFee() throws SQLException, CashFlowCategorizationHeuristics.AccountNotFoundException {
         CashFlowInstance instance =
-                CashFlowCategorizationHeuristics.getInstance(context, account, spending, rs, cashFlowSource,
+                CashFlowCategorizationHeuristics.getInstance(context, account, spending, row, cashFlowSource,
                         "WAIVE the fees for being a nice person.", job);
         assertEquals(Category.BANK_FEE_CATEGORY, instance.getCategory());
         assertEquals(Category.FEES_AND_CHARGES_CATEGORY, instance.getParentCategory());
         assertEquals(Category.EXPENSE_ITEM_TYPE, instance.getItemType());
 
-        when(rs.getString("txn_type")).thenReturn("FEE");
-        instance = CashFlowCategorizationHeuristics.getInstance(context, account, spending, rs, cashFlowSource, BLANK, job);
+        when(row.getTxnType()).thenReturn("FEE");
+        instance = CashFlowCategorizationHeuristics.getInstance(context, account, spending, row, cashFlowSource, BLANK, job);
         assertEquals(Category.BANK_FEE_CATEGORY, instance.getCategory());
         assertEquals(Category.FEES_AND_CHARGES_CATEGORY, instance.getParentCategory());
         assertEquals(Category.EXPENSE_ITEM_TYPE, instance.getItemType());
@@ -228,7 +227,7 @@ public class CashFlowCategorizationHeuristicsTest {
     @Test
     public void getInstancePrincipal() throws SQLException, CashFlowCategorizationHeuristics.AccountNotFoundException {
         CashFlowInstance instance =
-                CashFlowCategorizationHeuristics.getInstance(context, account, spending, rs, cashFlowSource,
+                CashFlowCategorizationHeuristics.getInstance(context, account, spending, row, cashFlowSource,
                         "US TREASURY FOO MATURED", job);
         assertEquals(Category.PRINCIPAL_CATEGORY, instance.getCategory());
         assertEquals(Category.INVESTMENT, instance.getParentCategory());
@@ -238,7 +237,7 @@ public class CashFlowCategorizationHeuristicsTest {
     @Test
     public void getInstanceDividendAndCapitalGains() throws SQLException, CashFlowCategorizationHeuristics.AccountNotFoundException {
         CashFlowInstance instance =
-                CashFlowCategorizationHeuristics.getInstance(context, account, spending, rs, cashFlowSource,
+                CashFlowCategorizationHeuristics.getInstance(context, account, spending, row, cashFlowSource,
                         "Here is your CASH DIV, thank you very much.", job);
         assertEquals(Category.DIVIDENDS_AND_CAPITAL_GAINS_CATEGORY, instance.getCategory());
         assertEquals(Category.INVESTMENT, instance.getParentCategory());
@@ -247,23 +246,23 @@ public class CashFlowCategorizationHeuristicsTest {
 
     @Test
     public void getInstanceItemTypeNull() throws SQLException, CashFlowCategorizationHeuristics.AccountNotFoundException {
-        when(rs.getString("itemType")).thenReturn(null);
+        when(row.getItemType()).thenReturn(null);
 
-        when(rs.getString("txn_type")).thenReturn("DEBIT");
+        when(row.getTxnType()).thenReturn("DEBIT");
         CashFlowInstance instance =
-                CashFlowCategorizationHeuristics.getInstance(context, account, spending, rs, cashFlowSource, BLANK, job);
+                CashFlowCategorizationHeuristics.getInstance(context, account, spending, row, cashFlowSource, BLANK, job);
         assertEquals(Category.UNCATEGORIZED_CATEGORY, instance.getCategory());
         assertEquals(Category.UNCATEGORIZED_CATEGORY, instance.getParentCategory());
         assertEquals(Category.EXPENSE_ITEM_TYPE, instance.getItemType());
 
-        when(rs.getString("txn_type")).thenReturn("CREDIT");
-        instance = CashFlowCategorizationHeuristics.getInstance(context, account, spending, rs, cashFlowSource, BLANK, job);
+        when(row.getTxnType()).thenReturn("CREDIT");
+        instance = CashFlowCategorizationHeuristics.getInstance(context, account, spending, row, cashFlowSource, BLANK, job);
         assertEquals(Category.UNCATEGORIZED_CATEGORY, instance.getCategory());
         assertEquals(Category.UNCATEGORIZED_CATEGORY, instance.getParentCategory());
         assertEquals(Category.INCOME_ITEM_TYPE, instance.getItemType());
 
-        when(rs.getString("txn_type")).thenReturn("OTHER_RANDOM_NONSENSE");
-        instance = CashFlowCategorizationHeuristics.getInstance(context, account, spending, rs, cashFlowSource, BLANK, job);
+        when(row.getTxnType()).thenReturn("OTHER_RANDOM_NONSENSE");
+        instance = CashFlowCategorizationHeuristics.getInstance(context, account, spending, row, cashFlowSource, BLANK, job);
         assertEquals(Category.UNCATEGORIZED_CATEGORY, instance.getCategory());
         assertEquals(Category.UNCATEGORIZED_CATEGORY, instance.getParentCategory());
         assertEquals(Category.EXPENSE_ITEM_TYPE, instance.getItemType());
@@ -272,7 +271,7 @@ public class CashFlowCategorizationHeuristicsTest {
     @Test
     public void getInstanceSalary() throws SQLException, CashFlowCategorizationHeuristics.AccountNotFoundException {
         CashFlowInstance instance =
-                CashFlowCategorizationHeuristics.getInstance(context, account, spending, rs, cashFlowSource,
+                CashFlowCategorizationHeuristics.getInstance(context, account, spending, row, cashFlowSource,
                         "Twist Bioscience", job);
         assertEquals(Category.SALARY_CATEGORY, instance.getCategory());
         assertEquals(Category.SALARY_CATEGORY, instance.getParentCategory());
@@ -282,45 +281,45 @@ public class CashFlowCategorizationHeuristicsTest {
     @Test
     public void getInstanceTransferItemType() throws SQLException, CashFlowCategorizationHeuristics.AccountNotFoundException {
         CashFlowInstance instance =
-                CashFlowCategorizationHeuristics.getInstance(context, account, spending, rs, cashFlowSource,
+                CashFlowCategorizationHeuristics.getInstance(context, account, spending, row, cashFlowSource,
                         "This is Morgan Stanley ACH haha!", job);
         assertEquals(Category.TRANSFER_ITEM_TYPE, instance.getItemType());
 
-        instance = CashFlowCategorizationHeuristics.getInstance(context, account, spending, rs, cashFlowSource,
+        instance = CashFlowCategorizationHeuristics.getInstance(context, account, spending, row, cashFlowSource,
                         "Its a MoneyLink!", job);
         assertEquals(Category.TRANSFER_ITEM_TYPE, instance.getItemType());
     }
 
     @Test
     public void getInstanceInvestmentTransfers() throws SQLException, CashFlowCategorizationHeuristics.AccountNotFoundException {
-        when(rs.getString("txn_type")).thenReturn("transfer");
-        when(rs.getString("category")).thenReturn("Investments");
+        when(row.getTxnType()).thenReturn("transfer");
+        when(row.getCategory()).thenReturn("Investments");
 
-        when(rs.getBigDecimal("shares")).thenReturn(BigDecimal.ONE);
+        when(row.getShares()).thenReturn(BigDecimal.ONE);
         CashFlowInstance instance =
-                CashFlowCategorizationHeuristics.getInstance(context, account, spending, rs, cashFlowSource, BLANK, job);
+                CashFlowCategorizationHeuristics.getInstance(context, account, spending, row, cashFlowSource, BLANK, job);
         assertEquals(Category.TRANSFER_ITEM_TYPE, instance.getItemType());
         assertEquals(Category.INVESTMENT, instance.getParentCategory());
         assertEquals(Category.REINVEST_SHARES_CATEGORY, instance.getCategory());
 
-        when(rs.getBigDecimal("shares")).thenReturn(null);
-        instance = CashFlowCategorizationHeuristics.getInstance(context, account, spending, rs, cashFlowSource,
+        when(row.getShares()).thenReturn(null);
+        instance = CashFlowCategorizationHeuristics.getInstance(context, account, spending, row, cashFlowSource,
                 "REINVESTMENT in foreign doodads", job);
         assertEquals(Category.TRANSFER_ITEM_TYPE, instance.getItemType());
         assertEquals(Category.INVESTMENT, instance.getParentCategory());
         assertEquals(Category.REINVEST_DIVIDENDS_CATEGORY, instance.getCategory());
 
-        when(rs.getBigDecimal("shares")).thenReturn(null);
-        instance = CashFlowCategorizationHeuristics.getInstance(context, account, spending, rs, cashFlowSource,
+        when(row.getShares()).thenReturn(null);
+        instance = CashFlowCategorizationHeuristics.getInstance(context, account, spending, row, cashFlowSource,
                 "blah blah blah", job);
         assertEquals(Category.TRANSFER_ITEM_TYPE, instance.getItemType());
         assertEquals(Category.INVESTMENT, instance.getParentCategory());
         assertEquals(Category.CONTRIBUTION_CATEGORY, instance.getCategory());
 
-        when(rs.getBigDecimal("shares")).thenReturn(BigDecimal.ZERO);
-        when(rs.getString("category")).thenReturn("Foo bar");
-        when(rs.getString("symbol")).thenReturn("IBM");
-        instance = CashFlowCategorizationHeuristics.getInstance(context, account, spending, rs, cashFlowSource,
+        when(row.getShares()).thenReturn(BigDecimal.ZERO);
+        when(row.getCategory()).thenReturn("Foo bar");
+        when(row.getSymbol()).thenReturn("IBM");
+        instance = CashFlowCategorizationHeuristics.getInstance(context, account, spending, row, cashFlowSource,
                 "blah blah blah", job);
         assertEquals(Category.TRANSFER_ITEM_TYPE, instance.getItemType());
         assertEquals(Category.INVESTMENT, instance.getParentCategory());
@@ -329,117 +328,117 @@ public class CashFlowCategorizationHeuristicsTest {
 
     @Test(expected = RuntimeException.class)
     public void getInstanceTxnAmountNotNumber() throws SQLException, CashFlowCategorizationHeuristics.AccountNotFoundException {
-        when(rs.getBigDecimal("amount")).thenThrow(new NumberFormatException("foo is not a number"));
+        when(row.getAmount()).thenThrow(new NumberFormatException("foo is not a number"));
         CashFlowInstance instance =
-                CashFlowCategorizationHeuristics.getInstance(context, account, spending, rs, cashFlowSource, BLANK, job);
+                CashFlowCategorizationHeuristics.getInstance(context, account, spending, row, cashFlowSource, BLANK, job);
         assertEquals(null, instance);
     }
 
     @Test(expected = CashFlowCategorizationHeuristics.AccountNotFoundException.class)
     public void getInstanceDebitNullCompany() throws SQLException, CashFlowCategorizationHeuristics.AccountNotFoundException {
-        when(rs.getBoolean("isDebit")).thenReturn(true);
-        when(rs.getString("txn_type")).thenReturn("EXPENSE");
+        when(row.isDebit()).thenReturn(true);
+        when(row.getTxnType()).thenReturn("EXPENSE");
         when(account.getCompany()).thenReturn(null);
         CashFlowInstance instance =
-                CashFlowCategorizationHeuristics.getInstance(context, account, spending, rs, cashFlowSource, BLANK, job);
+                CashFlowCategorizationHeuristics.getInstance(context, account, spending, row, cashFlowSource, BLANK, job);
         assertEquals(null, instance);
     }
 
     @Test(expected = CashFlowCategorizationHeuristics.AccountNotFoundException.class)
     public void getInstancePaycheckNullCompany() throws SQLException, CashFlowCategorizationHeuristics.AccountNotFoundException {
-        when(rs.getBoolean("isDebit")).thenReturn(false);
-        when(rs.getString("txn_type")).thenReturn("EXPENSE");
+        when(row.isDebit()).thenReturn(false);
+        when(row.getTxnType()).thenReturn("EXPENSE");
         when(account.getCompany()).thenReturn(null);
-        when(rs.getString("category")).thenReturn("Paycheck");
+        when(row.getCategory()).thenReturn("Paycheck");
 
         CashFlowInstance instance =
-                CashFlowCategorizationHeuristics.getInstance(context, account, spending, rs, null, BLANK, job);
+                CashFlowCategorizationHeuristics.getInstance(context, account, spending, row, null, BLANK, job);
         assertEquals(spending, instance.getCashFlowSource());
         assert(instance instanceof PaymentInstance);
     }
 
     @Test(expected = CashFlowCategorizationHeuristics.AccountNotFoundException.class)
     public void getInstanceReibumrsementNullCompany() throws SQLException, CashFlowCategorizationHeuristics.AccountNotFoundException {
-        when(rs.getBoolean("isDebit")).thenReturn(false);
-        when(rs.getString("txn_type")).thenReturn("EXPENSE");
+        when(row.isDebit()).thenReturn(false);
+        when(row.getTxnType()).thenReturn("EXPENSE");
         when(account.getCompany()).thenReturn(null);
-        when(rs.getString("category")).thenReturn("Reimbursement");
+        when(row.getCategory()).thenReturn("Reimbursement");
 
         CashFlowInstance instance =
-                CashFlowCategorizationHeuristics.getInstance(context, account, spending, rs, null, BLANK, job);
+                CashFlowCategorizationHeuristics.getInstance(context, account, spending, row, null, BLANK, job);
         assertEquals(spending, instance.getCashFlowSource());
         assert(instance instanceof PaymentInstance);
     }
 
     @Test
     public void getInstanceDebits() throws SQLException, CashFlowCategorizationHeuristics.AccountNotFoundException {
-        when(rs.getBoolean("isDebit")).thenReturn(true);
-        when(rs.getString("txn_type")).thenReturn("EXPENSE");
+        when(row.isDebit()).thenReturn(true);
+        when(row.getTxnType()).thenReturn("EXPENSE");
         when(account.getCompany()).thenReturn(mock(Entity.class));
-        when(rs.getBigDecimal("amount")).thenReturn(BigDecimal.TEN);
+        when(row.getAmount()).thenReturn(BigDecimal.TEN);
 
         CashFlowInstance instance =
-                CashFlowCategorizationHeuristics.getInstance(context, account, spending, rs, null, BLANK, job);
+                CashFlowCategorizationHeuristics.getInstance(context, account, spending, row, null, BLANK, job);
         assertEquals(spending, instance.getCashFlowSource());
         assert(instance instanceof PaymentInstance);
 
-        instance = CashFlowCategorizationHeuristics.getInstance(context, account, spending, rs, cashFlowSource, BLANK, job);
+        instance = CashFlowCategorizationHeuristics.getInstance(context, account, spending, row, cashFlowSource, BLANK, job);
         assert(instance instanceof PaymentInstance);
     }
 
     @Test
     public void getInstancePaycheck() throws SQLException, CashFlowCategorizationHeuristics.AccountNotFoundException {
-        when(rs.getBoolean("isDebit")).thenReturn(false);
-        when(rs.getString("txn_type")).thenReturn("EXPENSE");
+        when(row.isDebit()).thenReturn(false);
+        when(row.getTxnType()).thenReturn("EXPENSE");
         when(account.getCompany()).thenReturn(mock(Entity.class));
-        when(rs.getString("category")).thenReturn("Paycheck");
-        when(rs.getBigDecimal("amount")).thenReturn(BigDecimal.TEN);
+        when(row.getCategory()).thenReturn("Paycheck");
+        when(row.getAmount()).thenReturn(BigDecimal.TEN);
 
         CashFlowInstance instance =
-                CashFlowCategorizationHeuristics.getInstance(context, account, spending, rs, cashFlowSource, BLANK, job);
+                CashFlowCategorizationHeuristics.getInstance(context, account, spending, row, cashFlowSource, BLANK, job);
         assert(instance instanceof PaycheckInstance);
     }
 
     @Test
     public void getInstanceReimbursement() throws SQLException, CashFlowCategorizationHeuristics.AccountNotFoundException {
-        when(rs.getBoolean("isDebit")).thenReturn(false);
-        when(rs.getString("txn_type")).thenReturn("EXPENSE");
+        when(row.isDebit()).thenReturn(false);
+        when(row.getTxnType()).thenReturn("EXPENSE");
         when(account.getCompany()).thenReturn(mock(Entity.class));
-        when(rs.getString("category")).thenReturn("Reimbursement");
-        when(rs.getBigDecimal("amount")).thenReturn(BigDecimal.TEN);
+        when(row.getCategory()).thenReturn("Reimbursement");
+        when(row.getAmount()).thenReturn(BigDecimal.TEN);
 
         CashFlowInstance instance =
-                CashFlowCategorizationHeuristics.getInstance(context, account, spending, rs, cashFlowSource, BLANK, job);
+                CashFlowCategorizationHeuristics.getInstance(context, account, spending, row, cashFlowSource, BLANK, job);
         assert(instance instanceof ReimbursementInstance);
     }
 
     @Test
     public void getInstanceLabels() throws SQLException, CashFlowCategorizationHeuristics.AccountNotFoundException {
-        when(rs.getBoolean("isDebit")).thenReturn(false);
-        when(rs.getString("txn_type")).thenReturn("EXPENSE");
+        when(row.isDebit()).thenReturn(false);
+        when(row.getTxnType()).thenReturn("EXPENSE");
         when(account.getCompany()).thenReturn(mock(Entity.class));
-        when(rs.getString("category")).thenReturn("Reimbursement");
+        when(row.getCategory()).thenReturn("Reimbursement");
 
-        when(rs.getString("labels")).thenReturn("[]");
+        when(row.getLabels()).thenReturn("[]");
         CashFlowInstance instance =
-                CashFlowCategorizationHeuristics.getInstance(context, account, spending, rs, cashFlowSource, BLANK, job);
+                CashFlowCategorizationHeuristics.getInstance(context, account, spending, row, cashFlowSource, BLANK, job);
         assertEquals(0, instance.getLabels().size());
 
-        when(rs.getString("labels")).thenReturn("[{\"name\": \"label-name\"}]");
-        instance = CashFlowCategorizationHeuristics.getInstance(context, account, spending, rs, cashFlowSource, BLANK, job);
+        when(row.getLabels()).thenReturn("[{\"name\": \"label-name\"}]");
+        instance = CashFlowCategorizationHeuristics.getInstance(context, account, spending, row, cashFlowSource, BLANK, job);
         assertEquals(1, instance.getLabels().size());
     }
 
     @Test(expected = JsonParsingException.class)
     public void getInstanceLabelsInvalidJSON() throws SQLException, CashFlowCategorizationHeuristics.AccountNotFoundException {
-        when(rs.getBoolean("isDebit")).thenReturn(false);
-        when(rs.getString("txn_type")).thenReturn("EXPENSE");
+        when(row.isDebit()).thenReturn(false);
+        when(row.getTxnType()).thenReturn("EXPENSE");
         when(account.getCompany()).thenReturn(mock(Entity.class));
-        when(rs.getString("category")).thenReturn("Reimbursement");
+        when(row.getCategory()).thenReturn("Reimbursement");
 
-        when(rs.getString("labels")).thenReturn("bad-json!");
+        when(row.getLabels()).thenReturn("bad-json!");
         CashFlowInstance instance =
-                CashFlowCategorizationHeuristics.getInstance(context, account, spending, rs, cashFlowSource, BLANK, job);
+                CashFlowCategorizationHeuristics.getInstance(context, account, spending, row, cashFlowSource, BLANK, job);
         assertEquals(0, instance.getLabels().size());
 
     }
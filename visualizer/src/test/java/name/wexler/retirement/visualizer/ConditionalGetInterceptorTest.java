@@ -0,0 +1,154 @@
+package name.wexler.retirement.visualizer;
+
+import name.wexler.retirement.visualizer.Tables.CashFlowCalendar;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class ConditionalGetInterceptorTest {
+    static final String scenarioId = "scenario1";
+
+    /**
+     * A response that keeps its status, headers and body so they can be checked
+     */
+    static class Response {
+        final HttpServletResponse mock = mock(HttpServletResponse.class);
+        final Map<String, String> headers = new HashMap<>();
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        int status = HttpServletResponse.SC_OK;
+
+        Response() throws IOException {
+            when(mock.getStatus()).thenAnswer(i -> status);
+            doAnswer(i -> {
+                status = i.getArgument(0);
+                return null;
+            }).when(mock).setStatus(anyInt());
+            doAnswer(i -> headers.put(i.getArgument(0), i.getArgument(1))).
+                    when(mock).setHeader(anyString(), anyString());
+            doAnswer(i -> headers.put(i.getArgument(0), Long.toString(i.<Long>getArgument(1)))).
+                    when(mock).setDateHeader(anyString(), anyLong());
+            when(mock.getHeader(anyString())).thenAnswer(i -> headers.get(i.<String>getArgument(0)));
+            when(mock.getCharacterEncoding()).thenReturn("UTF-8");
+            ServletOutputStream outputStream = new ServletOutputStream() {
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setWriteListener(WriteListener writeListener) {
+                }
+
+                @Override
+                public void write(int b) {
+                    body.write(b);
+                }
+            };
+            when(mock.getOutputStream()).thenReturn(outputStream);
+        }
+    }
+
+    /**
+     * @param ifNoneMatch the ETag the browser has, or null if it has nothing
+     * @return a GET for a page about scenario1
+     */
+    static HttpServletRequest request(String uri, String ifNoneMatch) {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE, Map.of("scenarioId", scenarioId));
+        when(request.getMethod()).thenReturn("GET");
+        when(request.getRequestURI()).thenReturn(uri);
+        when(request.getHeaders(anyString())).thenAnswer(i -> Collections.emptyEnumeration());
+        if (ifNoneMatch != null)
+            when(request.getHeaders(HttpHeaders.IF_NONE_MATCH)).
+                    thenAnswer(i -> Collections.enumeration(Collections.singletonList(ifNoneMatch)));
+        when(request.getDateHeader(anyString())).thenReturn(-1L);
+        when(request.getAttribute(anyString())).thenAnswer(i -> attributes.get(i.<String>getArgument(0)));
+        doAnswer(i -> attributes.put(i.getArgument(0), i.getArgument(1))).
+                when(request).setAttribute(anyString(), any());
+        return request;
+    }
+
+    /**
+     * Builds a Retirement whose only scenario has a calendar at calendarVersion, as a rebuild would.
+     */
+    static void rebuild(long calendarVersion) throws Exception {
+        CashFlowCalendar calendar = mock(CashFlowCalendar.class);
+        when(calendar.getVersion()).thenReturn(calendarVersion);
+        when(calendar.getLastModified()).thenReturn(0L);
+        Scenario scenario = mock(Scenario.class);
+        when(scenario.getId()).thenReturn(scenarioId);
+        when(scenario.getCashFlowCalendar()).thenReturn(calendar);
+        Retirement.rebuild(() -> new Retirement(Collections.emptyList(), Collections.singletonList(scenario))).
+                get(10, TimeUnit.SECONDS);
+    }
+
+    private final ConditionalGetInterceptor interceptor = new ConditionalGetInterceptor();
+
+    @Before
+    public void setUp() throws Exception {
+        rebuild(1);
+    }
+
+    private String eTag() throws Exception {
+        Response response = new Response();
+        HttpServletRequest request = request("/scenario1/cashFlows", null);
+        assertTrue(interceptor.preHandle(request, response.mock, null));
+        assertEquals(HttpServletResponse.SC_OK, response.status);
+        assertEquals(PageVersion.of(scenarioId), request.getAttribute(PageVersion.ATTRIBUTE));
+        String eTag = response.headers.get(HttpHeaders.ETAG);
+        assertNotNull(eTag);
+        return eTag;
+    }
+
+    @Test
+    public void notModifiedWhenETagMatches() throws Exception {
+        String eTag = eTag();
+
+        Response response = new Response();
+        assertFalse(interceptor.preHandle(request("/scenario1/cashFlows", eTag), response.mock, null));
+        assertEquals(HttpServletResponse.SC_NOT_MODIFIED, response.status);
+    }
+
+    @Test
+    public void eTagChangesAfterRebuild() throws Exception {
+        String before = eTag();
+        rebuild(2);
+        String after = eTag();
+        assertNotEquals(before, after);
+
+        Response response = new Response();
+        assertTrue(interceptor.preHandle(request("/scenario1/cashFlows", before), response.mock, null));
+        assertEquals(HttpServletResponse.SC_OK, response.status);
+        assertEquals(after, response.headers.get(HttpHeaders.ETAG));
+    }
+
+    @Test
+    public void eTagChangesAfterRestart() throws Exception {
+        String before = eTag();
+        // A new process numbers its calendars from the start again
+        rebuild(1);
+        String after = eTag();
+        assertNotEquals(before, after);
+
+        Response response = new Response();
+        assertTrue(interceptor.preHandle(request("/scenario1/cashFlows", before), response.mock, null));
+        assertEquals(HttpServletResponse.SC_OK, response.status);
+    }
+}
@@ -0,0 +1,50 @@
+package name.wexler.retirement.visualizer.Entity;
+
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+public class CategoryDictionaryTest {
+
+    @Test
+    public void idOf() {
+        int id = CategoryDictionary.idOf("Groceries");
+        assertEquals(id, CategoryDictionary.idOf("Groceries"));
+        assertEquals(id, CategoryDictionary.lookup("Groceries"));
+        assertEquals("Groceries", CategoryDictionary.nameOf(id));
+        assertNotEquals(id, CategoryDictionary.idOf("Restaurants"));
+    }
+
+    @Test
+    public void missingNames() {
+        assertEquals(CategoryDictionary.NONE, CategoryDictionary.idOf(null));
+        assertNull(CategoryDictionary.nameOf(CategoryDictionary.NONE));
+        assertEquals(CategoryDictionary.NONE, CategoryDictionary.lookup("Never used by any instance"));
+    }
+
+    @Test
+    public void concurrentRegistration() throws Exception {
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Map<String, Integer>>> results = new ArrayList<>();
+            for (int thread = 0; thread < 8; ++thread) {
+                results.add(executorService.submit(() -> {
+                    Map<String, Integer> ids = new HashMap<>();
+                    for (int i = 0; i < 1000; ++i)
+                        ids.put("concurrent " + i, CategoryDictionary.idOf("concurrent " + i));
+                    return ids;
+                }));
+            }
+            Map<String, Integer> first = results.get(0).get();
+            assertEquals(1000, new HashSet<>(first.values()).size());
+            for (Future<Map<String, Integer>> result : results)
+                assertEquals(first, result.get());
+            first.forEach((name, id) -> assertEquals(name, CategoryDictionary.nameOf(id)));
+        } finally {
+            executorService.shutdown();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package name.wexler.retirement.visualizer;
+
+import name.wexler.retirement.visualizer.Asset.Asset;
+import name.wexler.retirement.visualizer.Asset.AssetAccount;
+import name.wexler.retirement.visualizer.Asset.RealProperty;
+import name.wexler.retirement.visualizer.CashFlowEstimator.Liability;
+import name.wexler.retirement.visualizer.CashFlowEstimator.SecuredLoan;
+import name.wexler.retirement.visualizer.CashFlowFrequency.CashBalance;
+import name.wexler.retirement.visualizer.CashFlowFrequency.CashFlowFrequency;
+import name.wexler.retirement.visualizer.CashFlowFrequency.Monthly;
+import name.wexler.retirement.visualizer.CashFlowInstance.CashFlowInstance;
+import name.wexler.retirement.visualizer.Entity.Company;
+import name.wexler.retirement.visualizer.Entity.Person;
+import name.wexler.retirement.visualizer.Tables.CashFlowCalendar;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class HistoricalCashFlowsTest {
+    private Context context;
+    private HistoricalCashFlows history;
+    private Liability liability;
+    private CashFlowSource source;
+
+    @Before
+    public void setUp() throws Exception {
+        AccountReader accountReader = mock(AccountReader.class);
+        context = new Context(accountReader);
+        context.setAssumptions(new Assumptions());
+        // The datastore has no accounts, so nothing gives the loan a current balance
+        history = new HistoricalCashFlows(context, accountReader);
+
+        Company lender = new Company(context, "lender1", "Lender 1");
+        Person borrower = new Person(context, "borrower1", LocalDate.of(1980, Month.FEBRUARY, 29), 80,
+                "Borrower", "Doe");
+        List<String> borrowerIds = Collections.singletonList(borrower.getId());
+        Asset asset = new RealProperty(context, "real-property1", borrowerIds,
+                new CashBalance(LocalDate.of(2010, Month.APRIL, 15), BigDecimal.valueOf(100000.00)),
+                new String[]{"123 Main Street"}, "Anytown", "Count County", "AS", "01234", "US",
+                Collections.emptyList());
+        LocalDate accrueStart = LocalDate.of(2011, Month.MAY, 1);
+        CashFlowFrequency monthly = new Monthly(context, "monthly-liability1", accrueStart,
+                LocalDate.of(2031, Month.APRIL, 1), LocalDate.of(2011, Month.MAY, 14),
+                CashFlowFrequency.ApportionmentPeriod.ANNUAL);
+        Company bank = new Company(context, "bank1", "Bank #1");
+        CashFlowSink checking = new AssetAccount(context, "checking1", borrowerIds,
+                "Checking account 1", bank.getId(), Collections.emptyList(), null, AccountReader.mintTxnSource);
+        liability = new SecuredLoan(context, "liability1", lender.getId(), borrowerIds, asset,
+                LocalDate.of(2014, Month.OCTOBER, 10),
+                LocalDate.of(2030, Month.JUNE, 1),
+                30 * 12, BigDecimal.valueOf(3.875 / 12), BigDecimal.valueOf(50000.0),
+                BigDecimal.valueOf(500.00), BigDecimal.valueOf(473.33), monthly.getId(), checking.getId(),
+                Collections.singletonList("foo"));
+        source = mock(CashFlowSource.class);
+        when(source.getId()).thenReturn("source1");
+    }
+
+    /**
+     * @return a scenario's calendar with projected monthly payments on the loan
+     */
+    private CashFlowCalendar calendar(String scenarioId, String payment) {
+        Scenario scenario = mock(Scenario.class);
+        when(scenario.getId()).thenReturn(scenarioId);
+        CashFlowCalendar calendar = new CashFlowCalendar(scenario, new Assumptions());
+        List<CashFlowInstance> payments = new ArrayList<>();
+        for (int month = 1; month <= 12; ++month) {
+            LocalDate date = LocalDate.of(2040, month, 1);
+            payments.add(new CashFlowInstance(CashFlowInstance.NO_ID, true, source, liability,
+                    "EXPENSE", "Loans", "mortgage", date, date, date, new BigDecimal(payment), BigDecimal.ZERO,
+                    "payment"));
+        }
+        calendar.addProjectedCashFlowInstances("payments", payments);
+        return calendar;
+    }
+
+    private List<BigDecimal> walk(CashFlowCalendar calendar) {
+        history.walkBalances(() -> {
+            history.setCurrentBalances();
+            calendar.computeBalances();
+            return null;
+        });
+        List<BigDecimal> balances = new ArrayList<>();
+        for (CashFlowInstance instance : calendar.getCashFlowInstances())
+            balances.add(instance.getCashBalance());
+        return balances;
+    }
+
+    private static void assertBalances(List<BigDecimal> expected, List<BigDecimal> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); ++i)
+            assertEquals(expected.get(i) + " != " + actual.get(i), 0, expected.get(i).compareTo(actual.get(i)));
+    }
+
+    @Test
+    public void scenariosStartFromTheSameLiabilityBalances() {
+        CashFlowCalendar scenario1 = calendar("scenario1", "-1000.00");
+        CashFlowCalendar scenario2 = calendar("scenario2", "-500.00");
+
+        List<BigDecimal> first1 = walk(scenario1);
+        List<BigDecimal> first2 = walk(scenario2);
+        assertBalances(first1, walk(scenario1));
+        assertBalances(first2, walk(scenario2));
+
+        BigDecimal start = liability.getStartingBalance().getValue();
+        assertEquals(0, start.subtract(new BigDecimal("1000.00")).compareTo(first1.get(0)));
+        assertEquals(0, start.subtract(new BigDecimal("12000.00")).compareTo(first1.get(11)));
+        assertEquals(0, start.subtract(new BigDecimal("500.00")).compareTo(first2.get(0)));
+        assertEquals(0, start.subtract(new BigDecimal("6000.00")).compareTo(first2.get(11)));
+    }
+}
@@ -0,0 +1,83 @@
+package name.wexler.retirement.visualizer.JSON;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import name.wexler.retirement.visualizer.CashFlowInstance.CashFlowInstance;
+import name.wexler.retirement.visualizer.CashFlowSink;
+import name.wexler.retirement.visualizer.CashFlowSource;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CashFlowInstanceQueryTest {
+    private List<CashFlowInstance> instances;
+
+    @Before
+    public void setUp() {
+        CashFlowSource source = mock(CashFlowSource.class);
+        when(source.getId()).thenReturn("source1");
+        CashFlowSink sink = mock(CashFlowSink.class);
+        when(sink.getId()).thenReturn("sink1");
+        instances = new ArrayList<>();
+        String[] categories = {"food", "rent", "food", "fuel", "food"};
+        for (int i = 0; i < categories.length; ++i) {
+            LocalDate date = LocalDate.of(2020, 1 + i, 1);
+            instances.add(new CashFlowInstance(CashFlowInstance.NO_ID, false, source, sink,
+                    "EXPENSE", "parent", categories[i], date, date, date,
+                    new BigDecimal(10 * (i + 1)), BigDecimal.ZERO, categories[i] + " " + i));
+        }
+    }
+
+    @Test
+    public void pagesThroughFilteredAndSorted() {
+        List<CashFlowInstance> seen = new ArrayList<>();
+        String cursor = null;
+        do {
+            CashFlowInstanceQuery query = new CashFlowInstanceQuery();
+            query.setCategory("food");
+            query.setSort("-amount");
+            query.setLimit(2);
+            query.setCursor(cursor);
+            CashFlowInstanceQuery.Page page = query.apply(instances);
+            assertEquals(3, page.getTotal());
+            seen.addAll(page.getInstances());
+            cursor = page.getNext();
+        } while (cursor != null);
+        assertEquals(Arrays.asList(instances.get(4), instances.get(2), instances.get(0)), seen);
+    }
+
+    @Test
+    public void writesOnlyTheRequestedFields() throws Exception {
+        CashFlowInstanceQuery query = new CashFlowInstanceQuery();
+        query.setFields("cashFlowDate,amount");
+        query.setMinAmount(new BigDecimal("20"));
+        query.setTo("2020-03-31");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        query.write(query.apply(instances), out);
+
+        JsonNode json = new ObjectMapper().readTree(out.toByteArray());
+        assertEquals(2, json.get("total").asInt());
+        assertTrue(json.get("next").isNull());
+        JsonNode first = json.get("instances").get(0);
+        assertEquals(2, first.size());
+        assertEquals("2020-02-01", first.get("cashFlowDate").asText());
+        assertEquals(0, new BigDecimal("20").compareTo(first.get("amount").decimalValue()));
+    }
+
+    @Test(expected = CashFlowInstanceQuery.InvalidQueryException.class)
+    public void rejectsUnknownSort() {
+        CashFlowInstanceQuery query = new CashFlowInstanceQuery();
+        query.setSort("labels");
+        query.apply(instances);
+    }
+}
@@ -0,0 +1,51 @@
+package name.wexler.retirement.visualizer;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class MoneyTest {
+
+    @Test
+    public void roundTrip() {
+        assertEquals(new BigDecimal("12.34"), Money.toBigDecimal(Money.of(new BigDecimal("12.34"))));
+        assertEquals(new BigDecimal("12.00"), Money.toBigDecimal(Money.of(BigDecimal.valueOf(12))));
+        assertEquals(new BigDecimal("-0.001234"), Money.toBigDecimal(Money.of(new BigDecimal("-0.001234"))));
+        assertEquals(new BigDecimal("0.000002"), Money.toBigDecimal(Money.of(new BigDecimal("0.0000015"))));
+        assertEquals(Money.ZERO, Money.of(null));
+    }
+
+    @Test
+    public void roundToCentsMatchesSetScale() {
+        String[] values = {"0.005", "-0.005", "0.004999", "-0.004999", "1.235", "-1.235", "1.2349", "100", "-0.01"};
+        for (String value : values) {
+            BigDecimal expected = new BigDecimal(value).setScale(2, RoundingMode.HALF_UP);
+            assertEquals(value, expected, Money.toBigDecimal(Money.roundToCents(Money.of(new BigDecimal(value)))));
+        }
+    }
+
+    /**
+     * Golden test: a ledger of cent amounts and rate products walked the way the sinks used to, adding
+     * BigDecimals, and the way they do now, adding micros, gives the same balance after every instance.
+     */
+    @Test
+    public void runningTotalsMatchBigDecimal() {
+        Random random = new Random(18);
+        BigDecimal rate = new BigDecimal("0.0765");
+        BigDecimal expected = new BigDecimal("25000.00");
+        long actual = Money.of(expected);
+        for (int i = 0; i < 100000; ++i) {
+            BigDecimal amount = BigDecimal.valueOf(random.nextInt(2000000) - 1000000, 2);
+            if (i % 3 == 0)
+                amount = amount.multiply(rate);
+            expected = expected.add(amount);
+            actual += Money.of(amount);
+            assertEquals(0, expected.compareTo(Money.toBigDecimal(actual)));
+        }
+        assertEquals(expected.setScale(2, RoundingMode.HALF_UP), Money.toBigDecimal(Money.roundToCents(actual)));
+    }
+}
@@ -0,0 +1,71 @@
+package name.wexler.retirement.visualizer;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MonteCarloSimulationTest {
+    private Assumptions assumptions;
+
+    @Before
+    public void setUp() {
+        assumptions = new Assumptions();
+        assumptions.setLongTermInvestmentReturn(0.05);
+        assumptions.setInflation(0.02);
+    }
+
+    @Test
+    public void withoutVolatilityEveryPathIsTheSame() {
+        assumptions.setLongTermInvestmentReturnStdDev(0.0);
+        assumptions.setInflationStdDev(0.0);
+        MonteCarloSimulation simulation =
+                new MonteCarloSimulation(2030, 1000.0, new double[] {100.0, -50.0, 0.0}, assumptions);
+        MonteCarloSimulation.Result result = simulation.run(500, 1);
+        assertEquals(2030, result.getStartYear());
+        assertEquals(2032, result.getEndYear());
+        double expected = 1000.0;
+        for (int year = 2030; year <= 2032; ++year) {
+            expected = expected * 1.05 + new double[] {100.0, -50.0, 0.0}[year - 2030];
+            assertEquals(expected, result.getP5(year), 1e-6);
+            assertEquals(expected, result.getP50(year), 1e-6);
+            assertEquals(expected, result.getP95(year), 1e-6);
+        }
+    }
+
+    @Test
+    public void bandsAreOrderedAndRepeatable() {
+        MonteCarloSimulation simulation =
+                new MonteCarloSimulation(2030, 1000000.0, new double[30], assumptions);
+        MonteCarloSimulation.Result result = simulation.run(2000, 42);
+        MonteCarloSimulation.Result again = simulation.run(2000, 42);
+        for (int year = result.getStartYear(); year <= result.getEndYear(); ++year) {
+            assertTrue(result.getP5(year) <= result.getP50(year));
+            assertTrue(result.getP50(year) <= result.getP95(year));
+            assertEquals(result.getP50(year), again.getP50(year), 0.0);
+        }
+        assertTrue(result.getP5(2059) < result.getP95(2059));
+    }
+
+    @Test
+    public void pathsOutOfRange() {
+        MonteCarloSimulation simulation = new MonteCarloSimulation(2030, 1000.0, new double[3], assumptions);
+        for (int paths : new int[] {-1, 0, MonteCarloSimulation.MAX_PATHS + 1}) {
+            try {
+                simulation.run(paths, 1);
+                fail("Ran " + paths + " paths");
+            } catch (MonteCarloSimulation.InvalidPathsException e) {
+                // Expected
+            }
+        }
+        assertEquals(1, simulation.run(1, 1).getPaths());
+    }
+
+    @Test
+    public void percentile() {
+        double[] sorted = {1.0, 2.0, 3.0, 4.0, 5.0, 6.0, 7.0, 8.0, 9.0, 10.0};
+        assertEquals(1.0, MonteCarloSimulation.percentile(sorted, 5), 0.0);
+        assertEquals(5.0, MonteCarloSimulation.percentile(sorted, 50), 0.0);
+        assertEquals(10.0, MonteCarloSimulation.percentile(sorted, 95), 0.0);
+    }
+}
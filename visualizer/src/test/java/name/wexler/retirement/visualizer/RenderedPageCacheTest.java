@@ -0,0 +1,112 @@
+package name.wexler.retirement.visualizer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.HashMap;
+import java.util.Map;
+
+import static name.wexler.retirement.visualizer.ConditionalGetInterceptorTest.*;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RenderedPageCacheTest {
+    private final RenderedPageCache cache = new RenderedPageCache();
+    private final Map<String, Integer> renders = new HashMap<>();
+    private int status = HttpServletResponse.SC_OK;
+
+    /**
+     * Stands in for the dispatcher: the interceptor, then a controller and JSP that write the page
+     */
+    private final FilterChain chain = (servletRequest, servletResponse) -> {
+        HttpServletRequest request = (HttpServletRequest) servletRequest;
+        HttpServletResponse response = (HttpServletResponse) servletResponse;
+        if (!new ConditionalGetInterceptor().preHandle(request, response, null))
+            return;
+        renders.merge(request.getRequestURI(), 1, Integer::sum);
+        response.setStatus(status);
+        response.getOutputStream().write(("page " + request.getRequestURI()).getBytes());
+    };
+
+    @Before
+    public void setUp() throws Exception {
+        rebuild(1);
+        FilterConfig filterConfig = mock(FilterConfig.class);
+        when(filterConfig.getInitParameter("maxEntries")).thenReturn("2");
+        cache.init(filterConfig);
+    }
+
+    @After
+    public void tearDown() {
+        cache.destroy();
+    }
+
+    private Response get(String uri, String ifNoneMatch) throws Exception {
+        Response response = new Response();
+        cache.doFilter(request(uri, ifNoneMatch), response.mock, chain);
+        return response;
+    }
+
+    private Response get(String uri) throws Exception {
+        Response response = get(uri, null);
+        assertEquals("page " + uri, response.body.toString());
+        return response;
+    }
+
+    private int renders(String uri) {
+        return renders.getOrDefault(uri, 0);
+    }
+
+    @Test
+    public void servesCachedPageWhileVersionUnchanged() throws Exception {
+        get("/scenario1/cashFlows");
+        get("/scenario1/cashFlows");
+        assertEquals(1, renders("/scenario1/cashFlows"));
+    }
+
+    @Test
+    public void answersConditionalGetFromCache() throws Exception {
+        String eTag = get("/scenario1/cashFlows").headers.get(HttpHeaders.ETAG);
+
+        Response response = get("/scenario1/cashFlows", eTag);
+        assertEquals(HttpServletResponse.SC_NOT_MODIFIED, response.status);
+        assertEquals(0, response.body.size());
+        assertEquals(1, renders("/scenario1/cashFlows"));
+    }
+
+    @Test
+    public void rendersAgainAfterRebuild() throws Exception {
+        get("/scenario1/cashFlows");
+        rebuild(2);
+        get("/scenario1/cashFlows");
+        assertEquals(2, renders("/scenario1/cashFlows"));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() throws Exception {
+        get("/scenario1/a");
+        get("/scenario1/b");
+        get("/scenario1/a");        // Leaves b least recently used
+        get("/scenario1/c");        // One more than maxEntries
+        get("/scenario1/a");
+        get("/scenario1/b");
+        assertEquals(1, renders("/scenario1/a"));
+        assertEquals(2, renders("/scenario1/b"));
+        assertEquals(1, renders("/scenario1/c"));
+    }
+
+    @Test
+    public void errorPagesAreNotCached() throws Exception {
+        status = HttpServletResponse.SC_NOT_FOUND;
+        assertEquals(HttpServletResponse.SC_NOT_FOUND, get("/scenario1/missing").status);
+        get("/scenario1/missing");
+        assertEquals(2, renders("/scenario1/missing"));
+    }
+}
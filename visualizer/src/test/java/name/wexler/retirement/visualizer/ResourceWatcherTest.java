@@ -0,0 +1,58 @@
+package name.wexler.retirement.visualizer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class ResourceWatcherTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final AtomicLong dataVersion = new AtomicLong();
+    private final Semaphore changes = new Semaphore(0);
+    private Path resourceDir;
+    private ResourceWatcher watcher;
+
+    @Before
+    public void setUp() throws Exception {
+        resourceDir = folder.getRoot().toPath();
+        watcher = new ResourceWatcher(resourceDir, dataVersion::get, changes::release, 50, 200);
+        watcher.start();
+        Thread.sleep(100);      // Let it register before anything changes
+    }
+
+    @After
+    public void tearDown() {
+        watcher.stop();
+    }
+
+    @Test
+    public void jsonEditsComeToOneChange() throws Exception {
+        Files.write(resourceDir.resolve("scenarios.json"), "[]".getBytes());
+        Files.write(resourceDir.resolve("assets.json"), "[]".getBytes());
+        assertTrue(changes.tryAcquire(10, TimeUnit.SECONDS));
+        assertFalse(changes.tryAcquire(500, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void otherFilesAreIgnored() throws Exception {
+        Files.write(resourceDir.resolve("scenarios.json~"), "[]".getBytes());
+        assertFalse(changes.tryAcquire(500, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void dataVersionChange() throws Exception {
+        dataVersion.incrementAndGet();
+        assertTrue(changes.tryAcquire(10, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,75 @@
+package name.wexler.retirement.visualizer;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RetirementTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path resourceDir;
+    private Retirement previous;
+
+    @Before
+    public void setUp() throws Exception {
+        resourceDir = folder.getRoot().toPath();
+        Files.write(resourceDir.resolve("assumptions.json"), "{}".getBytes());
+        Files.write(resourceDir.resolve("categories.json"), "[]".getBytes());
+
+        Scenario scenario = mock(Scenario.class);
+        when(scenario.getId()).thenReturn("scenario1");
+        previous = Retirement.rebuild(() -> new Retirement(Collections.emptyList(), Collections.singletonList(scenario))).
+                get(10, TimeUnit.SECONDS);
+        assertSame(previous, Retirement.getInstance());
+    }
+
+    private Throwable rebuildFromResources() throws Exception {
+        Context context = new Context(new AccountReader(), resourceDir);
+        CompletableFuture<Retirement> build = Retirement.rebuild(() ->
+                new Retirement(Collections.emptyList(), Retirement.readScenarios(context).values()));
+        try {
+            build.get(10, TimeUnit.SECONDS);
+            fail("Build succeeded");
+        } catch (ExecutionException ee) {
+            return ee.getCause();
+        }
+        return null;
+    }
+
+    @Test
+    public void malformedScenariosKeepPreviousInstance() throws Exception {
+        // Half saved
+        Files.write(resourceDir.resolve("scenarios.json"), "[{\"id\": \"scenario1\", \"name\": ".getBytes());
+
+        Throwable failure = rebuildFromResources();
+        assertTrue(failure instanceof IOException);
+        assertSame(previous, Retirement.getInstance());
+        assertEquals("scenario1", Retirement.getInstance().getScenario().getId());
+        assertEquals(Retirement.BuildState.READY, Retirement.getBuildState());
+        assertSame(failure, Retirement.getBuildFailure());
+    }
+
+    @Test
+    public void emptyScenariosKeepPreviousInstance() throws Exception {
+        Files.write(resourceDir.resolve("scenarios.json"), "[]".getBytes());
+
+        Throwable failure = rebuildFromResources();
+        assertTrue(failure instanceof IllegalStateException);
+        assertSame(previous, Retirement.getInstance());
+        assertSame(failure, Retirement.getBuildFailure());
+    }
+}
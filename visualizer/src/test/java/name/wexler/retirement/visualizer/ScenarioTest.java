@@ -22,6 +22,7 @@ import org.sqlite.JDBC;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
 import static org.mockito.Mockito.*;
 
 import java.io.IOException;
@@ -87,6 +88,19 @@ public class ScenarioTest {
     }
 
 
+    @Test
+    public void buildSharesHistory() throws IOException {
+        HistoricalCashFlows history = new HistoricalCashFlows(context, accountReader);
+        scenario1.build(history);
+        scenario2.build(history);
+        verify(accountReader, times(1)).readCashFlowInstances(context);
+        verify(accountReader, times(1)).readBudgets(context);
+        // Each scenario walks its balances from the current ones
+        verify(accountReader, times(2)).getAccountBalances(context);
+        assertSame(history.getBudgets(), scenario1.getCashFlowCalendar().getBudgets());
+        assertSame(history.getBudgets(), scenario2.getCashFlowCalendar().getBudgets());
+    }
+
     @Test
     public void deserialize() throws Exception {
         String scenario1aStr = "{\"type\": \"scenario\", \"id\": \"s1a\", \"assumptions\":null,\"cashFlowSources\":[],\"name\":\"scenario1a\",\"expenseSources\":[],\"assets\":[],\"liabilities\":[],\"accounts\":[]}";
@@ -101,5 +115,4 @@ public class ScenarioTest {
         Scenario sceanrio2a = context2.fromJSON(Scenario.class, scenario2aStr);
         assertEquals("scenario2a", sceanrio2a.getName());
     }
-
-}
\ No newline at end of file
+}
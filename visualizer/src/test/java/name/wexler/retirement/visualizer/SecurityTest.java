@@ -0,0 +1,97 @@
+package name.wexler.retirement.visualizer;
+
+import name.wexler.retirement.datastore.DataStore;
+import name.wexler.retirement.datastore.PriceSeries;
+import name.wexler.retirement.datastore.TickerHistory;
+import name.wexler.retirement.visualizer.Entity.Entity;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SecurityTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Context context;
+    private Security security;
+    private Assumptions assumptions;
+    private final LocalDate friday = LocalDate.of(2020, 1, 3);
+    private final LocalDate monday = LocalDate.of(2020, 1, 6);
+
+    @Before
+    public void setUp() throws Entity.DuplicateEntityException {
+        context = new Context(mock(AccountReader.class));
+        security = new Security(context, "TEST");
+        security.setPriceSeries(new PriceSeries.Builder(2)
+                .add(friday, 100.0)
+                .add(monday, 110.0)
+                .build());
+        assumptions = new Assumptions();
+        assumptions.setLongTermInvestmentReturn(0.10);
+    }
+
+    @Test
+    public void getSharePriceAtDate() {
+        assertEquals(BigDecimal.valueOf(100.0), security.getSharePriceAtDate(friday, assumptions));
+        assertEquals(BigDecimal.valueOf(110.0), security.getSharePriceAtDate(monday, assumptions));
+    }
+
+    @Test
+    public void getSharePriceOnWeekend() {
+        assertEquals(BigDecimal.valueOf(100.0), security.getSharePriceAtDate(friday.plusDays(1), assumptions));
+    }
+
+    @Test
+    public void getSharePriceBeforeHistory() {
+        assertEquals(BigDecimal.ZERO, security.getSharePriceAtDate(friday.minusDays(1), assumptions));
+    }
+
+    @Test
+    public void getSharePriceAfterHistory() {
+        BigDecimal price = security.getSharePriceAtDate(monday.plusDays(365), assumptions);
+        assertEquals(0, new BigDecimal("110.0").multiply(
+                context.getSecurityPrices().growthFactor(365, assumptions.getLongTermInvestmentReturn()))
+                .compareTo(price));
+        assertEquals(110.0 * (1 + 365 / 365.25 * 0.10), price.doubleValue(), 0.0001);
+    }
+
+    @Test
+    public void growthFactor() {
+        BigDecimal rate = BigDecimal.valueOf(0.10);
+        SecurityPrices prices = context.getSecurityPrices();
+        assertEquals(prices.growthFactor(730, rate), prices.growthFactor(730, rate));
+        assertEquals(0, BigDecimal.ONE.compareTo(prices.growthFactor(0, rate)));
+    }
+
+    @Test
+    public void rebuildHasItsOwnPrices() throws Exception {
+        assertEquals(BigDecimal.valueOf(110.0), security.getSharePriceAtDate(monday, assumptions));
+
+        // A crawler run stored a new close, and the rebuild reads the securities again
+        Path resourceDir = folder.getRoot().toPath();
+        Files.write(resourceDir.resolve("securities.json"), "[{\"type\": \"security\", \"id\": \"TEST\"}]".getBytes());
+        TickerHistory tickerHistory = mock(TickerHistory.class);
+        when(tickerHistory.getPriceSeries("TEST")).thenReturn(new PriceSeries.Builder(1)
+                .add(monday, 120.0)
+                .build());
+        DataStore ds = mock(DataStore.class);
+        when(ds.getTickerHistory()).thenReturn(tickerHistory);
+        Context rebuiltContext = new Context(mock(AccountReader.class), resourceDir);
+        Security.readSecurities(rebuiltContext, ds);
+
+        Security rebuilt = rebuiltContext.getById(Security.class, "TEST");
+        assertEquals(BigDecimal.valueOf(120.0), rebuilt.getSharePriceAtDate(monday, assumptions));
+        // The build being replaced goes on serving the prices it read until it's swapped out
+        assertEquals(BigDecimal.valueOf(110.0), security.getSharePriceAtDate(monday, assumptions));
+    }
+}
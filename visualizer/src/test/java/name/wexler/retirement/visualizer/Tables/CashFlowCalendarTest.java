@@ -1,14 +1,19 @@
 package name.wexler.retirement.visualizer.Tables;
 
 import name.wexler.retirement.visualizer.*;
+import name.wexler.retirement.visualizer.Asset.Asset;
+import name.wexler.retirement.visualizer.CashFlowEstimator.Liability;
+import name.wexler.retirement.visualizer.CashFlowFrequency.CashBalance;
 import name.wexler.retirement.visualizer.CashFlowInstance.CashFlowInstance;
 import name.wexler.retirement.visualizer.CashFlowInstance.LiabilityCashFlowInstance;
+import name.wexler.retirement.visualizer.Entity.Entity;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -109,4 +114,226 @@ public class CashFlowCalendarTest {
         List<CashFlowInstance> cashFlows = cashFlowCalendar.getCashFlowInstances();
         assertEquals(0, cashFlows.size());
     }
-}
\ No newline at end of file
+
+    private static CashFlowInstance instance(CashFlowSource source, CashFlowSink sink, String category,
+                                             LocalDate date, String amount, String balance) {
+        return new CashFlowInstance(CashFlowInstance.NO_ID, false, source, sink,
+                "EXPENSE", "parent", category, date, date, date,
+                new BigDecimal(amount), new BigDecimal(balance), category);
+    }
+
+    @Test
+    public void indexedLookups() {
+        CashFlowSource source = mock(CashFlowSource.class);
+        when(source.getId()).thenReturn("source1");
+        CashFlowSink sink1 = mock(CashFlowSink.class);
+        when(sink1.getId()).thenReturn("sink1");
+        CashFlowSink sink2 = mock(CashFlowSink.class);
+        when(sink2.getId()).thenReturn("sink2");
+        cashFlowCalendar.addCashFlowInstances(Arrays.asList(
+                instance(source, sink1, "food", LocalDate.of(2021, 3, 1), "30", "130"),
+                instance(source, sink2, "rent", LocalDate.of(2020, 6, 1), "20", "20"),
+                instance(source, sink1, "food", LocalDate.of(2020, 12, 31), "10", "100"),
+                instance(source, sink1, "food", LocalDate.of(2020, 1, 1), "5", "90")));
+
+        // Queries before computeBalances see instances in date order too
+        assertEquals(0, new BigDecimal("35").compareTo(cashFlowCalendar.sumMatchingCashFlowForPeriod(
+                LocalDate.of(2020, 1, 1), LocalDate.of(2020, 12, 31),
+                instance -> true)));
+        cashFlowCalendar.computeBalances();
+
+        assertEquals(0, new BigDecimal("100").compareTo(cashFlowCalendar.getAssetValue("sink1", 2020)));
+        assertEquals(0, new BigDecimal("130").compareTo(cashFlowCalendar.getAssetValue("sink1", 2021)));
+        assertEquals(0, BigDecimal.ZERO.compareTo(cashFlowCalendar.getAssetValue("sink1", 2019)));
+        assertEquals(3, cashFlowCalendar.getCashFlowsBySink("sink1").size());
+        assertEquals(2, cashFlowCalendar.getCashFlowsBySink("sink1", 2020).size());
+        assertEquals(LocalDate.of(2020, 1, 1), cashFlowCalendar.getCashFlowsBySink("sink1", 2020).get(0).getCashFlowDate());
+        assertEquals(3, cashFlowCalendar.getCashFlowsBySource("source1", 2020).size());
+        assertEquals(3, cashFlowCalendar.getCashFlowsByYear(2020).size());
+        assertEquals(3, cashFlowCalendar.getCashFlowsByCategory("food").size());
+        assertEquals(4, cashFlowCalendar.getCashFlowsByItemType("EXPENSE").size());
+        assertEquals(Integer.valueOf(2020), cashFlowCalendar.getFirstYear());
+        assertEquals(Integer.valueOf(2021), cashFlowCalendar.getLastYear());
+        assertEquals(0, new BigDecimal("30").compareTo(cashFlowCalendar.sumMatchingCashFlowForPeriod(
+                LocalDate.of(2020, 1, 2), LocalDate.of(2021, 2, 28), instance -> true)));
+    }
+
+    @Test
+    public void summary() {
+        CashFlowSource source = mock(CashFlowSource.class);
+        when(source.getId()).thenReturn("source1");
+        Asset asset = mock(Asset.class);
+        when(asset.getId()).thenReturn("asset1");
+        Liability liability = mock(Liability.class);
+        when(liability.getId()).thenReturn("liability1");
+        CashFlowSink sink = mock(CashFlowSink.class);
+        when(sink.getId()).thenReturn("sink1");
+        cashFlowCalendar.addAssets(Collections.singletonList(asset));
+        cashFlowCalendar.addLiabilities(Collections.singletonList(liability));
+        cashFlowCalendar.addCashFlowInstances(Arrays.asList(
+                instance(source, asset, "food", LocalDate.of(2020, 3, 1), "30", "130"),
+                instance(source, asset, "food", LocalDate.of(2022, 5, 1), "10", "140"),
+                instance(liability, sink, "mortgage", LocalDate.of(2021, 6, 1), "20", "0")));
+        cashFlowCalendar.computeBalances();
+
+        CashFlowSummary summary = cashFlowCalendar.getSummary();
+        assertSame(summary, cashFlowCalendar.getSummary());
+        assertEquals(Integer.valueOf(2020), summary.getFirstYear());
+        assertEquals(Integer.valueOf(2022), summary.getLastYear());
+        for (int year = 2019; year <= 2024; ++year) {
+            assertEquals(0, cashFlowCalendar.getAssetValue("asset1", year).compareTo(
+                    summary.getAssetValue("asset1", year)));
+            assertEquals(0, cashFlowCalendar.getLiabilityAmount("liability1", year).compareTo(
+                    summary.getLiabilityAmount("liability1", year)));
+        }
+        Map<Integer, BigDecimal> food = summary.getCategorySums().get("EXPENSE").get("parent").get("food");
+        assertEquals(0, new BigDecimal("30").compareTo(food.get(2020)));
+        assertEquals(0, BigDecimal.ZERO.compareTo(food.get(2021)));
+
+        // Anything that changes the calendar drops the summary with the index
+        cashFlowCalendar.addCashFlowInstances(Collections.singletonList(
+                instance(source, asset, "food", LocalDate.of(2023, 1, 1), "5", "145")));
+        CashFlowSummary rebuilt = cashFlowCalendar.getSummary();
+        assertNotSame(summary, rebuilt);
+        assertEquals(Integer.valueOf(2023), rebuilt.getLastYear());
+        assertEquals(0, new BigDecimal("145").compareTo(rebuilt.getAssetValue("asset1", 2023)));
+    }
+
+    private static LiabilityCashFlowInstance payment(Liability liability, CashFlowSink sink, LocalDate date,
+                                                     String principal, String interest) {
+        return new LiabilityCashFlowInstance(CashFlowInstance.NO_ID, false, liability, sink, "parent", "mortgage",
+                date, date, date, new BigDecimal(principal), new BigDecimal(interest), BigDecimal.ZERO,
+                BigDecimal.ZERO, "payment");
+    }
+
+    @Test
+    public void getLiabilityBalance() {
+        Liability liability = mock(Liability.class);
+        when(liability.getId()).thenReturn("liability1");
+        when(liability.getStartingBalance()).thenReturn(
+                new CashBalance(LocalDate.of(2020, 6, 1), new BigDecimal("1000")));
+        CashFlowSink sink = mock(CashFlowSink.class);
+        when(sink.getId()).thenReturn("sink1");
+        cashFlowCalendar.addLiabilities(Collections.singletonList(liability));
+        cashFlowCalendar.addCashFlowInstances(Arrays.asList(
+                payment(liability, sink, LocalDate.of(2020, 7, 1), "100", "5"),
+                payment(liability, sink, LocalDate.of(2021, 7, 1), "200", "4"),
+                payment(liability, sink, LocalDate.of(2022, 7, 1), "900", "3")));
+
+        assertEquals(0, BigDecimal.ZERO.compareTo(cashFlowCalendar.getLiabilityBalance("liability1", 2019)));
+        assertEquals(0, new BigDecimal("900").compareTo(cashFlowCalendar.getLiabilityBalance("liability1", 2020)));
+        assertEquals(0, new BigDecimal("700").compareTo(cashFlowCalendar.getLiabilityBalance("liability1", 2021)));
+        // Paid off, and the last payment doesn't take it below zero
+        assertEquals(0, BigDecimal.ZERO.compareTo(cashFlowCalendar.getLiabilityBalance("liability1", 2022)));
+        assertEquals(0, BigDecimal.ZERO.compareTo(cashFlowCalendar.getLiabilityBalance("liability2", 2021)));
+    }
+
+    @Test
+    public void version() {
+        CashFlowSource source = mock(CashFlowSource.class);
+        when(source.getId()).thenReturn("source1");
+        CashFlowSink sink = mock(CashFlowSink.class);
+        when(sink.getId()).thenReturn("sink1");
+        long empty = cashFlowCalendar.getVersion();
+        assertEquals(empty, cashFlowCalendar.getVersion());
+
+        cashFlowCalendar.addCashFlowInstances(Collections.singletonList(
+                instance(source, sink, "food", LocalDate.of(2020, 3, 1), "30", "130")));
+        long added = cashFlowCalendar.getVersion();
+        assertNotEquals(empty, added);
+        assertEquals(added, cashFlowCalendar.getVersion());
+        assertTrue(cashFlowCalendar.getLastModified() <= System.currentTimeMillis());
+
+        cashFlowCalendar.computeBalances();
+        assertNotEquals(added, cashFlowCalendar.getVersion());
+    }
+
+    @Test
+    public void keyedSumMatchingCashFlowForPeriod() {
+        CashFlowSource source = mock(CashFlowSource.class);
+        when(source.getId()).thenReturn("source1");
+        CashFlowSink sink = mock(CashFlowSink.class);
+        when(sink.getId()).thenReturn("sink1");
+        CashFlowCalendar.CashFlowChecker isFood = instance -> instance.getCategory().equals("food");
+        LocalDate start = LocalDate.of(2020, 3, 1);
+        LocalDate end = LocalDate.of(2020, 9, 30);
+
+        assertEquals(BigDecimal.ZERO, cashFlowCalendar.sumMatchingCashFlowForPeriod(start, end, "food", isFood));
+        cashFlowCalendar.addCashFlowInstances(Arrays.asList(
+                instance(source, sink, "food", LocalDate.of(2020, 2, 1), "1", "0"),
+                instance(source, sink, "food", LocalDate.of(2020, 3, 1), "2", "0"),
+                instance(source, sink, "rent", LocalDate.of(2020, 4, 1), "4", "0")));
+        assertEquals(0, new BigDecimal("2").compareTo(
+                cashFlowCalendar.sumMatchingCashFlowForPeriod(start, end, "food", isFood)));
+
+        // A later pass appends some instances after and some before what has been summed already
+        cashFlowCalendar.addCashFlowInstances(Arrays.asList(
+                instance(source, sink, "food", LocalDate.of(2020, 9, 30), "8", "0"),
+                instance(source, sink, "food", LocalDate.of(2020, 3, 1), "16", "0"),
+                instance(source, sink, "food", LocalDate.of(2020, 10, 1), "32", "0")));
+        assertEquals(0, new BigDecimal("26").compareTo(
+                cashFlowCalendar.sumMatchingCashFlowForPeriod(start, end, "food", isFood)));
+        assertEquals(0, cashFlowCalendar.sumMatchingCashFlowForPeriod(start, end, isFood).compareTo(
+                cashFlowCalendar.sumMatchingCashFlowForPeriod(start, end, "food", isFood)));
+        assertEquals(0, new BigDecimal("63").compareTo(cashFlowCalendar.sumMatchingCashFlowForPeriod(
+                LocalDate.EPOCH, LocalDate.MAX, "all", instance -> true)));
+
+        cashFlowCalendar.computeBalances();
+        assertEquals(0, new BigDecimal("26").compareTo(
+                cashFlowCalendar.sumMatchingCashFlowForPeriod(start, end, "food", isFood)));
+    }
+
+    private static class RunningTotalSink implements CashFlowSink {
+        private BigDecimal runningTotal;
+
+        RunningTotalSink(BigDecimal currentBalance) {
+            runningTotal = currentBalance;
+        }
+
+        @Override
+        public void updateRunningTotal(CashFlowInstance cashFlow, boolean negate) {
+            cashFlow.setCashBalance(runningTotal);
+            runningTotal = runningTotal.add(negate ? cashFlow.getAmount().negate() : cashFlow.getAmount());
+        }
+
+        @Override
+        public String getId() {
+            return "running";
+        }
+
+        @Override
+        public boolean isOwner(Entity entity) {
+            return false;
+        }
+
+        @Override
+        public void setStartingBalance() {
+        }
+    }
+
+    private static CashFlowInstance estimate(CashFlowSource source, CashFlowSink sink, LocalDate date, String amount) {
+        return new CashFlowInstance(CashFlowInstance.NO_ID, true, source, sink,
+                "EXPENSE", "parent", "estimate", date, date, date,
+                new BigDecimal(amount), BigDecimal.ZERO, "estimate");
+    }
+
+    @Test
+    public void computeBalancesAppliesProjectedEstimatesForward() {
+        CashFlowSource source = mock(CashFlowSource.class);
+        when(source.getId()).thenReturn("source1");
+        RunningTotalSink sink = new RunningTotalSink(new BigDecimal("100"));
+        LocalDate today = LocalDate.now();
+        CashFlowInstance history = instance(source, sink, "food", today.minusDays(10), "40", "0");
+        CashFlowInstance later = estimate(source, sink, today.plusDays(20), "5");
+        CashFlowInstance sooner = estimate(source, sink, today.plusDays(10), "10");
+        cashFlowCalendar.addCashFlowInstances(Collections.singletonList(history));
+        cashFlowCalendar.addProjectedCashFlowInstances("estimator1", Arrays.asList(later, sooner));
+        cashFlowCalendar.computeBalances();
+
+        assertEquals(0, new BigDecimal("100").compareTo(history.getCashBalance()));
+        assertEquals(0, new BigDecimal("60").compareTo(sooner.getCashBalance()));
+        assertEquals(0, new BigDecimal("75").compareTo(sink.runningTotal));
+        assertEquals(Arrays.asList(history, sooner, later), cashFlowCalendar.getCashFlowInstances());
+        assertEquals(Arrays.asList(later, sooner), cashFlowCalendar.getProjectedCashFlowInstances("estimator1"));
+    }
+}
@@ -0,0 +1,86 @@
+package name.wexler.retirement.visualizer.Tables;
+
+import name.wexler.retirement.visualizer.CashFlowInstance.CashFlowInstance;
+import name.wexler.retirement.visualizer.CashFlowSink;
+import name.wexler.retirement.visualizer.CashFlowSource;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CashFlowInstanceTableTest {
+    private CashFlowSource source;
+    private CashFlowSink sink;
+
+    @Before
+    public void setUp() {
+        source = mock(CashFlowSource.class);
+        when(source.getId()).thenReturn("source1");
+        sink = mock(CashFlowSink.class);
+        when(sink.getId()).thenReturn("sink1");
+    }
+
+    private CashFlowInstance instance(String itemType, String category, LocalDate date, String amount) {
+        return new CashFlowInstance(CashFlowInstance.NO_ID, false, source, sink,
+                itemType, "parent", category, date, date, date,
+                new BigDecimal(amount), BigDecimal.ZERO, category);
+    }
+
+    @Test
+    public void rowsReadTheColumns() {
+        CashFlowInstance food = instance("EXPENSE", "food", LocalDate.of(2020, 3, 1), "12.34");
+        CashFlowInstanceTable table = new CashFlowInstanceTable(Collections.singletonList(food));
+        CashFlowInstanceTable.Row row = table.getRow(0);
+        assertEquals(1, table.size());
+        assertSame(food, row.getInstance());
+        assertEquals(LocalDate.of(2020, 3, 1), row.getCashFlowDate());
+        assertEquals(2020, row.getYear());
+        assertEquals("EXPENSE", row.getItemType());
+        assertEquals("parent", row.getParentCategory());
+        assertEquals("food", row.getCategory());
+        assertEquals("sink1", row.getCashFlowSinkId());
+        assertEquals("source1", row.getCashFlowSourceId());
+        assertEquals(12340000L, row.getAmountMicros());
+    }
+
+    /**
+     * The sums have to match what grouping the instances with BigDecimal did before.
+     */
+    @Test
+    public void sumByCategoryAndYearMatchesGrouping() {
+        String[] categories = {"food", "rent", "salary", "bonus"};
+        Random random = new Random(19);
+        List<CashFlowInstance> instances = new ArrayList<>();
+        for (int i = 0; i < 2000; ++i) {
+            String category = categories[random.nextInt(categories.length)];
+            String itemType = category.equals("salary") || category.equals("bonus") ? "INCOME" : "EXPENSE";
+            LocalDate date = LocalDate.of(2015, 1, 1).plusDays(random.nextInt(3650));
+            instances.add(instance(itemType, category, date, BigDecimal.valueOf(random.nextInt(1000000) - 500000, 2).toString()));
+        }
+        Map<String, Map<String, Map<String, Map<Integer, BigDecimal>>>> expected = instances.stream().
+                collect(Collectors.groupingBy(CashFlowInstance::getItemType,
+                        Collectors.groupingBy(CashFlowInstance::getParentCategory,
+                                Collectors.groupingBy(CashFlowInstance::getCategory,
+                                        Collectors.groupingBy(CashFlowInstance::getYear,
+                                                Collectors.mapping(CashFlowInstance::getAmount,
+                                                        Collectors.reducing(BigDecimal.ZERO, BigDecimal::add)))))));
+        Map<String, Map<String, Map<String, Map<Integer, BigDecimal>>>> actual =
+                new CashFlowInstanceTable(instances).sumByCategoryAndYear(2016, 2022);
+
+        assertEquals(expected.keySet(), actual.keySet());
+        expected.forEach((itemType, byParent) -> byParent.forEach((parent, byCategory) -> byCategory.forEach((category, byYear) -> {
+            Map<Integer, BigDecimal> actualByYear = actual.get(itemType).get(parent).get(category);
+            for (int year = 2016; year <= 2022; ++year) {
+                BigDecimal expectedSum = byYear.getOrDefault(year, BigDecimal.ZERO);
+                assertEquals(category + " " + year, 0, expectedSum.compareTo(actualByYear.get(year)));
+            }
+        })));
+    }
+}
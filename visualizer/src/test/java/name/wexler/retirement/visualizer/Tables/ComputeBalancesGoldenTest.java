@@ -0,0 +1,198 @@
+package name.wexler.retirement.visualizer.Tables;
+
+import name.wexler.retirement.visualizer.*;
+import name.wexler.retirement.visualizer.Asset.AssetAccount;
+import name.wexler.retirement.visualizer.CashFlowFrequency.ShareBalance;
+import name.wexler.retirement.visualizer.CashFlowInstance.CashFlowInstance;
+import name.wexler.retirement.visualizer.CashFlowInstance.SecurityTransaction;
+import name.wexler.retirement.visualizer.Entity.Company;
+import name.wexler.retirement.visualizer.Entity.Person;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Golden test: a seeded calendar of history and estimates, with rate products and share purchases, run through
+ * computeBalances.  The expected values were produced by the same calendar before the sinks kept their running
+ * totals as Money, when they added BigDecimals.  Values are compared, not scales: Money.toBigDecimal gives 2 places
+ * for whole cents and 6 otherwise, so "0" used to come back as "0.00" and "6278195.7826" as "6278195.782600".
+ */
+public class ComputeBalancesGoldenTest {
+    private static final int firstYear = 2015;
+    private static final int lastYear = 2045;
+
+    private Scenario scenario;
+    private CashFlowCalendar calendar;
+
+    @Before
+    public void setUp() throws Exception {
+        Context context = new Context(mock(AccountReader.class));
+        scenario = mock(Scenario.class);
+        when(scenario.getId()).thenReturn("golden");
+        when(scenario.getContext()).thenReturn(context);
+        calendar = new CashFlowCalendar(scenario, new Assumptions());
+
+        new Person(context, "owner1", LocalDate.of(1970, 1, 1), 65, "Owner", "Doe");
+        new Company(context, "bank1", "Bank #1");
+        AssetAccount checking = new AssetAccount(context, "checking1", Collections.singletonList("owner1"),
+                "Checking", "bank1", Collections.emptyList(), "checking1", AccountReader.mintTxnSource);
+        AssetAccount brokerage = new AssetAccount(context, "brokerage1", Collections.singletonList("owner1"),
+                "Brokerage", "bank1", Collections.emptyList(), "brokerage1", AccountReader.mintTxnSource);
+        Security security = new Security(context, "GOLD");
+        calendar.addAssets(Arrays.asList(checking, brokerage));
+        checking.setRunningTotal(LocalDate.of(2021, 1, 1), new BigDecimal("25000.00"));
+        brokerage.setRunningTotal(LocalDate.of(2021, 1, 1), new BigDecimal("1000.00"));
+
+        CashFlowSource[] sources = new CashFlowSource[3];
+        for (int i = 0; i < sources.length; ++i) {
+            sources[i] = mock(CashFlowSource.class);
+            when(sources[i].getId()).thenReturn("source" + i);
+        }
+        String[][] categories = {{"INCOME", "Pay", "salary"}, {"EXPENSE", "Home", "rent"},
+                {"EXPENSE", "Food", "groceries"}, {"EXPENSE", "Taxes", "fica"}};
+        BigDecimal rate = new BigDecimal("0.0765");
+        Random random = new Random(18);
+        List<CashFlowInstance> instances = new ArrayList<>();
+        for (int i = 0; i < 3000; ++i) {
+            // Estimates are all in the future, so the forward walk applies them rather than the backward one
+            boolean estimate = i % 2 == 1;
+            LocalDate date = estimate ?
+                    LocalDate.of(2040, 1, 1).plusDays(random.nextInt(6 * 365)) :
+                    LocalDate.of(2015, 1, 1).plusDays(random.nextInt(6 * 365));
+            String[] category = categories[random.nextInt(categories.length)];
+            BigDecimal amount = BigDecimal.valueOf(random.nextInt(500000) + 1, 2);
+            if (category[0].equals("EXPENSE"))
+                amount = amount.negate();
+            if (category[2].equals("fica"))
+                amount = amount.multiply(rate);
+            if (!estimate && i % 10 == 0) {
+                BigDecimal shares = BigDecimal.valueOf(random.nextInt(10000) + 1, 2);
+                BigDecimal price = BigDecimal.valueOf(random.nextInt(50000) + 100, 2);
+                instances.add(new SecurityTransaction(CashFlowInstance.NO_ID, context, brokerage,
+                        "INCOME", "Investments", "buy", shares.multiply(price).negate(),
+                        new ShareBalance(date, shares, price, security), "buy GOLD"));
+                continue;
+            }
+            instances.add(new CashFlowInstance(CashFlowInstance.NO_ID, estimate, sources[i % sources.length], checking,
+                    category[0], category[1], category[2], date, date, date, amount, BigDecimal.ZERO, category[2]));
+        }
+        calendar.addCashFlowInstances(instances);
+        calendar.computeBalances();
+    }
+
+    private static void assertAmount(String message, String expected, BigDecimal actual) {
+        assertNotNull(message, actual);
+        assertEquals(message + ": expected " + expected + " but was " + actual.toPlainString(),
+                0, new BigDecimal(expected).compareTo(actual));
+    }
+
+    /**
+     * @return yearly values: the leading ones, then fill repeated until count values remain, then the trailing ones
+     */
+    private static List<String> years(List<String> leading, String fill, List<String> trailing, int count) {
+        List<String> values = new ArrayList<>(leading);
+        values.addAll(Collections.nCopies(count - leading.size() - trailing.size(), fill));
+        values.addAll(trailing);
+        return values;
+    }
+
+    private static final Map<String, List<String>> assetValues = Map.of(
+            "checking1", years(
+                    List.of("0", "591168.617870", "472646.762715", "418409.413145", "249772.790415", "164359.163440"),
+                    "25000.00",
+                    List.of("631173.789370", "426885.732705", "224903.030425", "83127.718515", "-64316.543175",
+                            "-250264.980780", "-250264.980780"),
+                    lastYear - firstYear + 3),
+            "brokerage1", years(
+                    List.of("0", "6278195.7826", "4669961.0168", "3700240.5445", "3240855.7157", "1820057.6703"),
+                    "1000.00", List.of(), lastYear - firstYear + 3));
+
+    private static final Map<String, List<String>> cashFlowRows = Map.of(
+            "EXPENSE/Food/groceries", years(
+                    List.of("-130370.70", "-122936.04", "-92946.76", "-105136.29", "-84299.64", "-120355.73"), "0",
+                    List.of("-137873.49", "-175670.86", "-147914.37", "-163254.36", "-137627.17", "-162302.42"),
+                    lastYear - firstYear + 1),
+            "EXPENSE/Home/rent", years(
+                    List.of("-140834.44", "-121741.35", "-102604.95", "-154118.17", "-145268.61", "-133639.74"), "0",
+                    List.of("-149584.95", "-174106.77", "-186049.12", "-110115.84", "-192298.94", "-158645.82"),
+                    lastYear - firstYear + 1),
+            "EXPENSE/Taxes/fica", years(
+                    List.of("-11250.483975", "-7603.585155", "-9635.739570", "-10192.922730", "-9676.266975",
+                            "-8402.833440"), "0",
+                    List.of("-10328.582475", "-14229.046665", "-10604.852280", "-10722.224700", "-13500.290835",
+                            "-13683.155670"),
+                    lastYear - firstYear + 1),
+            "INCOME/Investments/buy", years(
+                    List.of("-622348.9402", "-771726.9358", "-452404.2923", "-576222.3788", "-612317.5854",
+                            "-630687.5503"), "0", List.of(),
+                    lastYear - firstYear + 1),
+            "INCOME/Pay/salary", years(
+                    List.of("108714.22", "133759.12", "150950.10", "100810.76", "153830.89", "123039.14"), "0",
+                    List.of("160518.00", "158488.56", "145495.34", "143972.98", "196167.81", "145654.90"),
+                    lastYear - firstYear + 1));
+
+    @Test
+    public void balances() {
+        List<CashFlowInstance> instances = calendar.getCashFlowInstances();
+        assertEquals(3000, instances.size());
+        BigDecimal cashSum = BigDecimal.ZERO;
+        BigDecimal assetSum = BigDecimal.ZERO;
+        for (CashFlowInstance instance : instances) {
+            cashSum = cashSum.add(instance.getCashBalance());
+            assetSum = assetSum.add(instance.getAssetBalance());
+        }
+        assertAmount("cash balances", "1361189595.186830", cashSum);
+        assertAmount("asset balances", "544645585.08", assetSum);
+
+        CashFlowInstance last = instances.get(instances.size() - 1);
+        assertEquals(LocalDate.of(2045, 12, 29), last.getCashFlowDate());
+        assertAmount("last cash balance", "-250264.980780", last.getCashBalance());
+        assertAmount("last asset balance", "0", last.getAssetBalance());
+    }
+
+    @Test
+    public void assetValues() {
+        assetValues.forEach((asset, expected) -> {
+            for (int year = firstYear - 1; year <= lastYear + 1; ++year)
+                assertAmount(asset + " " + year, expected.get(year - firstYear + 1),
+                        calendar.getAssetValue(asset, year));
+        });
+    }
+
+    @Test
+    public void cashFlowTable() {
+        TableList table = CashFlowTableList.getCashFlowTable(scenario, calendar, calendar.getCashFlowInstances(),
+                firstYear, lastYear);
+        assertEquals(cashFlowRows.size(), table.size());
+        for (Map<String, Object> row : table) {
+            String key = row.get("itemType") + "/" + row.get("parentCategory") + "/" + row.get("itemCategory");
+            List<String> expected = cashFlowRows.get(key);
+            assertNotNull(key, expected);
+            for (int year = firstYear; year <= lastYear; ++year)
+                assertAmount(key + " " + year, expected.get(year - firstYear),
+                        ((AmountAndLink) row.get(Integer.toString(year))).getAmount());
+        }
+    }
+
+    @Test
+    public void assetsAndLiabilities() {
+        TableList table = CashFlowTableList.getAssetsAndLiabilities(scenario, calendar, firstYear, lastYear);
+        assertEquals(assetValues.size(), table.size());
+        for (Map<String, Object> row : table) {
+            String id = String.valueOf(row.get("id"));
+            List<String> expected = assetValues.get(id);
+            assertNotNull(id, expected);
+            for (int year = firstYear; year <= lastYear; ++year)
+                assertAmount(id + " " + year, expected.get(year - firstYear + 1),
+                        ((AmountAndLink) row.get(Integer.toString(year))).getAmount());
+        }
+    }
+}